@@ -0,0 +1,84 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.runner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AssembunnyComputer;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.ExecutionBackend;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.IntcodeComputer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+// Compares the interpreters of AssembunnyComputer and IntcodeComputer with their bytecode backends, running the part B program of a puzzle on the first user data set found for it.
+// An Assembunny program is compiled afresh for each run, so the time includes compiling, while an Intcode program is compiled once and then forked for each run, so the time is just running the compiled code.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ExecutionBackendBenchmark {
+	@Param({"2016/12", "2016/23", "2019/09"})
+	private String program;
+
+	@Param({"INTERPRETER", "BYTECODE"})
+	private ExecutionBackend executionBackend;
+
+	private LongSupplier programRunner;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		String[] programParts = this.program.split("/");
+		int year = Integer.parseInt(programParts[0]);
+		int day = Integer.parseInt(programParts[1]);
+		List<Main.PuzzleRunner> puzzleRunners = Main.findPuzzleRunners(Collections.singleton(year), Collections.singleton(day));
+		if (puzzleRunners.size() != 1) {
+			throw new IllegalStateException("No puzzle found for program " + this.program);
+		}
+		Main.DataSet dataSet = puzzleRunners.get(0).findDataSets(Collections.emptySet()).stream().filter(candidateDataSet -> candidateDataSet.getName().startsWith("User ")).findFirst().orElseThrow(() -> new IllegalStateException("No user data set found for program " + this.program));
+		char[] inputCharacters = Main.readDataSetFile(dataSet.getDataSetPath(), "input.txt", false);
+		ExecutionBackend executionBackend = this.executionBackend;
+		switch (this.program) {
+			case "2016/12": {
+				AssembunnyComputer.InstructionPair[] instructionPairs = AssembunnyComputer.parseProgram(inputCharacters, 4);
+				this.programRunner = () -> AssembunnyComputer.runProgramUntilTerminationWithIORegisters(instructionPairs, 4, 2, 0, 1, executionBackend);
+				break;
+			}
+			case "2016/23": {
+				AssembunnyComputer.InstructionPair[] instructionPairs = AssembunnyComputer.parseProgram(inputCharacters, 4);
+				this.programRunner = () -> AssembunnyComputer.runProgramUntilTerminationWithIORegisters(instructionPairs, 4, 0, 0, 12, executionBackend);
+				break;
+			}
+			case "2019/09": {
+				IntcodeComputer snapshot = new IntcodeComputer(IntcodeComputer.readProgram(inputCharacters));
+				snapshot.setExecutionBackend(executionBackend);
+				this.programRunner = () -> {
+					IntcodeComputer intcodeComputer = snapshot.fork();
+					intcodeComputer.addInput(2);
+					intcodeComputer.run();
+					return intcodeComputer.getOutput(intcodeComputer.getOutputCount() - 1);
+				};
+				break;
+			}
+			default:
+				throw new IllegalStateException("Unexpected program " + this.program);
+		}
+	}
+
+	@Benchmark
+	public long runProgram() {
+		return this.programRunner.getAsLong();
+	}
+}
@@ -0,0 +1,81 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.runner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(2)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PuzzleBenchmark {
+	private static final Pattern PATTERN_DATA_SET_KEY = Pattern.compile("^(?<year>[0-9]{4})/(?<day>[0-9]{2})/(?<dataSetName>.+)$");
+
+	// Overridden by PuzzleBenchmarkMain with one value per discovered puzzle and data set, in the form year/day/data set name.
+	@Param("2015/01/User 293167")
+	private String dataSetKey;
+
+	private Main.PuzzleRunner puzzleRunner;
+	private Main.DataSet dataSet;
+	private IPuzzle puzzle;
+	private char[] inputCharacters;
+	private Main.PuzzleConfigProvider puzzleConfigProvider;
+	private boolean partBPotentiallyUnsolvable;
+	private PrintWriter printWriter;
+
+	static String createDataSetKey(Main.PuzzleRunner puzzleRunner, Main.DataSet dataSet) {
+		return String.format("%04d/%02d/%s", puzzleRunner.getYear(), puzzleRunner.getDay(), dataSet.getName());
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Matcher matcher = PATTERN_DATA_SET_KEY.matcher(this.dataSetKey);
+		if (!matcher.matches()) {
+			throw new IllegalStateException("Unparseable data set key " + this.dataSetKey);
+		}
+		List<Main.PuzzleRunner> puzzleRunners = Main.findPuzzleRunners(Collections.singleton(Integer.parseInt(matcher.group("year"))), Collections.singleton(Integer.parseInt(matcher.group("day"))));
+		if (puzzleRunners.size() != 1) {
+			throw new IllegalStateException("No puzzle found for data set key " + this.dataSetKey);
+		}
+		this.puzzleRunner = puzzleRunners.get(0);
+		String dataSetName = matcher.group("dataSetName");
+		this.dataSet = this.puzzleRunner.findDataSets(Collections.emptySet()).stream().filter(candidateDataSet -> candidateDataSet.getName().equals(dataSetName)).findFirst().orElseThrow(() -> new IllegalStateException("No data set found for data set key " + this.dataSetKey));
+		this.inputCharacters = Main.readDataSetFile(this.dataSet.getDataSetPath(), "input.txt", false);
+		this.partBPotentiallyUnsolvable = Main.readDataSetFile(this.dataSet.getDataSetPath(), "output_b.txt", true) == null;
+		this.printWriter = new PrintWriter(Writer.nullWriter());
+	}
+
+	// Main creates a new puzzle instance and config provider for every run, so each invocation gets its own too, rather than one left in whatever state the previous invocation put it in.
+	// Neither is created inside the benchmark method, so neither is part of what is measured.
+	@Setup(Level.Invocation)
+	public void createPuzzle() {
+		this.puzzle = this.puzzleRunner.createPuzzleInstance();
+		this.puzzleConfigProvider = new Main.PuzzleConfigProvider(this.dataSet.getDataSetPath(), this.dataSet.getDataPath());
+	}
+
+	@Benchmark
+	public IPuzzleResults runPuzzle() {
+		return this.puzzle.runPuzzle(this.inputCharacters, this.puzzleConfigProvider, this.partBPotentiallyUnsolvable, this.printWriter);
+	}
+}
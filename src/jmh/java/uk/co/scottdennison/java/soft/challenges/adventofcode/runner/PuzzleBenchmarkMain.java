@@ -0,0 +1,137 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.runner;
+
+import org.kohsuke.args4j.CmdLineException;
+import org.kohsuke.args4j.CmdLineParser;
+import org.kohsuke.args4j.Option;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class PuzzleBenchmarkMain {
+	public static class CommandLineBean {
+		@Option(name = "-y", aliases = "--year", usage = "only benchmark puzzles from a specified year")
+		private List<Integer> years;
+
+		@Option(name = "-d", aliases = "--day", usage = "only benchmark puzzles from a specified day")
+		private List<Integer> days;
+
+		@Option(name = "-u", aliases = "--user", usage = "only benchmark puzzle data sets for user u")
+		private List<Integer> users;
+
+		@Option(name = "-f", aliases = "--forks", usage = "override the number of forked JVMs per benchmark")
+		private Integer forks;
+
+		@Option(name = "-wi", aliases = "--warmup-iterations", usage = "override the number of warm-up iterations per fork")
+		private Integer warmupIterations;
+
+		@Option(name = "-i", aliases = "--iterations", usage = "override the number of measurement iterations per fork")
+		private Integer measurementIterations;
+
+		@Option(name = "-o", aliases = "--output-file", usage = "file to write the JSON results to")
+		private String outputFile = "build/reports/jmh/results.json";
+
+		@Option(name = "-e", aliases = "--execution-backends", usage = "benchmark the Assembunny and Intcode execution backends instead of the puzzles")
+		private boolean executionBackends;
+
+		private Set<Integer> processSetList(List<Integer> values) {
+			if (values == null) {
+				return Collections.emptySet();
+			}
+			return new HashSet<>(values);
+		}
+
+		public Set<Integer> getYears() {
+			return this.processSetList(this.years);
+		}
+
+		public Set<Integer> getDays() {
+			return this.processSetList(this.days);
+		}
+
+		public Set<Integer> getUsers() {
+			return this.processSetList(this.users);
+		}
+
+		public Integer getForks() {
+			return this.forks;
+		}
+
+		public Integer getWarmupIterations() {
+			return this.warmupIterations;
+		}
+
+		public Integer getMeasurementIterations() {
+			return this.measurementIterations;
+		}
+
+		public String getOutputFile() {
+			return this.outputFile;
+		}
+
+		public boolean isExecutionBackends() {
+			return this.executionBackends;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		CommandLineBean commandLineBean = new CommandLineBean();
+		CmdLineParser cmdLineParser = new CmdLineParser(commandLineBean);
+		try {
+			cmdLineParser.parseArgument(args);
+		} catch (CmdLineException ex) {
+			System.err.println("Could not parse command line arguments");
+			cmdLineParser.printUsage(System.err);
+			return;
+		}
+		List<String> dataSetKeys = new ArrayList<>();
+		if (!commandLineBean.isExecutionBackends()) {
+			for (Main.PuzzleRunner puzzleRunner : Main.findPuzzleRunners(commandLineBean.getYears(), commandLineBean.getDays())) {
+				for (Main.DataSet dataSet : puzzleRunner.findDataSets(commandLineBean.getUsers())) {
+					dataSetKeys.add(PuzzleBenchmark.createDataSetKey(puzzleRunner, dataSet));
+				}
+			}
+			if (dataSetKeys.isEmpty()) {
+				System.err.println("No matching puzzle data sets found.");
+				return;
+			}
+		}
+		Path outputPath = Paths.get(commandLineBean.getOutputFile());
+		Path outputParentPath = outputPath.toAbsolutePath().getParent();
+		try {
+			Files.createDirectories(outputParentPath);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Unable to create directory " + outputParentPath, ex);
+		}
+		ChainedOptionsBuilder optionsBuilder = new OptionsBuilder()
+			.resultFormat(ResultFormatType.JSON)
+			.result(outputPath.toString());
+		if (commandLineBean.isExecutionBackends()) {
+			optionsBuilder.include(ExecutionBackendBenchmark.class.getName());
+		}
+		else {
+			optionsBuilder.include(PuzzleBenchmark.class.getName()).param("dataSetKey", dataSetKeys.toArray(new String[0]));
+		}
+		if (commandLineBean.getForks() != null) {
+			optionsBuilder.forks(commandLineBean.getForks());
+		}
+		if (commandLineBean.getWarmupIterations() != null) {
+			optionsBuilder.warmupIterations(commandLineBean.getWarmupIterations());
+		}
+		if (commandLineBean.getMeasurementIterations() != null) {
+			optionsBuilder.measurementIterations(commandLineBean.getMeasurementIterations());
+		}
+		new Runner(optionsBuilder.build()).run();
+	}
+}
@@ -0,0 +1,67 @@
+package uk.co.scottdennison.java.libs.text.input;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class AsciiByteBufferCharSequence implements CharSequence {
+	private final ByteBuffer byteBuffer;
+	private final int offset;
+	private final int length;
+
+	private AsciiByteBufferCharSequence(ByteBuffer byteBuffer, int offset, int length) {
+		this.byteBuffer = byteBuffer;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	// Only valid if every byte in the buffer is ASCII, which the caller is expected to have checked using isAscii. No bytes are copied, so the buffer must not be modified while this view is in use.
+	public static AsciiByteBufferCharSequence create(ByteBuffer byteBuffer) {
+		return new AsciiByteBufferCharSequence(byteBuffer, byteBuffer.position(), byteBuffer.remaining());
+	}
+
+	public static boolean isAscii(ByteBuffer byteBuffer) {
+		int limit = byteBuffer.limit();
+		for (int index = byteBuffer.position(); index < limit; index++) {
+			if (byteBuffer.get(index) < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int length() {
+		return this.length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= this.length) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.length);
+		}
+		return (char) this.byteBuffer.get(this.offset + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || end > this.length || start > end) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + this.length);
+		}
+		return new AsciiByteBufferCharSequence(this.byteBuffer, this.offset + start, end - start);
+	}
+
+	public char[] toCharArray() {
+		char[] chars = new char[this.length];
+		for (int index = 0; index < this.length; index++) {
+			chars[index] = (char) this.byteBuffer.get(this.offset + index);
+		}
+		return chars;
+	}
+
+	@Override
+	public String toString() {
+		byte[] bytes = new byte[this.length];
+		this.byteBuffer.duplicate().position(this.offset).get(bytes);
+		return new String(bytes, StandardCharsets.US_ASCII);
+	}
+}
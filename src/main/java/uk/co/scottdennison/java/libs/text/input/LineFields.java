@@ -0,0 +1,67 @@
+package uk.co.scottdennison.java.libs.text.input;
+
+import java.util.Arrays;
+
+// Where each field of the last line split into it starts and ends. Meant to be reused for every line, as its arrays only grow, so once they are large enough splitting creates no garbage at all.
+public final class LineFields {
+	private LineView lineView;
+	private int[] starts;
+	private int[] ends;
+	private int count;
+
+	public LineFields() {
+		this.starts = new int[16];
+		this.ends = new int[16];
+		this.count = 0;
+	}
+
+	void reset(LineView lineView) {
+		this.lineView = lineView;
+		this.count = 0;
+	}
+
+	void add(int start, int end) {
+		if (this.count == this.starts.length) {
+			this.starts = Arrays.copyOf(this.starts, this.count * 2);
+			this.ends = Arrays.copyOf(this.ends, this.count * 2);
+		}
+		this.starts[this.count] = start;
+		this.ends[this.count++] = end;
+	}
+
+	public int getCount() {
+		return this.count;
+	}
+
+	private void checkFieldIndex(int fieldIndex) {
+		if (fieldIndex < 0 || fieldIndex >= this.count) {
+			throw new IndexOutOfBoundsException("Field " + fieldIndex + " out of bounds for field count " + this.count);
+		}
+	}
+
+	public int getStart(int fieldIndex) {
+		this.checkFieldIndex(fieldIndex);
+		return this.starts[fieldIndex];
+	}
+
+	public int getEnd(int fieldIndex) {
+		this.checkFieldIndex(fieldIndex);
+		return this.ends[fieldIndex];
+	}
+
+	public int parseInt(int fieldIndex) {
+		return this.lineView.parseInt(this.getStart(fieldIndex), this.ends[fieldIndex]);
+	}
+
+	public long parseLong(int fieldIndex) {
+		return this.lineView.parseLong(this.getStart(fieldIndex), this.ends[fieldIndex]);
+	}
+
+	public boolean fieldEquals(int fieldIndex, CharSequence other) {
+		return this.lineView.regionEquals(this.getStart(fieldIndex), this.ends[fieldIndex], other);
+	}
+
+	public String getString(int fieldIndex) {
+		return this.lineView.substring(this.getStart(fieldIndex), this.ends[fieldIndex]);
+	}
+}
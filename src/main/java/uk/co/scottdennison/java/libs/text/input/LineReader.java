@@ -4,15 +4,14 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Spliterator;
-import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 public final class LineReader {
 	private interface Processor<T> {
 		T process(char[] chars, int offset, int count);
-
-		boolean isEmpty(T t);
 	}
 
 	private static class StringProcessor implements Processor<String> {
@@ -25,11 +24,6 @@ public final class LineReader {
 		public String process(char[] chars, int offset, int count) {
 			return new String(chars, offset, count);
 		}
-
-		@Override
-		public boolean isEmpty(String s) {
-			return s.isEmpty();
-		}
 	}
 
 	private static class CharArrayProcessor implements Processor<char[]> {
@@ -44,11 +38,6 @@ public final class LineReader {
 			System.arraycopy(chars, offset, charsSelection, 0, count);
 			return charsSelection;
 		}
-
-		@Override
-		public boolean isEmpty(char[] chars) {
-			return chars.length < 1;
-		}
 	}
 
 	private final char[] chars;
@@ -64,10 +53,50 @@ public final class LineReader {
 		return new LineReader(charsCopy);
 	}
 
+	// The characters must not be modified while anything read from them is in use.
 	public static LineReader createWithoutCopy(char[] chars) {
 		return new LineReader(chars);
 	}
 
+	// Returns the index of the line break that ends the line starting at the given index, or the number of characters if the line has none.
+	private static int findLineEnd(char[] chars, int startIndex) {
+		int charCount = chars.length;
+		int stopIndex = startIndex;
+		while (stopIndex < charCount && chars[stopIndex] != '\n' && chars[stopIndex] != '\r') {
+			stopIndex++;
+		}
+		return stopIndex;
+	}
+
+	// Returns the index of the start of the line after the line break at the given index.
+	private static int findNextLineStart(char[] chars, int stopIndex) {
+		int charCount = chars.length;
+		if (stopIndex >= charCount) {
+			return charCount;
+		}
+		if (chars[stopIndex] == '\r' && stopIndex + 1 < charCount && chars[stopIndex + 1] == '\n') {
+			return stopIndex + 2;
+		}
+		return stopIndex + 1;
+	}
+
+	// Counts without creating anything for the lines, so that arrays and lists can be created at exactly the right size.
+	private int countLines(boolean trimEmpty) {
+		char[] chars = this.chars;
+		int lineCount = 0;
+		int lineCountUpToLastNonEmpty = 0;
+		int startIndex = 0;
+		while (startIndex < chars.length) {
+			int stopIndex = findLineEnd(chars, startIndex);
+			lineCount++;
+			if (stopIndex > startIndex) {
+				lineCountUpToLastNonEmpty = lineCount;
+			}
+			startIndex = findNextLineStart(chars, stopIndex);
+		}
+		return trimEmpty ? lineCountUpToLastNonEmpty : lineCount;
+	}
+
 	private static class Iterator<T> implements java.util.Iterator<T> {
 		private final Processor<T> processor;
 		private final char[] chars;
@@ -100,46 +129,121 @@ public final class LineReader {
 
 		private void update() {
 			char[] chars = this.chars;
-			int charCount = this.chars.length;
 			int startIndex = this.index;
-			if (startIndex >= charCount) {
+			if (startIndex >= chars.length) {
 				this.hasNextLine = false;
 			}
 			else {
-				int stopIndex = startIndex;
-				int nextStartIndex = charCount;
-				while (stopIndex < charCount) {
-					boolean shouldStop = false;
-					switch (chars[stopIndex]) {
-						case '\n':
-							shouldStop = true;
-							nextStartIndex = stopIndex + 1;
-							break;
-						case '\r':
-							shouldStop = true;
-							int potentialCRIndex = stopIndex + 1;
-							if (potentialCRIndex < charCount && chars[potentialCRIndex] == '\n') {
-								nextStartIndex = potentialCRIndex + 1;
-							}
-							else {
-								nextStartIndex = potentialCRIndex;
-							}
-							break;
-						default:
-							// Continue the loop.
-					}
-					if (shouldStop) {
-						break;
-					}
-					stopIndex++;
-				}
-				this.index = nextStartIndex;
+				int stopIndex = findLineEnd(chars, startIndex);
+				this.index = findNextLineStart(chars, stopIndex);
 				this.next = this.processor.process(chars, startIndex, stopIndex - startIndex);
 				this.hasNextLine = true;
 			}
 		}
 	}
 
+	// Splits by line index rather than by character, as the line starts are all found up front, so both halves know exactly how many lines they have.
+	private static class LineSpliterator<T> implements Spliterator<T> {
+		private final char[] chars;
+		private final int[] lineStarts;
+		private final Processor<T> processor;
+		private int lineIndex;
+		private final int endLineIndex;
+
+		private LineSpliterator(char[] chars, int[] lineStarts, Processor<T> processor, int lineIndex, int endLineIndex) {
+			this.chars = chars;
+			this.lineStarts = lineStarts;
+			this.processor = processor;
+			this.lineIndex = lineIndex;
+			this.endLineIndex = endLineIndex;
+		}
+
+		private T processLine(int lineIndex) {
+			char[] chars = this.chars;
+			int startIndex = this.lineStarts[lineIndex];
+			int stopIndex = findLineEnd(chars, startIndex);
+			return this.processor.process(chars, startIndex, stopIndex - startIndex);
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			if (this.lineIndex >= this.endLineIndex) {
+				return false;
+			}
+			action.accept(this.processLine(this.lineIndex++));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super T> action) {
+			int endLineIndex = this.endLineIndex;
+			for (int lineIndex = this.lineIndex; lineIndex < endLineIndex; lineIndex++) {
+				action.accept(this.processLine(lineIndex));
+			}
+			this.lineIndex = endLineIndex;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			int lineIndex = this.lineIndex;
+			int middleLineIndex = (lineIndex + this.endLineIndex) >>> 1;
+			if (middleLineIndex == lineIndex) {
+				return null;
+			}
+			this.lineIndex = middleLineIndex;
+			return new LineSpliterator<>(this.chars, this.lineStarts, this.processor, lineIndex, middleLineIndex);
+		}
+
+		@Override
+		public long estimateSize() {
+			return this.endLineIndex - this.lineIndex;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+		}
+	}
+
+	// Moves the one view along the lines, rather than creating anything per line.
+	private static class LineViewIterator implements java.util.Iterator<LineView> {
+		private final char[] chars;
+		private final LineView lineView;
+		private int index = 0;
+
+		private LineViewIterator(char[] chars) {
+			this.chars = chars;
+			this.lineView = new LineView(chars, 0, 0);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return this.index < this.chars.length;
+		}
+
+		@Override
+		public LineView next() {
+			char[] chars = this.chars;
+			int startIndex = this.index;
+			if (startIndex >= chars.length) {
+				throw new NoSuchElementException("No more lines.");
+			}
+			int stopIndex = findLineEnd(chars, startIndex);
+			this.index = findNextLineStart(chars, stopIndex);
+			this.lineView.moveTo(startIndex, stopIndex - startIndex);
+			return this.lineView;
+		}
+	}
+
+	// Returns the same view for every line, so each is only valid until the next is read.
+	public java.util.Iterator<LineView> lineViewsIterator() {
+		return new LineViewIterator(this.chars);
+	}
+
+	public Iterable<LineView> lineViews() {
+		return this::lineViewsIterator;
+	}
+
 	public java.util.Iterator<String> stringsIterator() {
 		return this.iterator(StringProcessor.INSTANCE);
 	}
@@ -161,27 +265,35 @@ public final class LineReader {
 	}
 
 	public String[] stringsArray(boolean trimEmpty) {
-		return this.stringsList(trimEmpty).toArray(new String[0]);
+		return this.array(StringProcessor.INSTANCE, trimEmpty, String[]::new);
 	}
 
 	public char[][] charArraysArray(boolean trimEmpty) {
-		return this.charArraysList(trimEmpty).toArray(new char[0][]);
+		return this.array(CharArrayProcessor.INSTANCE, trimEmpty, char[][]::new);
+	}
+
+	// Trimming leaves out any empty lines at the end.
+	private <T> T[] array(Processor<T> processor, boolean trimEmpty, IntFunction<T[]> arrayCreator) {
+		char[] chars = this.chars;
+		T[] items = arrayCreator.apply(this.countLines(trimEmpty));
+		int startIndex = 0;
+		for (int lineIndex = 0; lineIndex < items.length; lineIndex++) {
+			int stopIndex = findLineEnd(chars, startIndex);
+			items[lineIndex] = processor.process(chars, startIndex, stopIndex - startIndex);
+			startIndex = findNextLineStart(chars, stopIndex);
+		}
+		return items;
 	}
 
 	private <T> List<T> list(Processor<T> processor, boolean trimEmpty) {
-		Iterator<T> iterator = this.iterator(processor);
-		List<T> items = new ArrayList<>();
-		while (iterator.hasNext()) {
-			items.add(iterator.next());
-		}
-		if (trimEmpty) {
-			int itemsToRemove = 0;
-			for (int index = items.size() - 1; index >= 0 && processor.isEmpty(items.get(index)); index++) {
-				itemsToRemove++;
-			}
-			if (itemsToRemove > 0) {
-				items = new ArrayList<>(items.subList(0, items.size() - itemsToRemove));
-			}
+		char[] chars = this.chars;
+		int lineCount = this.countLines(trimEmpty);
+		List<T> items = new ArrayList<>(lineCount);
+		int startIndex = 0;
+		for (int lineIndex = 0; lineIndex < lineCount; lineIndex++) {
+			int stopIndex = findLineEnd(chars, startIndex);
+			items.add(processor.process(chars, startIndex, stopIndex - startIndex));
+			startIndex = findNextLineStart(chars, stopIndex);
 		}
 		return items;
 	}
@@ -195,23 +307,32 @@ public final class LineReader {
 	}
 
 	public Stream<String> stringsStream() {
-		return stream(this.stringsIterator());
+		return StreamSupport.stream(this.spliterator(StringProcessor.INSTANCE), false);
 	}
 
 	public Stream<char[]> charArraysStream() {
-		return stream(this.charArraysIterator());
+		return StreamSupport.stream(this.spliterator(CharArrayProcessor.INSTANCE), false);
 	}
 
-	private static <T> Stream<T> stream(java.util.Iterator<T> iterator) {
-		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+	// Sized and splittable, so the lines can be handed out evenly if the stream is made parallel.
+	private <T> Spliterator<T> spliterator(Processor<T> processor) {
+		char[] chars = this.chars;
+		int[] lineStarts = new int[this.countLines(false)];
+		int startIndex = 0;
+		for (int lineIndex = 0; lineIndex < lineStarts.length; lineIndex++) {
+			lineStarts[lineIndex] = startIndex;
+			startIndex = findNextLineStart(chars, findLineEnd(chars, startIndex));
+		}
+		return new LineSpliterator<>(chars, lineStarts, processor, 0, lineStarts.length);
 	}
 
+	// Like every static method here, these read straight from the given characters, which must not be modified while the lines are still being read.
 	public static java.util.Iterator<String> stringsIterator(char[] chars) {
-		return LineReader.create(chars).stringsIterator();
+		return LineReader.createWithoutCopy(chars).stringsIterator();
 	}
 
 	public static java.util.Iterator<char[]> charArraysIterator(char[] chars) {
-		return LineReader.create(chars).charArraysIterator();
+		return LineReader.createWithoutCopy(chars).charArraysIterator();
 	}
 
 	public static List<String> stringsList(char[] chars, boolean trimEmpty) {
@@ -231,18 +352,22 @@ public final class LineReader {
 	}
 
 	public static Iterable<String> strings(char[] chars) {
-		return LineReader.create(chars).strings();
+		return LineReader.createWithoutCopy(chars).strings();
 	}
 
 	public static Iterable<char[]> charArrays(char[] chars) {
-		return LineReader.create(chars).charArrays();
+		return LineReader.createWithoutCopy(chars).charArrays();
 	}
 
 	public static Stream<String> stringsStream(char[] chars) {
-		return LineReader.create(chars).stringsStream();
+		return LineReader.createWithoutCopy(chars).stringsStream();
 	}
 
 	public static Stream<char[]> charArraysStream(char[] chars) {
-		return LineReader.create(chars).charArraysStream();
+		return LineReader.createWithoutCopy(chars).charArraysStream();
+	}
+
+	public static Iterable<LineView> lineViews(char[] chars) {
+		return LineReader.createWithoutCopy(chars).lineViews();
 	}
 }
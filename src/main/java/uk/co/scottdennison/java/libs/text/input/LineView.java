@@ -0,0 +1,187 @@
+package uk.co.scottdennison.java.libs.text.input;
+
+// A line of a LineReader's characters, read straight from its array. The iterators of LineReader move a single view from line to line rather than creating one per line, so a view is only valid until the iterator moves on, and must be copied, such as with toString, to be kept.
+// The parsing and splitting methods work on positions within the line, so that fields and numbers can be read without creating any strings.
+public final class LineView implements CharSequence {
+	private final char[] chars;
+	private int offset;
+	private int length;
+
+	LineView(char[] chars, int offset, int length) {
+		this.chars = chars;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	void moveTo(int offset, int length) {
+		this.offset = offset;
+		this.length = length;
+	}
+
+	@Override
+	public int length() {
+		return this.length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= this.length) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.length);
+		}
+		return this.chars[this.offset + index];
+	}
+
+	private void checkRange(int start, int end) {
+		if (start < 0 || end > this.length || start > end) {
+			throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") out of bounds for length " + this.length);
+		}
+	}
+
+	// Unlike the view itself, the subsequence stays the same when the iterator moves on.
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		this.checkRange(start, end);
+		return new LineView(this.chars, this.offset + start, end - start);
+	}
+
+	public String substring(int start, int end) {
+		this.checkRange(start, end);
+		return new String(this.chars, this.offset + start, end - start);
+	}
+
+	public int indexOf(char searchChar, int fromIndex) {
+		for (int index = Math.max(fromIndex, 0); index < this.length; index++) {
+			if (this.chars[this.offset + index] == searchChar) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	public boolean regionMatches(int start, CharSequence other) {
+		int otherLength = other.length();
+		if (start < 0 || start + otherLength > this.length) {
+			return false;
+		}
+		for (int index = 0; index < otherLength; index++) {
+			if (this.chars[this.offset + start + index] != other.charAt(index)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean regionEquals(int start, int end, CharSequence other) {
+		return end - start == other.length() && this.regionMatches(start, other);
+	}
+
+	public boolean contentEquals(CharSequence other) {
+		return this.regionEquals(0, this.length, other);
+	}
+
+	// Returns the index just after the number starting at the given index, which is an optional sign followed by any digits.
+	public int findNumberEnd(int start) {
+		int index = start;
+		if (index < this.length && (this.chars[this.offset + index] == '-' || this.chars[this.offset + index] == '+')) {
+			index++;
+		}
+		while (index < this.length && this.chars[this.offset + index] >= '0' && this.chars[this.offset + index] <= '9') {
+			index++;
+		}
+		return index;
+	}
+
+	public int parseInt(int start) {
+		return this.parseInt(start, this.findNumberEnd(start));
+	}
+
+	public int parseInt(int start, int end) {
+		long value = this.parseLong(start, end);
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			throw new NumberFormatException("Value out of range for an int: \"" + this.subSequence(start, end) + "\"");
+		}
+		return (int) value;
+	}
+
+	public long parseLong(int start) {
+		return this.parseLong(start, this.findNumberEnd(start));
+	}
+
+	// Accepts exactly what Long.parseLong does for decimal numbers, including a leading plus sign.
+	public long parseLong(int start, int end) {
+		this.checkRange(start, end);
+		char[] chars = this.chars;
+		int index = this.offset + start;
+		int endIndex = this.offset + end;
+		boolean negative = false;
+		if (index < endIndex && (chars[index] == '-' || chars[index] == '+')) {
+			negative = chars[index] == '-';
+			index++;
+		}
+		if (index == endIndex) {
+			throw new NumberFormatException("No digits: \"" + this.subSequence(start, end) + "\"");
+		}
+		// Built up as a negative number, which has the larger range, as Long.parseLong does.
+		long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+		long multiplyLimit = limit / 10;
+		long result = 0;
+		for (; index < endIndex; index++) {
+			char digitChar = chars[index];
+			if (digitChar < '0' || digitChar > '9') {
+				throw new NumberFormatException("Not a number: \"" + this.subSequence(start, end) + "\"");
+			}
+			int digit = digitChar - '0';
+			if (result < multiplyLimit || result * 10 < limit + digit) {
+				throw new NumberFormatException("Value out of range for a long: \"" + this.subSequence(start, end) + "\"");
+			}
+			result = result * 10 - digit;
+		}
+		return negative ? result : -result;
+	}
+
+	// Splits the line at every delimiter, so adjacent delimiters give an empty field. Returns the number of fields.
+	public int split(char delimiter, LineFields lineFields) {
+		lineFields.reset(this);
+		int fieldStart = 0;
+		for (int index = 0; index < this.length; index++) {
+			if (this.chars[this.offset + index] == delimiter) {
+				lineFields.add(fieldStart, index);
+				fieldStart = index + 1;
+			}
+		}
+		lineFields.add(fieldStart, this.length);
+		return lineFields.getCount();
+	}
+
+	// Splits the line at each run of whitespace, ignoring any at the start or end, as String.split("\\s+") does after a trim. Returns the number of fields.
+	public int splitOnWhitespace(LineFields lineFields) {
+		lineFields.reset(this);
+		int fieldStart = -1;
+		for (int index = 0; index < this.length; index++) {
+			if (Character.isWhitespace(this.chars[this.offset + index])) {
+				if (fieldStart >= 0) {
+					lineFields.add(fieldStart, index);
+					fieldStart = -1;
+				}
+			}
+			else if (fieldStart < 0) {
+				fieldStart = index;
+			}
+		}
+		if (fieldStart >= 0) {
+			lineFields.add(fieldStart, this.length);
+		}
+		return lineFields.getCount();
+	}
+
+	public char[] toCharArray() {
+		char[] chars = new char[this.length];
+		System.arraycopy(this.chars, this.offset, chars, 0, this.length);
+		return chars;
+	}
+
+	@Override
+	public String toString() {
+		return new String(this.chars, this.offset, this.length);
+	}
+}
@@ -0,0 +1,86 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.util.Arrays;
+
+// A binary min-heap of node IDs held in parallel primitive arrays. A node whose priority improves is simply added again, and the caller skips any entry whose priority no longer matches the node.
+final class AStarBinaryHeap implements AStarOpenSet {
+	private long[] priorities;
+	private int[] nodeIds;
+	private int size;
+
+	AStarBinaryHeap() {
+		this.priorities = new long[1024];
+		this.nodeIds = new int[1024];
+		this.size = 0;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void addOrUpdate(long priority, int nodeId) {
+		if (this.size == this.priorities.length) {
+			this.priorities = Arrays.copyOf(this.priorities, this.size * 2);
+			this.nodeIds = Arrays.copyOf(this.nodeIds, this.size * 2);
+		}
+		int index = this.size++;
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			long parentPriority = this.priorities[parentIndex];
+			if (parentPriority <= priority) {
+				break;
+			}
+			this.priorities[index] = parentPriority;
+			this.nodeIds[index] = this.nodeIds[parentIndex];
+			index = parentIndex;
+		}
+		this.priorities[index] = priority;
+		this.nodeIds[index] = nodeId;
+	}
+
+	@Override
+	public long peekPriority() {
+		return this.priorities[0];
+	}
+
+	@Override
+	public int peekNodeId() {
+		return this.nodeIds[0];
+	}
+
+	@Override
+	public int poll() {
+		int polledNodeId = this.nodeIds[0];
+		int lastIndex = --this.size;
+		if (lastIndex > 0) {
+			long priority = this.priorities[lastIndex];
+			int nodeId = this.nodeIds[lastIndex];
+			int index = 0;
+			while (true) {
+				int childIndex = (index << 1) + 1;
+				if (childIndex >= lastIndex) {
+					break;
+				}
+				if (childIndex + 1 < lastIndex && this.priorities[childIndex + 1] < this.priorities[childIndex]) {
+					childIndex++;
+				}
+				if (this.priorities[childIndex] >= priority) {
+					break;
+				}
+				this.priorities[index] = this.priorities[childIndex];
+				this.nodeIds[index] = this.nodeIds[childIndex];
+				index = childIndex;
+			}
+			this.priorities[index] = priority;
+			this.nodeIds[index] = nodeId;
+		}
+		return polledNodeId;
+	}
+}
@@ -0,0 +1,118 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.util.Arrays;
+
+// A queue with one bucket per priority, each a doubly linked list of node IDs held in primitive arrays, so adding, moving and polling a node are all O(1) apart from skipping over empty buckets.
+// Only suitable when the priorities are small non-negative integers, such as the costs of walking a grid with unit or single digit step costs.
+final class AStarBucketQueue implements AStarOpenSet {
+	private static final int NONE = -1;
+	private static final int MAXIMUM_BUCKET_COUNT = 1 << 26;
+
+	private int[] bucketHeads;
+	private int[] nodeBuckets;
+	private int[] nextNodeIds;
+	private int[] previousNodeIds;
+	private int lowestPossiblyOccupiedBucket;
+	private int size;
+
+	AStarBucketQueue() {
+		this.bucketHeads = new int[256];
+		Arrays.fill(this.bucketHeads, NONE);
+		this.nodeBuckets = new int[1024];
+		Arrays.fill(this.nodeBuckets, NONE);
+		this.nextNodeIds = new int[1024];
+		this.previousNodeIds = new int[1024];
+		this.lowestPossiblyOccupiedBucket = 0;
+		this.size = 0;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void addOrUpdate(long priority, int nodeId) {
+		if (priority < 0 || priority >= MAXIMUM_BUCKET_COUNT) {
+			throw new IllegalStateException("A bucket queue can only hold priorities from 0 to " + (MAXIMUM_BUCKET_COUNT - 1) + ", not " + priority);
+		}
+		int bucket = (int) priority;
+		if (bucket >= this.bucketHeads.length) {
+			int oldLength = this.bucketHeads.length;
+			this.bucketHeads = Arrays.copyOf(this.bucketHeads, Math.max(oldLength * 2, bucket + 1));
+			Arrays.fill(this.bucketHeads, oldLength, this.bucketHeads.length, NONE);
+		}
+		if (nodeId >= this.nodeBuckets.length) {
+			int oldLength = this.nodeBuckets.length;
+			int newLength = Math.max(oldLength * 2, nodeId + 1);
+			this.nodeBuckets = Arrays.copyOf(this.nodeBuckets, newLength);
+			Arrays.fill(this.nodeBuckets, oldLength, newLength, NONE);
+			this.nextNodeIds = Arrays.copyOf(this.nextNodeIds, newLength);
+			this.previousNodeIds = Arrays.copyOf(this.previousNodeIds, newLength);
+		}
+		if (this.nodeBuckets[nodeId] == NONE) {
+			this.size++;
+		}
+		else {
+			this.unlink(nodeId);
+		}
+		int headNodeId = this.bucketHeads[bucket];
+		this.nodeBuckets[nodeId] = bucket;
+		this.previousNodeIds[nodeId] = NONE;
+		this.nextNodeIds[nodeId] = headNodeId;
+		if (headNodeId != NONE) {
+			this.previousNodeIds[headNodeId] = nodeId;
+		}
+		this.bucketHeads[bucket] = nodeId;
+		if (bucket < this.lowestPossiblyOccupiedBucket) {
+			this.lowestPossiblyOccupiedBucket = bucket;
+		}
+	}
+
+	@Override
+	public long peekPriority() {
+		this.skipEmptyBuckets();
+		return this.lowestPossiblyOccupiedBucket;
+	}
+
+	@Override
+	public int peekNodeId() {
+		this.skipEmptyBuckets();
+		return this.bucketHeads[this.lowestPossiblyOccupiedBucket];
+	}
+
+	@Override
+	public int poll() {
+		this.skipEmptyBuckets();
+		int nodeId = this.bucketHeads[this.lowestPossiblyOccupiedBucket];
+		this.unlink(nodeId);
+		this.nodeBuckets[nodeId] = NONE;
+		this.size--;
+		return nodeId;
+	}
+
+	private void skipEmptyBuckets() {
+		while (this.bucketHeads[this.lowestPossiblyOccupiedBucket] == NONE) {
+			this.lowestPossiblyOccupiedBucket++;
+		}
+	}
+
+	private void unlink(int nodeId) {
+		int previousNodeId = this.previousNodeIds[nodeId];
+		int nextNodeId = this.nextNodeIds[nodeId];
+		if (previousNodeId == NONE) {
+			this.bucketHeads[this.nodeBuckets[nodeId]] = nextNodeId;
+		}
+		else {
+			this.nextNodeIds[previousNodeId] = nextNodeId;
+		}
+		if (nextNodeId != NONE) {
+			this.previousNodeIds[nextNodeId] = previousNodeId;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.util.Arrays;
+
+// A d-ary min-heap of node IDs that tracks where each node is in the heap, so that a node whose priority improves can be moved in O(log n) rather than added again.
+final class AStarIndexedHeap implements AStarOpenSet {
+	private static final int NOT_IN_HEAP = -1;
+
+	private final int arity;
+	private long[] priorities;
+	private int[] nodeIds;
+	private int[] heapIndexes;
+	private int size;
+
+	AStarIndexedHeap(int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("Heap arity must be at least 2");
+		}
+		this.arity = arity;
+		this.priorities = new long[1024];
+		this.nodeIds = new int[1024];
+		this.heapIndexes = new int[1024];
+		Arrays.fill(this.heapIndexes, NOT_IN_HEAP);
+		this.size = 0;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void addOrUpdate(long priority, int nodeId) {
+		if (nodeId >= this.heapIndexes.length) {
+			int oldLength = this.heapIndexes.length;
+			this.heapIndexes = Arrays.copyOf(this.heapIndexes, Math.max(oldLength * 2, nodeId + 1));
+			Arrays.fill(this.heapIndexes, oldLength, this.heapIndexes.length, NOT_IN_HEAP);
+		}
+		int index = this.heapIndexes[nodeId];
+		if (index == NOT_IN_HEAP) {
+			if (this.size == this.priorities.length) {
+				this.priorities = Arrays.copyOf(this.priorities, this.size * 2);
+				this.nodeIds = Arrays.copyOf(this.nodeIds, this.size * 2);
+			}
+			this.siftUp(this.size++, priority, nodeId);
+		}
+		else if (priority < this.priorities[index]) {
+			this.siftUp(index, priority, nodeId);
+		}
+		else {
+			this.siftDown(index, priority, nodeId);
+		}
+	}
+
+	@Override
+	public long peekPriority() {
+		return this.priorities[0];
+	}
+
+	@Override
+	public int peekNodeId() {
+		return this.nodeIds[0];
+	}
+
+	@Override
+	public int poll() {
+		int polledNodeId = this.nodeIds[0];
+		this.heapIndexes[polledNodeId] = NOT_IN_HEAP;
+		int lastIndex = --this.size;
+		if (lastIndex > 0) {
+			this.siftDown(0, this.priorities[lastIndex], this.nodeIds[lastIndex]);
+		}
+		return polledNodeId;
+	}
+
+	private void siftUp(int index, long priority, int nodeId) {
+		while (index > 0) {
+			int parentIndex = (index - 1) / this.arity;
+			long parentPriority = this.priorities[parentIndex];
+			if (parentPriority <= priority) {
+				break;
+			}
+			this.place(index, parentPriority, this.nodeIds[parentIndex]);
+			index = parentIndex;
+		}
+		this.place(index, priority, nodeId);
+	}
+
+	private void siftDown(int index, long priority, int nodeId) {
+		while (true) {
+			int firstChildIndex = index * this.arity + 1;
+			if (firstChildIndex >= this.size) {
+				break;
+			}
+			int lastChildIndex = Math.min(firstChildIndex + this.arity, this.size);
+			int smallestChildIndex = firstChildIndex;
+			long smallestChildPriority = this.priorities[firstChildIndex];
+			for (int childIndex = firstChildIndex + 1; childIndex < lastChildIndex; childIndex++) {
+				long childPriority = this.priorities[childIndex];
+				if (childPriority < smallestChildPriority) {
+					smallestChildIndex = childIndex;
+					smallestChildPriority = childPriority;
+				}
+			}
+			if (smallestChildPriority >= priority) {
+				break;
+			}
+			this.place(index, smallestChildPriority, this.nodeIds[smallestChildIndex]);
+			index = smallestChildIndex;
+		}
+		this.place(index, priority, nodeId);
+	}
+
+	private void place(int index, long priority, int nodeId) {
+		this.priorities[index] = priority;
+		this.nodeIds[index] = nodeId;
+		this.heapIndexes[nodeId] = index;
+	}
+}
@@ -0,0 +1,179 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+final class AStarNodeStore<NodeKeyType> {
+	static final int NO_PREDECESSOR = -1;
+	private static final int UNKNOWN_NODE = -2;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final AStarSolver.DenseNodeIdAdapter<NodeKeyType> denseNodeIdAdapter;
+	private Object[] nodeKeys;
+	private int[] predecessorNodeIds;
+	private int[] extraPredecessorHeads;
+	private int[] extraPredecessorNodeIds;
+	private int[] extraPredecessorNexts;
+	private int extraPredecessorCount;
+	// Only used when the node adapter cannot supply dense node IDs. An open addressing hash table of node ID + 1, with 0 marking an empty slot.
+	private int[] internedNodeIdTable;
+	private int internedNodeCount;
+
+	private AStarNodeStore(AStarSolver.DenseNodeIdAdapter<NodeKeyType> denseNodeIdAdapter, int capacity) {
+		this.denseNodeIdAdapter = denseNodeIdAdapter;
+		this.nodeKeys = new Object[capacity];
+		this.predecessorNodeIds = new int[capacity];
+		Arrays.fill(this.predecessorNodeIds, UNKNOWN_NODE);
+		this.extraPredecessorHeads = new int[capacity];
+		this.extraPredecessorNodeIds = new int[16];
+		this.extraPredecessorNexts = new int[16];
+		this.extraPredecessorCount = 0;
+		if (denseNodeIdAdapter == null) {
+			this.internedNodeIdTable = new int[capacity * 2];
+			this.internedNodeCount = 0;
+		}
+	}
+
+	static <NodeKeyType> AStarNodeStore<NodeKeyType> create(Object nodeAdapter) {
+		if (nodeAdapter instanceof AStarSolver.DenseNodeIdAdapter) {
+			@SuppressWarnings("unchecked")
+			AStarSolver.DenseNodeIdAdapter<NodeKeyType> denseNodeIdAdapter = (AStarSolver.DenseNodeIdAdapter<NodeKeyType>) nodeAdapter;
+			int nodeIdCount = denseNodeIdAdapter.getNodeIdCount();
+			if (nodeIdCount >= 0) {
+				return new AStarNodeStore<>(denseNodeIdAdapter, nodeIdCount);
+			}
+		}
+		return new AStarNodeStore<>(null, INITIAL_CAPACITY);
+	}
+
+	int getCapacity() {
+		return this.predecessorNodeIds.length;
+	}
+
+	int getNodeId(NodeKeyType nodeKey) {
+		if (this.denseNodeIdAdapter != null) {
+			int nodeId = this.denseNodeIdAdapter.getNodeId(nodeKey);
+			if (nodeId < 0 || nodeId >= this.nodeKeys.length) {
+				throw new IllegalStateException("Node ID out of range");
+			}
+			return nodeId;
+		}
+		int mask = this.internedNodeIdTable.length - 1;
+		int hashCode = nodeKey.hashCode();
+		int slot = (hashCode ^ (hashCode >>> 16)) & mask;
+		while (true) {
+			int tableEntry = this.internedNodeIdTable[slot];
+			if (tableEntry == 0) {
+				break;
+			}
+			if (this.nodeKeys[tableEntry - 1].equals(nodeKey)) {
+				return tableEntry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int nodeId = this.internedNodeCount++;
+		if (nodeId >= this.nodeKeys.length) {
+			this.grow();
+		}
+		this.nodeKeys[nodeId] = nodeKey;
+		this.internedNodeIdTable[slot] = nodeId + 1;
+		if (this.internedNodeCount * 2 > this.internedNodeIdTable.length) {
+			this.rehash(this.internedNodeIdTable.length * 2);
+		}
+		return nodeId;
+	}
+
+	private void grow() {
+		int oldCapacity = this.nodeKeys.length;
+		int newCapacity = oldCapacity * 2;
+		this.nodeKeys = Arrays.copyOf(this.nodeKeys, newCapacity);
+		this.predecessorNodeIds = Arrays.copyOf(this.predecessorNodeIds, newCapacity);
+		Arrays.fill(this.predecessorNodeIds, oldCapacity, newCapacity, UNKNOWN_NODE);
+		this.extraPredecessorHeads = Arrays.copyOf(this.extraPredecessorHeads, newCapacity);
+	}
+
+	private void rehash(int newTableSize) {
+		int[] newInternedNodeIdTable = new int[newTableSize];
+		int mask = newTableSize - 1;
+		for (int nodeId = 0; nodeId < this.internedNodeCount; nodeId++) {
+			int hashCode = this.nodeKeys[nodeId].hashCode();
+			int slot = (hashCode ^ (hashCode >>> 16)) & mask;
+			while (newInternedNodeIdTable[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			newInternedNodeIdTable[slot] = nodeId + 1;
+		}
+		this.internedNodeIdTable = newInternedNodeIdTable;
+	}
+
+	boolean isKnown(int nodeId) {
+		return this.predecessorNodeIds[nodeId] != UNKNOWN_NODE;
+	}
+
+	void addNode(int nodeId, NodeKeyType nodeKey, int predecessorNodeId) {
+		this.nodeKeys[nodeId] = nodeKey;
+		this.predecessorNodeIds[nodeId] = predecessorNodeId;
+		this.extraPredecessorHeads[nodeId] = NO_PREDECESSOR;
+	}
+
+	@SuppressWarnings("unchecked")
+	NodeKeyType getNodeKey(int nodeId) {
+		return (NodeKeyType) this.nodeKeys[nodeId];
+	}
+
+	int getPredecessorNodeId(int nodeId) {
+		return this.predecessorNodeIds[nodeId];
+	}
+
+	void replacePredecessor(int nodeId, int predecessorNodeId) {
+		this.predecessorNodeIds[nodeId] = predecessorNodeId;
+		// Any entries in the extra predecessor pool that were linked from this node are simply abandoned.
+		this.extraPredecessorHeads[nodeId] = NO_PREDECESSOR;
+	}
+
+	void addPredecessor(int nodeId, int predecessorNodeId) {
+		int extraPredecessorIndex = this.extraPredecessorCount++;
+		if (extraPredecessorIndex >= this.extraPredecessorNodeIds.length) {
+			this.extraPredecessorNodeIds = Arrays.copyOf(this.extraPredecessorNodeIds, this.extraPredecessorNodeIds.length * 2);
+			this.extraPredecessorNexts = Arrays.copyOf(this.extraPredecessorNexts, this.extraPredecessorNexts.length * 2);
+		}
+		this.extraPredecessorNodeIds[extraPredecessorIndex] = predecessorNodeId;
+		this.extraPredecessorNexts[extraPredecessorIndex] = this.extraPredecessorHeads[nodeId];
+		this.extraPredecessorHeads[nodeId] = extraPredecessorIndex;
+	}
+
+	// Builds the AStarSolver nodes for the given node and everything it can be reached from, so that the existing result adapters can be used.
+	<CostType> AStarSolver.Node<NodeKeyType,CostType> createNode(int finalNodeId, IntFunction<CostType> fScoreGetter, IntFunction<CostType> gScoreGetter) {
+		Map<Integer,AStarSolver.Node<NodeKeyType,CostType>> nodesById = new HashMap<>();
+		AStarSolver.Node<NodeKeyType,CostType> finalNode = new AStarSolver.Node<>(this.getNodeKey(finalNodeId), null, fScoreGetter.apply(finalNodeId), gScoreGetter.apply(finalNodeId));
+		nodesById.put(finalNodeId, finalNode);
+		Deque<Integer> nodeIdsToFollow = new ArrayDeque<>();
+		nodeIdsToFollow.addLast(finalNodeId);
+		Integer nodeId;
+		while ((nodeId = nodeIdsToFollow.pollFirst()) != null) {
+			AStarSolver.Node<NodeKeyType,CostType> node = nodesById.get(nodeId);
+			int predecessorNodeId = this.predecessorNodeIds[nodeId];
+			if (predecessorNodeId != NO_PREDECESSOR) {
+				node.addCameFrom(this.getOrCreateNode(nodesById, nodeIdsToFollow, predecessorNodeId, fScoreGetter, gScoreGetter));
+			}
+			for (int extraPredecessorIndex = this.extraPredecessorHeads[nodeId]; extraPredecessorIndex != NO_PREDECESSOR; extraPredecessorIndex = this.extraPredecessorNexts[extraPredecessorIndex]) {
+				node.addCameFrom(this.getOrCreateNode(nodesById, nodeIdsToFollow, this.extraPredecessorNodeIds[extraPredecessorIndex], fScoreGetter, gScoreGetter));
+			}
+		}
+		return finalNode;
+	}
+
+	private <CostType> AStarSolver.Node<NodeKeyType,CostType> getOrCreateNode(Map<Integer,AStarSolver.Node<NodeKeyType,CostType>> nodesById, Deque<Integer> nodeIdsToFollow, int nodeId, IntFunction<CostType> fScoreGetter, IntFunction<CostType> gScoreGetter) {
+		AStarSolver.Node<NodeKeyType,CostType> node = nodesById.get(nodeId);
+		if (node == null) {
+			node = new AStarSolver.Node<>(this.getNodeKey(nodeId), null, fScoreGetter.apply(nodeId), gScoreGetter.apply(nodeId));
+			nodesById.put(nodeId, node);
+			nodeIdsToFollow.addLast(nodeId);
+		}
+		return node;
+	}
+}
@@ -0,0 +1,12 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+// The open set of IntAStarSolver and LongAStarSolver, holding node IDs ordered by priority. Implementations are chosen through AStarSolver.OpenSetStrategy.
+interface AStarOpenSet {
+	boolean isEmpty();
+	int size();
+	// Adds the node, or moves it if it is already in the open set with a different priority.
+	void addOrUpdate(long priority, int nodeId);
+	long peekPriority();
+	int peekNodeId();
+	int poll();
+}
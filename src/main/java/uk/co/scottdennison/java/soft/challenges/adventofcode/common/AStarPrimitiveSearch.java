@@ -0,0 +1,363 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+// The search behind both IntAStarSolver and LongAStarSolver, which keeps the scores of each node in primitive long arrays rather than boxing every cost.
+// IntAStarSolver widens its costs as the node adapter returns them, and each solver supplies how to box a score into its own cost type for the nodes it produces.
+final class AStarPrimitiveSearch<NodeKeyType,CostType> implements Consumer<NodeKeyType> {
+	static final AStarSolver.OpenSetStrategy DEFAULT_OPEN_SET_STRATEGY = AStarSolver.OpenSetStrategy.LAZY_BINARY_HEAP;
+	private static final int NO_NODE = -1;
+
+	// Only used while AStarStatistics are being recorded.
+	private static final class TimedLongNodeAdapter<NodeKeyType> implements LongAStarSolver.LongNodeAdapter<NodeKeyType> {
+		private final LongAStarSolver.LongNodeAdapter<NodeKeyType> nodeAdapter;
+		private final AStarStatistics.Recorder statisticsRecorder;
+
+		private TimedLongNodeAdapter(LongAStarSolver.LongNodeAdapter<NodeKeyType> nodeAdapter, AStarStatistics.Recorder statisticsRecorder) {
+			this.nodeAdapter = nodeAdapter;
+			this.statisticsRecorder = statisticsRecorder;
+		}
+
+		@Override
+		public void getLinkedNodeKeys(NodeKeyType fromNodeKey, Consumer<NodeKeyType> linkedNodeKeyConsumer) {
+			this.statisticsRecorder.startNodeAdapterCall();
+			this.nodeAdapter.getLinkedNodeKeys(fromNodeKey, linkedNodeKey -> {
+				// The solver's own handling of each linked node is not counted as node adapter time.
+				this.statisticsRecorder.finishNodeAdapterCall();
+				linkedNodeKeyConsumer.accept(linkedNodeKey);
+				this.statisticsRecorder.startNodeAdapterCall();
+			});
+			this.statisticsRecorder.finishNodeAdapterCall();
+		}
+
+		@Override
+		public long getCostOfMovingBetweenLinkedNodes(NodeKeyType linkedFromNodeKey, NodeKeyType linkedToNodeKey) {
+			this.statisticsRecorder.startNodeAdapterCall();
+			long cost = this.nodeAdapter.getCostOfMovingBetweenLinkedNodes(linkedFromNodeKey, linkedToNodeKey);
+			this.statisticsRecorder.finishNodeAdapterCall();
+			return cost;
+		}
+
+		@Override
+		public long getCostEstimateOfMovingBetweenNodes(NodeKeyType fromNodeKey, NodeKeyType toNodeKey) {
+			this.statisticsRecorder.startNodeAdapterCall();
+			long costEstimate = this.nodeAdapter.getCostEstimateOfMovingBetweenNodes(fromNodeKey, toNodeKey);
+			this.statisticsRecorder.finishNodeAdapterCall();
+			return costEstimate;
+		}
+
+		@Override
+		public boolean isValidEndingNode(NodeKeyType nodeKey) {
+			this.statisticsRecorder.startNodeAdapterCall();
+			boolean validEndingNode = this.nodeAdapter.isValidEndingNode(nodeKey);
+			this.statisticsRecorder.finishNodeAdapterCall();
+			return validEndingNode;
+		}
+	}
+
+	private final LongAStarSolver.LongNodeAdapter<NodeKeyType> nodeAdapter;
+	private final LongFunction<CostType> costBoxer;
+	// Null unless AStarStatistics are being recorded.
+	private final AStarStatistics.Recorder statisticsRecorder;
+	// The node the cost estimates are made towards, or null if no cost estimates are to be used.
+	private final NodeKeyType estimateTowardsNodeKey;
+	// A reverse search follows links backwards, from the end of the route towards the start.
+	private final boolean reverse;
+	private final AStarNodeStore<NodeKeyType> nodeStore;
+	private final AStarOpenSet openSet;
+	private boolean allRoutesNeeded;
+	private long[] gScores;
+	private long[] hScores;
+	private int currentNodeId;
+	private NodeKeyType currentNodeKey;
+	private long currentGScore;
+	// Only set for a bidirectional search.
+	private AStarPrimitiveSearch<NodeKeyType,CostType> oppositeSearch;
+	private long bestMeetingCost = Long.MAX_VALUE;
+	private int bestMeetingNodeId = NO_NODE;
+	private int bestMeetingOppositeNodeId = NO_NODE;
+
+	private AStarPrimitiveSearch(LongAStarSolver.LongNodeAdapter<NodeKeyType> nodeAdapter, LongFunction<CostType> costBoxer, AStarStatistics.Recorder statisticsRecorder, AStarNodeStore<NodeKeyType> nodeStore, NodeKeyType estimateTowardsNodeKey, boolean reverse, AStarSolver.OpenSetStrategy openSetStrategy) {
+		this.nodeAdapter = statisticsRecorder == null ? nodeAdapter : new TimedLongNodeAdapter<>(nodeAdapter, statisticsRecorder);
+		this.costBoxer = costBoxer;
+		this.statisticsRecorder = statisticsRecorder;
+		this.estimateTowardsNodeKey = estimateTowardsNodeKey;
+		this.reverse = reverse;
+		this.nodeStore = nodeStore;
+		this.openSet = openSetStrategy.createOpenSet();
+		this.gScores = new long[nodeStore.getCapacity()];
+		this.hScores = new long[nodeStore.getCapacity()];
+	}
+
+	private int getNodeId(NodeKeyType nodeKey) {
+		int nodeId = this.nodeStore.getNodeId(nodeKey);
+		if (nodeId >= this.gScores.length) {
+			int capacity = this.nodeStore.getCapacity();
+			this.gScores = Arrays.copyOf(this.gScores, capacity);
+			this.hScores = Arrays.copyOf(this.hScores, capacity);
+		}
+		return nodeId;
+	}
+
+	private long getCostEstimate(NodeKeyType nodeKey) {
+		if (this.estimateTowardsNodeKey == null) {
+			return 0L;
+		}
+		else if (this.reverse) {
+			return this.nodeAdapter.getCostEstimateOfMovingBetweenNodes(this.estimateTowardsNodeKey, nodeKey);
+		}
+		else {
+			return this.nodeAdapter.getCostEstimateOfMovingBetweenNodes(nodeKey, this.estimateTowardsNodeKey);
+		}
+	}
+
+	private int start(NodeKeyType fromNodeKey) {
+		int fromNodeId = this.getNodeId(fromNodeKey);
+		this.nodeStore.addNode(fromNodeId, fromNodeKey, AStarNodeStore.NO_PREDECESSOR);
+		this.gScores[fromNodeId] = 0L;
+		this.hScores[fromNodeId] = this.getCostEstimate(fromNodeKey);
+		this.openSet.addOrUpdate(this.hScores[fromNodeId], fromNodeId);
+		if (this.statisticsRecorder != null) {
+			this.statisticsRecorder.knownNodeCount++;
+			this.statisticsRecorder.recordOpenSetSize(this.openSet.size());
+		}
+		return fromNodeId;
+	}
+
+	private boolean isCurrent(long priority, int nodeId) {
+		// If not, the node has since been added again with a better score. Only the lazy binary heap leaves such entries behind.
+		return priority == this.gScores[nodeId] + this.hScores[nodeId];
+	}
+
+	private int pollNodeId() {
+		while (!this.openSet.isEmpty()) {
+			long priority = this.openSet.peekPriority();
+			int nodeId = this.openSet.poll();
+			if (this.isCurrent(priority, nodeId)) {
+				return nodeId;
+			}
+		}
+		return NO_NODE;
+	}
+
+	private long peekPriority() {
+		while (!this.openSet.isEmpty()) {
+			long priority = this.openSet.peekPriority();
+			if (this.isCurrent(priority, this.openSet.peekNodeId())) {
+				return priority;
+			}
+			this.openSet.poll();
+		}
+		return Long.MAX_VALUE;
+	}
+
+	private void expand(int nodeId) {
+		if (this.statisticsRecorder != null) {
+			this.statisticsRecorder.expandedNodeCount++;
+		}
+		this.currentNodeId = nodeId;
+		this.currentNodeKey = this.nodeStore.getNodeKey(nodeId);
+		this.currentGScore = this.gScores[nodeId];
+		this.nodeAdapter.getLinkedNodeKeys(this.currentNodeKey, this);
+	}
+
+	private AStarSolver.Node<NodeKeyType,CostType> createNode(int nodeId) {
+		return this.nodeStore.createNode(nodeId, id -> this.costBoxer.apply(this.gScores[id] + this.hScores[id]), id -> this.costBoxer.apply(this.gScores[id]));
+	}
+
+	private <ResultType> ResultType run(AStarSolver.FullResultAdapter<NodeKeyType,CostType,ResultType> resultAdapter, NodeKeyType fromNodeKey) {
+		this.allRoutesNeeded = resultAdapter.isAllRoutesNeeded();
+		this.start(fromNodeKey);
+		int nodeId;
+		while ((nodeId = this.pollNodeId()) != NO_NODE) {
+			if (this.hScores[nodeId] == 0L && this.nodeAdapter.isValidEndingNode(this.nodeStore.getNodeKey(nodeId))) {
+				return resultAdapter.produceForSolution(this.createNode(nodeId));
+			}
+			this.expand(nodeId);
+		}
+		return resultAdapter.produceForNoSolution();
+	}
+
+	private <ResultType> Map<NodeKeyType,ResultType> runToTargets(AStarSolver.FullResultAdapter<NodeKeyType,CostType,ResultType> resultAdapter, NodeKeyType fromNodeKey, Collection<NodeKeyType> toNodeKeys) {
+		this.allRoutesNeeded = resultAdapter.isAllRoutesNeeded();
+		BitSet unreachedTargetNodeIds = new BitSet();
+		for (NodeKeyType toNodeKey : toNodeKeys) {
+			unreachedTargetNodeIds.set(this.getNodeId(toNodeKey));
+		}
+		Map<NodeKeyType,ResultType> reachedTargetResults = new HashMap<>();
+		this.start(fromNodeKey);
+		int nodeId;
+		while (!unreachedTargetNodeIds.isEmpty() && (nodeId = this.pollNodeId()) != NO_NODE) {
+			if (unreachedTargetNodeIds.get(nodeId)) {
+				unreachedTargetNodeIds.clear(nodeId);
+				reachedTargetResults.put(this.nodeStore.getNodeKey(nodeId), resultAdapter.produceForSolution(this.createNode(nodeId)));
+			}
+			this.expand(nodeId);
+		}
+		Map<NodeKeyType,ResultType> results = new LinkedHashMap<>();
+		for (NodeKeyType toNodeKey : toNodeKeys) {
+			ResultType result = reachedTargetResults.get(toNodeKey);
+			results.put(toNodeKey, result == null ? resultAdapter.produceForNoSolution() : result);
+		}
+		return results;
+	}
+
+	private void checkForMeeting(int nodeId, NodeKeyType nodeKey) {
+		int oppositeNodeId = this.oppositeSearch.getNodeId(nodeKey);
+		if (this.oppositeSearch.nodeStore.isKnown(oppositeNodeId)) {
+			long meetingCost = this.gScores[nodeId] + this.oppositeSearch.gScores[oppositeNodeId];
+			if (meetingCost < this.bestMeetingCost) {
+				this.bestMeetingCost = meetingCost;
+				this.bestMeetingNodeId = nodeId;
+				this.bestMeetingOppositeNodeId = oppositeNodeId;
+			}
+		}
+	}
+
+	// Returns the node IDs from the start of the search to the given node.
+	private List<Integer> getRouteNodeIds(int nodeId) {
+		List<Integer> routeNodeIds = new ArrayList<>();
+		for (int routeNodeId = nodeId; routeNodeId != AStarNodeStore.NO_PREDECESSOR; routeNodeId = this.nodeStore.getPredecessorNodeId(routeNodeId)) {
+			routeNodeIds.add(routeNodeId);
+		}
+		Collections.reverse(routeNodeIds);
+		return routeNodeIds;
+	}
+
+	@Override
+	public void accept(NodeKeyType linkedNodeKey) {
+		if (this.statisticsRecorder != null) {
+			this.statisticsRecorder.generatedNodeCount++;
+		}
+		int linkedNodeId = this.getNodeId(linkedNodeKey);
+		long potentialGScore = this.currentGScore + (this.reverse ? this.nodeAdapter.getCostOfMovingBetweenLinkedNodes(linkedNodeKey, this.currentNodeKey) : this.nodeAdapter.getCostOfMovingBetweenLinkedNodes(this.currentNodeKey, linkedNodeKey));
+		if (!this.nodeStore.isKnown(linkedNodeId)) {
+			this.nodeStore.addNode(linkedNodeId, linkedNodeKey, this.currentNodeId);
+			this.gScores[linkedNodeId] = potentialGScore;
+			this.hScores[linkedNodeId] = this.getCostEstimate(linkedNodeKey);
+			this.openSet.addOrUpdate(potentialGScore + this.hScores[linkedNodeId], linkedNodeId);
+			if (this.statisticsRecorder != null) {
+				this.statisticsRecorder.knownNodeCount++;
+				this.statisticsRecorder.recordOpenSetSize(this.openSet.size());
+			}
+		}
+		else {
+			long linkedGScore = this.gScores[linkedNodeId];
+			if (potentialGScore == linkedGScore) {
+				if (this.allRoutesNeeded) {
+					this.nodeStore.addPredecessor(linkedNodeId, this.currentNodeId);
+				}
+				return;
+			}
+			else if (potentialGScore < linkedGScore) {
+				this.nodeStore.replacePredecessor(linkedNodeId, this.currentNodeId);
+				this.gScores[linkedNodeId] = potentialGScore;
+				this.openSet.addOrUpdate(potentialGScore + this.hScores[linkedNodeId], linkedNodeId);
+				if (this.statisticsRecorder != null) {
+					this.statisticsRecorder.improvedNodeCount++;
+					this.statisticsRecorder.recordOpenSetSize(this.openSet.size());
+				}
+			}
+			else {
+				return;
+			}
+		}
+		if (this.oppositeSearch != null) {
+			this.checkForMeeting(linkedNodeId, linkedNodeKey);
+		}
+	}
+
+
+	static <NodeKeyType,CostType,ResultType> ResultType run(LongAStarSolver.LongNodeAdapter<NodeKeyType> nodeAdapter, Object nodeIdAdapter, LongFunction<CostType> costBoxer, AStarSolver.FullResultAdapter<NodeKeyType,CostType,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey, AStarSolver.OpenSetStrategy openSetStrategy) {
+		AStarStatistics.Recorder statisticsRecorder = AStarStatistics.startRecording();
+		try {
+			return new AStarPrimitiveSearch<>(nodeAdapter, costBoxer, statisticsRecorder, AStarNodeStore.create(nodeIdAdapter), toNodeKey, false, openSetStrategy).run(resultAdapter, fromNodeKey);
+		}
+		finally {
+			if (statisticsRecorder != null) {
+				statisticsRecorder.finish();
+			}
+		}
+	}
+
+	static <NodeKeyType,CostType,ResultType> Map<NodeKeyType,ResultType> runToTargets(LongAStarSolver.LongNodeAdapter<NodeKeyType> nodeAdapter, Object nodeIdAdapter, LongFunction<CostType> costBoxer, AStarSolver.FullResultAdapter<NodeKeyType,CostType,ResultType> resultAdapter, NodeKeyType fromNodeKey, Collection<NodeKeyType> toNodeKeys, AStarSolver.OpenSetStrategy openSetStrategy) {
+		AStarStatistics.Recorder statisticsRecorder = AStarStatistics.startRecording();
+		try {
+			return new AStarPrimitiveSearch<>(nodeAdapter, costBoxer, statisticsRecorder, AStarNodeStore.create(nodeIdAdapter), null, false, openSetStrategy).runToTargets(resultAdapter, fromNodeKey, toNodeKeys);
+		}
+		finally {
+			if (statisticsRecorder != null) {
+				statisticsRecorder.finish();
+			}
+		}
+	}
+
+	static <NodeKeyType,CostType,ResultType> ResultType runBidirectional(LongAStarSolver.LongNodeAdapter<NodeKeyType> nodeAdapter, Object nodeIdAdapter, LongFunction<CostType> costBoxer, AStarSolver.FullResultAdapter<NodeKeyType,CostType,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey, AStarSolver.OpenSetStrategy openSetStrategy) {
+		// Both directions record into the same statistics, as a single search.
+		AStarStatistics.Recorder statisticsRecorder = AStarStatistics.startRecording();
+		try {
+			return runBidirectional(nodeAdapter, nodeIdAdapter, costBoxer, statisticsRecorder, resultAdapter, fromNodeKey, toNodeKey, openSetStrategy);
+		}
+		finally {
+			if (statisticsRecorder != null) {
+				statisticsRecorder.finish();
+			}
+		}
+	}
+
+	private static <NodeKeyType,CostType,ResultType> ResultType runBidirectional(LongAStarSolver.LongNodeAdapter<NodeKeyType> nodeAdapter, Object nodeIdAdapter, LongFunction<CostType> costBoxer, AStarStatistics.Recorder statisticsRecorder, AStarSolver.FullResultAdapter<NodeKeyType,CostType,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey, AStarSolver.OpenSetStrategy openSetStrategy) {
+		AStarPrimitiveSearch<NodeKeyType,CostType> forwardSearch = new AStarPrimitiveSearch<>(nodeAdapter, costBoxer, statisticsRecorder, AStarNodeStore.create(nodeIdAdapter), toNodeKey, false, openSetStrategy);
+		AStarPrimitiveSearch<NodeKeyType,CostType> reverseSearch = new AStarPrimitiveSearch<>(nodeAdapter, costBoxer, statisticsRecorder, AStarNodeStore.create(nodeIdAdapter), fromNodeKey, true, openSetStrategy);
+		forwardSearch.oppositeSearch = reverseSearch;
+		reverseSearch.oppositeSearch = forwardSearch;
+		int fromNodeId = forwardSearch.start(fromNodeKey);
+		reverseSearch.start(toNodeKey);
+		forwardSearch.checkForMeeting(fromNodeId, fromNodeKey);
+		while (true) {
+			long forwardPriority = forwardSearch.peekPriority();
+			long reversePriority = reverseSearch.peekPriority();
+			// Each side's lowest f score is a lower bound on any route not yet found, so once either reaches the best meeting cost, that route is the cheapest.
+			long bestMeetingCost = Math.min(forwardSearch.bestMeetingCost, reverseSearch.bestMeetingCost);
+			if (forwardPriority == Long.MAX_VALUE || reversePriority == Long.MAX_VALUE || Math.max(forwardPriority, reversePriority) >= bestMeetingCost) {
+				break;
+			}
+			AStarPrimitiveSearch<NodeKeyType,CostType> search = forwardPriority <= reversePriority ? forwardSearch : reverseSearch;
+			search.expand(search.pollNodeId());
+		}
+		int forwardMeetingNodeId;
+		int reverseMeetingNodeId;
+		if (forwardSearch.bestMeetingCost <= reverseSearch.bestMeetingCost) {
+			forwardMeetingNodeId = forwardSearch.bestMeetingNodeId;
+			reverseMeetingNodeId = forwardSearch.bestMeetingOppositeNodeId;
+		}
+		else {
+			forwardMeetingNodeId = reverseSearch.bestMeetingOppositeNodeId;
+			reverseMeetingNodeId = reverseSearch.bestMeetingNodeId;
+		}
+		if (forwardMeetingNodeId == NO_NODE) {
+			return resultAdapter.produceForNoSolution();
+		}
+		long routeCost = forwardSearch.gScores[forwardMeetingNodeId] + reverseSearch.gScores[reverseMeetingNodeId];
+		AStarSolver.Node<NodeKeyType,CostType> node = null;
+		for (int nodeId : forwardSearch.getRouteNodeIds(forwardMeetingNodeId)) {
+			long gScore = forwardSearch.gScores[nodeId];
+			node = new AStarSolver.Node<>(forwardSearch.nodeStore.getNodeKey(nodeId), node, costBoxer.apply(gScore + forwardSearch.hScores[nodeId]), costBoxer.apply(gScore));
+		}
+		for (int nodeId = reverseSearch.nodeStore.getPredecessorNodeId(reverseMeetingNodeId); nodeId != AStarNodeStore.NO_PREDECESSOR; nodeId = reverseSearch.nodeStore.getPredecessorNodeId(nodeId)) {
+			NodeKeyType nodeKey = reverseSearch.nodeStore.getNodeKey(nodeId);
+			long gScore = routeCost - reverseSearch.gScores[nodeId];
+			node = new AStarSolver.Node<>(nodeKey, node, costBoxer.apply(gScore + nodeAdapter.getCostEstimateOfMovingBetweenNodes(nodeKey, toNodeKey)), costBoxer.apply(gScore));
+		}
+		return resultAdapter.produceForSolution(node);
+	}
+}
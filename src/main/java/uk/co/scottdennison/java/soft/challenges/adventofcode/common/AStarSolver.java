@@ -3,6 +3,8 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
@@ -10,9 +12,9 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -25,6 +27,11 @@ public class AStarSolver {
 		Comparator<CostType> getComparator();
 		CostType getZeroCost();
 
+		// Only needed for OpenSetStrategy.BUCKET_QUEUE, which files each node under its cost as a small non-negative integer.
+		default long getBucketIndex(CostType cost) {
+			throw new UnsupportedOperationException("This cost type cannot be used with a bucket queue");
+		}
+
 		public static final class CommonTypes {
 			public static final class Of {
 				private static abstract class AbstractComparableCostAdapter<T extends Comparable<T>> implements CostAdapter<T> {
@@ -48,6 +55,11 @@ public class AStarSolver {
 					public java.lang.Integer getZeroCost() {
 						return 0;
 					}
+
+					@Override
+					public long getBucketIndex(java.lang.Integer cost) {
+						return cost;
+					}
 				}
 
 				public static final class Long extends AbstractComparableCostAdapter<java.lang.Long> {
@@ -64,6 +76,11 @@ public class AStarSolver {
 					public java.lang.Long getZeroCost() {
 						return 0L;
 					}
+
+					@Override
+					public long getBucketIndex(java.lang.Long cost) {
+						return cost;
+					}
 				}
 
 				public static final class Float extends AbstractComparableCostAdapter<java.lang.Float> {
@@ -144,7 +161,14 @@ public class AStarSolver {
 		boolean isValidEndingNode(NodeKeyType nodeKey);
 	}
 
-	public final static class PointNodeAdapter<CostType> implements NodeAdapter<PointNodeAdapter.Point,CostType> {
+	// Can be implemented alongside a NodeAdapter to let the solvers index their per-node state directly, rather than having to assign IDs to node keys as they are found.
+	public static interface DenseNodeIdAdapter<NodeKeyType> {
+		// Returns -1 if the node keys cannot be given IDs that fit in an int.
+		int getNodeIdCount();
+		int getNodeId(NodeKeyType nodeKey);
+	}
+
+	public final static class PointNodeAdapter<CostType> implements NodeAdapter<PointNodeAdapter.Point,CostType>, DenseNodeIdAdapter<PointNodeAdapter.Point> {
 		@FunctionalInterface
 		public static interface CanMoveAdapter {
 			boolean canMoveBetweenLinkedPoints(Point linkedFromPoint, Point linkedToPoint);
@@ -552,10 +576,223 @@ public class AStarSolver {
 		public boolean isValidEndingNode(Point nodeKey) {
 			return true;
 		}
+
+		@Override
+		public int getNodeIdCount() {
+			long nodeIdCount = ((long) maxY - minY + 1) * ((long) maxX - minX + 1);
+			if (nodeIdCount > Integer.MAX_VALUE) {
+				return -1;
+			}
+			return (int) nodeIdCount;
+		}
+
+		@Override
+		public int getNodeId(Point nodeKey) {
+			return (nodeKey.getY() - minY) * (maxX - minX + 1) + (nodeKey.getX() - minX);
+		}
+	}
+
+	public static final class OpenSetStrategy {
+		private static enum Kind {
+			LAZY_BINARY_HEAP,
+			INDEXED_HEAP,
+			BUCKET_QUEUE
+		}
+
+		// Re-adds a node whose cost improves rather than moving it, leaving the old entry to be skipped. AStarSolver cannot leave a node in its heap while changing its cost, so uses an indexed binary heap instead.
+		public static final OpenSetStrategy LAZY_BINARY_HEAP = new OpenSetStrategy(Kind.LAZY_BINARY_HEAP, 2);
+		public static final OpenSetStrategy INDEXED_BINARY_HEAP = new OpenSetStrategy(Kind.INDEXED_HEAP, 2);
+		public static final OpenSetStrategy INDEXED_QUATERNARY_HEAP = new OpenSetStrategy(Kind.INDEXED_HEAP, 4);
+		// Only for costs that are small non-negative integers.
+		public static final OpenSetStrategy BUCKET_QUEUE = new OpenSetStrategy(Kind.BUCKET_QUEUE, 0);
+
+		private final Kind kind;
+		private final int arity;
+
+		private OpenSetStrategy(Kind kind, int arity) {
+			this.kind = kind;
+			this.arity = arity;
+		}
+
+		public static OpenSetStrategy createIndexedHeapWithArity(int arity) {
+			if (arity < 2) {
+				throw new IllegalArgumentException("Heap arity must be at least 2");
+			}
+			return new OpenSetStrategy(Kind.INDEXED_HEAP, arity);
+		}
+
+		AStarOpenSet createOpenSet() {
+			switch (this.kind) {
+				case LAZY_BINARY_HEAP:
+					return new AStarBinaryHeap();
+				case INDEXED_HEAP:
+					return new AStarIndexedHeap(this.arity);
+				case BUCKET_QUEUE:
+					return new AStarBucketQueue();
+				default:
+					throw new IllegalStateException("Unexpected open set kind " + this.kind);
+			}
+		}
+
+		private <NodeKeyType,CostType> NodeOpenSet<NodeKeyType,CostType> createNodeOpenSet(CostAdapter<CostType> costAdapter) {
+			if (this.kind == Kind.BUCKET_QUEUE) {
+				return new NodeBucketQueue<>(costAdapter);
+			}
+			else {
+				return new NodeIndexedHeap<>(costAdapter.getComparator(), this.arity);
+			}
+		}
+	}
+
+	private static interface NodeOpenSet<NodeKeyType,CostType> {
+		boolean isEmpty();
+		int size();
+		// Adds the node, or moves it if it is already in the open set and its f score has changed.
+		void addOrUpdate(Node<NodeKeyType,CostType> node);
+		Node<NodeKeyType,CostType> poll();
+	}
+
+	private static final class NodeIndexedHeap<NodeKeyType,CostType> implements NodeOpenSet<NodeKeyType,CostType> {
+		private final Comparator<CostType> costTypeComparator;
+		private final int arity;
+		private Node<NodeKeyType,CostType>[] nodes;
+		private int size;
+
+		private NodeIndexedHeap(Comparator<CostType> costTypeComparator, int arity) {
+			this.costTypeComparator = costTypeComparator;
+			this.arity = arity;
+			@SuppressWarnings("unchecked")
+			Node<NodeKeyType,CostType>[] nodes = (Node<NodeKeyType,CostType>[]) new Node<?,?>[1024];
+			this.nodes = nodes;
+			this.size = 0;
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return this.size == 0;
+		}
+
+		@Override
+		public int size() {
+			return this.size;
+		}
+
+		@Override
+		public void addOrUpdate(Node<NodeKeyType,CostType> node) {
+			int index = node.openSetIndex;
+			if (index == Node.NOT_IN_OPEN_SET) {
+				if (this.size == this.nodes.length) {
+					this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+				}
+				this.siftUp(this.size++, node);
+			}
+			else {
+				this.siftUp(index, node);
+				this.siftDown(node.openSetIndex, node);
+			}
+		}
+
+		@Override
+		public Node<NodeKeyType,CostType> poll() {
+			Node<NodeKeyType,CostType> polledNode = this.nodes[0];
+			polledNode.openSetIndex = Node.NOT_IN_OPEN_SET;
+			int lastIndex = --this.size;
+			Node<NodeKeyType,CostType> lastNode = this.nodes[lastIndex];
+			this.nodes[lastIndex] = null;
+			if (lastIndex > 0) {
+				this.siftDown(0, lastNode);
+			}
+			return polledNode;
+		}
+
+		private void siftUp(int index, Node<NodeKeyType,CostType> node) {
+			while (index > 0) {
+				int parentIndex = (index - 1) / this.arity;
+				Node<NodeKeyType,CostType> parentNode = this.nodes[parentIndex];
+				if (this.costTypeComparator.compare(parentNode.getFScore(), node.getFScore()) <= 0) {
+					break;
+				}
+				this.place(index, parentNode);
+				index = parentIndex;
+			}
+			this.place(index, node);
+		}
+
+		private void siftDown(int index, Node<NodeKeyType,CostType> node) {
+			while (true) {
+				int firstChildIndex = index * this.arity + 1;
+				if (firstChildIndex >= this.size) {
+					break;
+				}
+				int lastChildIndex = Math.min(firstChildIndex + this.arity, this.size);
+				Node<NodeKeyType,CostType> smallestChildNode = this.nodes[firstChildIndex];
+				int smallestChildIndex = firstChildIndex;
+				for (int childIndex = firstChildIndex + 1; childIndex < lastChildIndex; childIndex++) {
+					Node<NodeKeyType,CostType> childNode = this.nodes[childIndex];
+					if (this.costTypeComparator.compare(childNode.getFScore(), smallestChildNode.getFScore()) < 0) {
+						smallestChildNode = childNode;
+						smallestChildIndex = childIndex;
+					}
+				}
+				if (this.costTypeComparator.compare(smallestChildNode.getFScore(), node.getFScore()) >= 0) {
+					break;
+				}
+				this.place(index, smallestChildNode);
+				index = smallestChildIndex;
+			}
+			this.place(index, node);
+		}
+
+		private void place(int index, Node<NodeKeyType,CostType> node) {
+			this.nodes[index] = node;
+			node.openSetIndex = index;
+		}
+	}
+
+	private static final class NodeBucketQueue<NodeKeyType,CostType> implements NodeOpenSet<NodeKeyType,CostType> {
+		private final CostAdapter<CostType> costAdapter;
+		private final AStarBucketQueue bucketQueue;
+		private final List<Node<NodeKeyType,CostType>> nodesById;
+
+		private NodeBucketQueue(CostAdapter<CostType> costAdapter) {
+			this.costAdapter = costAdapter;
+			this.bucketQueue = new AStarBucketQueue();
+			this.nodesById = new ArrayList<>();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return this.bucketQueue.isEmpty();
+		}
+
+		@Override
+		public int size() {
+			return this.bucketQueue.size();
+		}
+
+		@Override
+		public void addOrUpdate(Node<NodeKeyType,CostType> node) {
+			// The bucket queue works on node IDs, so each node is given one the first time it is added.
+			if (node.openSetIndex == Node.NOT_IN_OPEN_SET) {
+				node.openSetIndex = this.nodesById.size();
+				this.nodesById.add(node);
+			}
+			this.bucketQueue.addOrUpdate(this.costAdapter.getBucketIndex(node.getFScore()), node.openSetIndex);
+		}
+
+		@Override
+		public Node<NodeKeyType,CostType> poll() {
+			return this.nodesById.get(this.bucketQueue.poll());
+		}
 	}
 
 	public static interface SolutionResultAdapter<NodeKeyType,CostType,ResultType> {
 		ResultType produceForSolution(Node<NodeKeyType,CostType> finalNode);
+
+		// Whether the result looks at every equally cheap route to the final node, rather than just the cost or any one route. If not, the solvers only keep one predecessor per node.
+		default boolean isAllRoutesNeeded() {
+			return true;
+		}
 	}
 
 	public static interface NoSolutionResultAdapter<ResultType> {
@@ -580,6 +817,11 @@ public class AStarSolver {
 		public Optional<ResultType> produceForNoSolution() {
 			return Optional.empty();
 		}
+
+		@Override
+		public boolean isAllRoutesNeeded() {
+			return this.childSolutionResultAdapter.isAllRoutesNeeded();
+		}
 	}
 
 	public static final class ThrowingResultAdapter<NodeKeyType,CostType,ResultType> implements FullResultAdapter<NodeKeyType,CostType,ResultType> {
@@ -598,6 +840,11 @@ public class AStarSolver {
 		public ResultType produceForNoSolution() {
 			throw new IllegalStateException("No solution found.");
 		}
+
+		@Override
+		public boolean isAllRoutesNeeded() {
+			return this.childSolutionResultAdapter.isAllRoutesNeeded();
+		}
 	}
 
 	public static final class CostOnlyResultAdapter<NodeKeyType,CostType> implements SolutionResultAdapter<NodeKeyType,CostType,CostType> {
@@ -605,6 +852,11 @@ public class AStarSolver {
 		public CostType produceForSolution(Node<NodeKeyType, CostType> finalNode) {
 			return finalNode.getFScore();
 		}
+
+		@Override
+		public boolean isAllRoutesNeeded() {
+			return false;
+		}
 	}
 
 	public static final class CostIncludingResultAdapter<NodeKeyType,CostType,ResultType> implements SolutionResultAdapter<NodeKeyType,CostType, CostIncludingResultAdapter.CostAdaptedResult<CostType,ResultType>> {
@@ -636,6 +888,11 @@ public class AStarSolver {
 		public CostAdaptedResult<CostType,ResultType> produceForSolution(Node<NodeKeyType, CostType> finalNode) {
 			return new CostAdaptedResult<>(finalNode.getFScore(),this.childSolutionResultAdapter.produceForSolution(finalNode));
 		}
+
+		@Override
+		public boolean isAllRoutesNeeded() {
+			return this.childSolutionResultAdapter.isAllRoutesNeeded();
+		}
 	}
 
 	public static final class SingleRouteResultAdapter<NodeKeyType,CostType> implements SolutionResultAdapter<NodeKeyType,CostType,NodeKeyType[]> {
@@ -672,6 +929,11 @@ public class AStarSolver {
 			NodeKeyType[] stepsArray = steps.toArray((NodeKeyType[]) Array.newInstance(this.nodeKeyTypeClass,steps.size()));
 			return stepsArray;
 		}
+
+		@Override
+		public boolean isAllRoutesNeeded() {
+			return this.multiplePossibleRoutesBehaviour == MultiplePossibleRoutesBehaviour.THROW_EXCEPTION;
+		}
 	}
 
 	public static final class LinkagesRouteResultAdapter<NodeKeyType,MapKeyType,CostType> implements SolutionResultAdapter<NodeKeyType,CostType,Map<MapKeyType,Set<MapKeyType>>> {
@@ -704,20 +966,21 @@ public class AStarSolver {
 		}
 	}
 
-	private static class Node<NodeKeyType,CostType> {
+	static class Node<NodeKeyType,CostType> {
+		private static final int NOT_IN_OPEN_SET = -1;
+
 		private final NodeKeyType nodeKey;
-		private Set<Node<NodeKeyType,CostType>> cameFrom;
+		// Most nodes are only reached one way, so the first predecessor is held directly and a list is only created for any others.
+		private Node<NodeKeyType,CostType> cameFrom;
+		private List<Node<NodeKeyType,CostType>> extraCameFrom;
 		private CostType fScore;
 		private CostType gScore;
+		// Owned by the open set the node is put in.
+		private int openSetIndex = NOT_IN_OPEN_SET;
 
-		private Node(NodeKeyType nodeKey, Node<NodeKeyType,CostType> cameFrom, CostType fScore, CostType gScore) {
+		Node(NodeKeyType nodeKey, Node<NodeKeyType,CostType> cameFrom, CostType fScore, CostType gScore) {
 			this.nodeKey = nodeKey;
-			if (cameFrom == null) {
-				this.cameFrom = new HashSet<>();
-			}
-			else {
-				this.cameFrom = new HashSet<>(Collections.singleton(cameFrom));
-			}
+			this.cameFrom = cameFrom;
 			this.fScore = fScore;
 			this.gScore = gScore;
 		}
@@ -727,7 +990,18 @@ public class AStarSolver {
 		}
 
 		public Iterator<Node<NodeKeyType,CostType>> iterateCameFrom() {
-			return Collections.unmodifiableSet(this.cameFrom).iterator();
+			if (this.cameFrom == null) {
+				return Collections.emptyIterator();
+			}
+			else if (this.extraCameFrom == null) {
+				return Collections.singleton(this.cameFrom).iterator();
+			}
+			else {
+				List<Node<NodeKeyType,CostType>> allCameFrom = new ArrayList<>(this.extraCameFrom.size() + 1);
+				allCameFrom.add(this.cameFrom);
+				allCameFrom.addAll(this.extraCameFrom);
+				return Collections.unmodifiableList(allCameFrom).iterator();
+			}
 		}
 
 		public CostType getFScore() {
@@ -747,53 +1021,201 @@ public class AStarSolver {
 		}
 
 		public void replaceCameFrom(Node<NodeKeyType,CostType> cameFrom) {
-			this.cameFrom.clear();
-			this.cameFrom.add(cameFrom);
+			this.cameFrom = cameFrom;
+			this.extraCameFrom = null;
 		}
 
 		public void addCameFrom(Node<NodeKeyType,CostType> cameFrom) {
-			this.cameFrom.add(cameFrom);
+			if (this.cameFrom == null) {
+				this.cameFrom = cameFrom;
+			}
+			else if (this.cameFrom != cameFrom) {
+				if (this.extraCameFrom == null) {
+					this.extraCameFrom = new ArrayList<>(2);
+				}
+				else if (this.extraCameFrom.contains(cameFrom)) {
+					return;
+				}
+				this.extraCameFrom.add(cameFrom);
+			}
+		}
+	}
+
+	// Only used while AStarStatistics are being recorded.
+	private static final class TimedNodeAdapter<NodeKeyType,CostType> implements NodeAdapter<NodeKeyType,CostType> {
+		private final NodeAdapter<NodeKeyType,CostType> nodeAdapter;
+		private final AStarStatistics.Recorder statisticsRecorder;
+
+		private TimedNodeAdapter(NodeAdapter<NodeKeyType,CostType> nodeAdapter, AStarStatistics.Recorder statisticsRecorder) {
+			this.nodeAdapter = nodeAdapter;
+			this.statisticsRecorder = statisticsRecorder;
+		}
+
+		@Override
+		public void getLinkedNodeKeys(NodeKeyType fromNodeKey, Consumer<NodeKeyType> linkedNodeKeyConsumer) {
+			this.statisticsRecorder.startNodeAdapterCall();
+			this.nodeAdapter.getLinkedNodeKeys(fromNodeKey, linkedNodeKey -> {
+				// The solver's own handling of each linked node is not counted as node adapter time.
+				this.statisticsRecorder.finishNodeAdapterCall();
+				linkedNodeKeyConsumer.accept(linkedNodeKey);
+				this.statisticsRecorder.startNodeAdapterCall();
+			});
+			this.statisticsRecorder.finishNodeAdapterCall();
+		}
+
+		@Override
+		public CostType getCostOfMovingBetweenLinkedNodes(NodeKeyType linkedFromNodeKey, NodeKeyType linkedToNodeKey) {
+			this.statisticsRecorder.startNodeAdapterCall();
+			CostType cost = this.nodeAdapter.getCostOfMovingBetweenLinkedNodes(linkedFromNodeKey, linkedToNodeKey);
+			this.statisticsRecorder.finishNodeAdapterCall();
+			return cost;
+		}
+
+		@Override
+		public CostType getCostEstimateOfMovingBetweenNodes(NodeKeyType fromNodeKey, NodeKeyType toNodeKey) {
+			this.statisticsRecorder.startNodeAdapterCall();
+			CostType costEstimate = this.nodeAdapter.getCostEstimateOfMovingBetweenNodes(fromNodeKey, toNodeKey);
+			this.statisticsRecorder.finishNodeAdapterCall();
+			return costEstimate;
+		}
+
+		@Override
+		public boolean isValidEndingNode(NodeKeyType nodeKey) {
+			this.statisticsRecorder.startNodeAdapterCall();
+			boolean validEndingNode = this.nodeAdapter.isValidEndingNode(nodeKey);
+			this.statisticsRecorder.finishNodeAdapterCall();
+			return validEndingNode;
+		}
+	}
+
+	private static interface KnownNodes<NodeKeyType,CostType> {
+		Node<NodeKeyType,CostType> get(NodeKeyType nodeKey);
+		void put(NodeKeyType nodeKey, Node<NodeKeyType,CostType> node);
+
+		static <NodeKeyType,CostType> KnownNodes<NodeKeyType,CostType> create(NodeAdapter<NodeKeyType,CostType> nodeAdapter) {
+			if (nodeAdapter instanceof DenseNodeIdAdapter) {
+				@SuppressWarnings("unchecked")
+				DenseNodeIdAdapter<NodeKeyType> denseNodeIdAdapter = (DenseNodeIdAdapter<NodeKeyType>) nodeAdapter;
+				int nodeIdCount = denseNodeIdAdapter.getNodeIdCount();
+				if (nodeIdCount >= 0) {
+					return new DenseKnownNodes<>(denseNodeIdAdapter, nodeIdCount);
+				}
+			}
+			return new HashedKnownNodes<>();
+		}
+	}
+
+	private static final class HashedKnownNodes<NodeKeyType,CostType> implements KnownNodes<NodeKeyType,CostType> {
+		private final Map<NodeKeyType,Node<NodeKeyType,CostType>> nodes = new HashMap<>();
+
+		@Override
+		public Node<NodeKeyType,CostType> get(NodeKeyType nodeKey) {
+			return this.nodes.get(nodeKey);
+		}
+
+		@Override
+		public void put(NodeKeyType nodeKey, Node<NodeKeyType,CostType> node) {
+			this.nodes.put(nodeKey, node);
+		}
+	}
+
+	// For bounded grids and the like, where each node key maps to a slot in a flat array, so no hashing or map entries are needed.
+	private static final class DenseKnownNodes<NodeKeyType,CostType> implements KnownNodes<NodeKeyType,CostType> {
+		private final DenseNodeIdAdapter<NodeKeyType> denseNodeIdAdapter;
+		private final Node<NodeKeyType,CostType>[] nodes;
+
+		private DenseKnownNodes(DenseNodeIdAdapter<NodeKeyType> denseNodeIdAdapter, int nodeIdCount) {
+			this.denseNodeIdAdapter = denseNodeIdAdapter;
+			@SuppressWarnings("unchecked")
+			Node<NodeKeyType,CostType>[] nodes = (Node<NodeKeyType,CostType>[]) new Node<?,?>[nodeIdCount];
+			this.nodes = nodes;
+		}
+
+		@Override
+		public Node<NodeKeyType,CostType> get(NodeKeyType nodeKey) {
+			return this.nodes[this.denseNodeIdAdapter.getNodeId(nodeKey)];
+		}
+
+		@Override
+		public void put(NodeKeyType nodeKey, Node<NodeKeyType,CostType> node) {
+			this.nodes[this.denseNodeIdAdapter.getNodeId(nodeKey)] = node;
 		}
 	}
 
 	public static <NodeKeyType,CostType,ResultType> ResultType run(NodeAdapter<NodeKeyType,CostType> nodeAdapter, CostAdapter<CostType> costAdapter, FullResultAdapter<NodeKeyType,CostType,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey) {
+		return run(nodeAdapter, costAdapter, resultAdapter, fromNodeKey, toNodeKey, OpenSetStrategy.INDEXED_QUATERNARY_HEAP);
+	}
+
+	public static <NodeKeyType,CostType,ResultType> ResultType run(NodeAdapter<NodeKeyType,CostType> nodeAdapter, CostAdapter<CostType> costAdapter, FullResultAdapter<NodeKeyType,CostType,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey, OpenSetStrategy openSetStrategy) {
+		AStarStatistics.Recorder statisticsRecorder = AStarStatistics.startRecording();
+		if (statisticsRecorder == null) {
+			return run(nodeAdapter, KnownNodes.create(nodeAdapter), costAdapter, resultAdapter, fromNodeKey, toNodeKey, openSetStrategy, null);
+		}
+		try {
+			return run(new TimedNodeAdapter<>(nodeAdapter, statisticsRecorder), KnownNodes.create(nodeAdapter), costAdapter, resultAdapter, fromNodeKey, toNodeKey, openSetStrategy, statisticsRecorder);
+		}
+		finally {
+			statisticsRecorder.finish();
+		}
+	}
+
+	private static <NodeKeyType,CostType,ResultType> ResultType run(NodeAdapter<NodeKeyType,CostType> nodeAdapter, KnownNodes<NodeKeyType,CostType> knownNodes, CostAdapter<CostType> costAdapter, FullResultAdapter<NodeKeyType,CostType,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey, OpenSetStrategy openSetStrategy, AStarStatistics.Recorder statisticsRecorder) {
 		Comparator<CostType> costTypeComparator = costAdapter.getComparator();
-		PriorityQueue<Node<NodeKeyType,CostType>> openSet = new PriorityQueue<>((node1,node2) -> costTypeComparator.compare(node1.getFScore(),node2.getFScore()));
+		NodeOpenSet<NodeKeyType,CostType> openSet = openSetStrategy.createNodeOpenSet(costAdapter);
 		Node<NodeKeyType,CostType> fromNode = new Node<>(fromNodeKey,null,nodeAdapter.getCostEstimateOfMovingBetweenNodes(fromNodeKey, toNodeKey),costAdapter.getZeroCost());
-		Map<NodeKeyType, Node<NodeKeyType,CostType>> knownNodes = new HashMap<>();
 		knownNodes.put(fromNodeKey, fromNode);
-		openSet.add(fromNode);
+		boolean allRoutesNeeded = resultAdapter.isAllRoutesNeeded();
+		openSet.addOrUpdate(fromNode);
+		if (statisticsRecorder != null) {
+			statisticsRecorder.knownNodeCount++;
+			statisticsRecorder.recordOpenSetSize(openSet.size());
+		}
 		while (true) {
-			Node<NodeKeyType,CostType> currentNode = openSet.poll();
-			if (currentNode == null) {
+			if (openSet.isEmpty()) {
 				return resultAdapter.produceForNoSolution();
 			}
+			Node<NodeKeyType,CostType> currentNode = openSet.poll();
 			NodeKeyType currentNodeKey = currentNode.getNodeKey();
 			CostType currentGScore = currentNode.getGScore();
 			if (costTypeComparator.compare(currentGScore,currentNode.getFScore()) == 0 && nodeAdapter.isValidEndingNode(currentNodeKey)) {
 				return resultAdapter.produceForSolution(currentNode);
 			}
+			if (statisticsRecorder != null) {
+				statisticsRecorder.expandedNodeCount++;
+			}
 			nodeAdapter.getLinkedNodeKeys(
 				currentNodeKey,
 				linkedNodeKey -> {
+					if (statisticsRecorder != null) {
+						statisticsRecorder.generatedNodeCount++;
+					}
 					Node<NodeKeyType,CostType> linkedNode = knownNodes.get(linkedNodeKey);
 					CostType potentialGScore = costAdapter.addCosts(currentGScore,nodeAdapter.getCostOfMovingBetweenLinkedNodes(currentNodeKey, linkedNodeKey));
 					if (linkedNode == null) {
 						linkedNode = new Node<>(linkedNodeKey, currentNode, costAdapter.addCosts(potentialGScore,nodeAdapter.getCostEstimateOfMovingBetweenNodes(linkedNodeKey, toNodeKey)), potentialGScore);
 						knownNodes.put(linkedNodeKey, linkedNode);
-						openSet.add(linkedNode);
+						openSet.addOrUpdate(linkedNode);
+						if (statisticsRecorder != null) {
+							statisticsRecorder.knownNodeCount++;
+							statisticsRecorder.recordOpenSetSize(openSet.size());
+						}
 					}
 					else {
 						int gScoreComparisonResult = costTypeComparator.compare(potentialGScore,linkedNode.getGScore());
 						if (gScoreComparisonResult == 0) {
-							linkedNode.addCameFrom(currentNode);
+							if (allRoutesNeeded) {
+								linkedNode.addCameFrom(currentNode);
+							}
 						}
 						else if (gScoreComparisonResult < 0) {
-							openSet.remove(linkedNode);
 							linkedNode.replaceCameFrom(currentNode);
 							linkedNode.setFScore(costAdapter.addCosts(potentialGScore,nodeAdapter.getCostEstimateOfMovingBetweenNodes(linkedNodeKey, toNodeKey)));
 							linkedNode.setGScore(potentialGScore);
-							openSet.add(linkedNode);
+							openSet.addOrUpdate(linkedNode);
+							if (statisticsRecorder != null) {
+								statisticsRecorder.improvedNodeCount++;
+								statisticsRecorder.recordOpenSetSize(openSet.size());
+							}
 						}
 					}
 				}
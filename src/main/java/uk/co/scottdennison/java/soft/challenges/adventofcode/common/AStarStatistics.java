@@ -0,0 +1,115 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+// Counts of the work done by the A* solvers, to tell whether a slow search has a weak heuristic (many nodes expanded per route step) or a slow node adapter.
+// Searches only record into the statistics set for their own thread with setCurrent, and do no extra work at all if no statistics have ever been set.
+public final class AStarStatistics {
+	private static final ThreadLocal<AStarStatistics> CURRENT = new ThreadLocal<>();
+	private static volatile boolean everSet = false;
+
+	private long searchCount;
+	private long expandedNodeCount;
+	private long generatedNodeCount;
+	private long improvedNodeCount;
+	private long peakOpenSetSize;
+	private long peakKnownNodeCount;
+	private long nodeAdapterNanoseconds;
+
+	public static AStarStatistics getCurrent() {
+		return everSet ? CURRENT.get() : null;
+	}
+
+	// Pass null to stop recording on this thread.
+	public static void setCurrent(AStarStatistics statistics) {
+		if (statistics == null) {
+			CURRENT.remove();
+		}
+		else {
+			everSet = true;
+			CURRENT.set(statistics);
+		}
+	}
+
+	// Returns null if this thread has no statistics to record into.
+	static Recorder startRecording() {
+		AStarStatistics statistics = getCurrent();
+		return statistics == null ? null : new Recorder(statistics);
+	}
+
+	public synchronized long getSearchCount() {
+		return this.searchCount;
+	}
+
+	// Nodes taken from the open set and had their links followed.
+	public synchronized long getExpandedNodeCount() {
+		return this.expandedNodeCount;
+	}
+
+	// Links followed, whether or not they led anywhere new or cheaper.
+	public synchronized long getGeneratedNodeCount() {
+		return this.generatedNodeCount;
+	}
+
+	// Nodes that were already known but were then reached more cheaply, so had to be put back into or moved within the open set.
+	public synchronized long getImprovedNodeCount() {
+		return this.improvedNodeCount;
+	}
+
+	// The largest open set of any one search. The lazy binary heap includes its stale entries.
+	public synchronized long getPeakOpenSetSize() {
+		return this.peakOpenSetSize;
+	}
+
+	// The most nodes known to any one search.
+	public synchronized long getPeakKnownNodeCount() {
+		return this.peakKnownNodeCount;
+	}
+
+	// Time spent inside the node adapter, including the cost estimates. Measuring it adds a little time to the searches themselves.
+	public synchronized long getNodeAdapterNanoseconds() {
+		return this.nodeAdapterNanoseconds;
+	}
+
+	private synchronized void add(Recorder recorder) {
+		this.searchCount++;
+		this.expandedNodeCount += recorder.expandedNodeCount;
+		this.generatedNodeCount += recorder.generatedNodeCount;
+		this.improvedNodeCount += recorder.improvedNodeCount;
+		this.peakOpenSetSize = Math.max(this.peakOpenSetSize, recorder.peakOpenSetSize);
+		this.peakKnownNodeCount = Math.max(this.peakKnownNodeCount, recorder.knownNodeCount);
+		this.nodeAdapterNanoseconds += recorder.nodeAdapterNanoseconds;
+	}
+
+	// Counts for a single search, which is only ever run on one thread, so the counts are kept without synchronization until the search finishes.
+	static final class Recorder {
+		private final AStarStatistics statistics;
+		long expandedNodeCount;
+		long generatedNodeCount;
+		long improvedNodeCount;
+		long knownNodeCount;
+		private long peakOpenSetSize;
+		private long nodeAdapterNanoseconds;
+		private long nodeAdapterCallStartNanoseconds;
+
+		private Recorder(AStarStatistics statistics) {
+			this.statistics = statistics;
+		}
+
+		void recordOpenSetSize(int openSetSize) {
+			if (openSetSize > this.peakOpenSetSize) {
+				this.peakOpenSetSize = openSetSize;
+			}
+		}
+
+		void startNodeAdapterCall() {
+			this.nodeAdapterCallStartNanoseconds = System.nanoTime();
+		}
+
+		void finishNodeAdapterCall() {
+			this.nodeAdapterNanoseconds += System.nanoTime() - this.nodeAdapterCallStartNanoseconds;
+		}
+
+		void finish() {
+			this.statistics.add(this);
+		}
+	}
+}
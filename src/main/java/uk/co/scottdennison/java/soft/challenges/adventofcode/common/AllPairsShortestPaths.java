@@ -0,0 +1,203 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Works out the cheapest cost between every pair of a set of nodes, for the puzzles that build a distance table and then search through orderings of the nodes.
+public class AllPairsShortestPaths {
+	public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	// Floyd-Warshall is O(n^3) in the number of nodes in the whole graph, but with no per-node overhead, so it wins for small graphs.
+	private static final int FLOYD_WARSHALL_MAXIMUM_NODE_COUNT = 256;
+
+	private AllPairsShortestPaths() {}
+
+	public static final class DistanceMatrix {
+		private final int nodeCount;
+		// Row major, so the distance from node i to node j is at index i * nodeCount + j.
+		private final int[] distances;
+
+		private DistanceMatrix(int nodeCount, int[] distances) {
+			this.nodeCount = nodeCount;
+			this.distances = distances;
+		}
+
+		public int getNodeCount() {
+			return this.nodeCount;
+		}
+
+		public int getDistance(int fromNodeIndex, int toNodeIndex) {
+			return this.distances[fromNodeIndex * this.nodeCount + toNodeIndex];
+		}
+
+		public boolean isReachable(int fromNodeIndex, int toNodeIndex) {
+			return this.getDistance(fromNodeIndex, toNodeIndex) != UNREACHABLE;
+		}
+
+		// The underlying array, which is not copied.
+		public int[] getDistances() {
+			return this.distances;
+		}
+
+		public int[][] toArrays() {
+			int[][] distanceArrays = new int[this.nodeCount][];
+			for (int fromNodeIndex = 0; fromNodeIndex < this.nodeCount; fromNodeIndex++) {
+				distanceArrays[fromNodeIndex] = Arrays.copyOfRange(this.distances, fromNodeIndex * this.nodeCount, (fromNodeIndex + 1) * this.nodeCount);
+			}
+			return distanceArrays;
+		}
+
+		public DistanceMatrix requireAllReachable() {
+			for (int distance : this.distances) {
+				if (distance == UNREACHABLE) {
+					throw new IllegalStateException("Not every node can be reached from every other node.");
+				}
+			}
+			return this;
+		}
+	}
+
+	private static final class SearchTask<NodeKeyType> extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final AStarSolver.NodeAdapter<NodeKeyType,Integer> nodeAdapter;
+		private final List<NodeKeyType> nodeKeys;
+		private final int[] distances;
+		private final int startFromNodeIndex;
+		private final int endFromNodeIndex;
+		// The statistics of the thread that asked for the distances, as the searches run on other threads.
+		private final AStarStatistics statistics;
+
+		private SearchTask(AStarSolver.NodeAdapter<NodeKeyType,Integer> nodeAdapter, List<NodeKeyType> nodeKeys, int[] distances, int startFromNodeIndex, int endFromNodeIndex, AStarStatistics statistics) {
+			this.nodeAdapter = nodeAdapter;
+			this.nodeKeys = nodeKeys;
+			this.distances = distances;
+			this.startFromNodeIndex = startFromNodeIndex;
+			this.endFromNodeIndex = endFromNodeIndex;
+			this.statistics = statistics;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.endFromNodeIndex - this.startFromNodeIndex > 1) {
+				int middleFromNodeIndex = (this.startFromNodeIndex + this.endFromNodeIndex) >>> 1;
+				invokeAll(
+					new SearchTask<>(this.nodeAdapter, this.nodeKeys, this.distances, this.startFromNodeIndex, middleFromNodeIndex, this.statistics),
+					new SearchTask<>(this.nodeAdapter, this.nodeKeys, this.distances, middleFromNodeIndex, this.endFromNodeIndex, this.statistics)
+				);
+			}
+			else if (this.endFromNodeIndex > this.startFromNodeIndex) {
+				AStarStatistics previousStatistics = AStarStatistics.getCurrent();
+				AStarStatistics.setCurrent(this.statistics);
+				try {
+					searchFrom(this.nodeAdapter, this.nodeKeys, this.distances, this.startFromNodeIndex);
+				}
+				finally {
+					AStarStatistics.setCurrent(previousStatistics);
+				}
+			}
+		}
+	}
+
+	private static <NodeKeyType> void searchFrom(AStarSolver.NodeAdapter<NodeKeyType,Integer> nodeAdapter, List<NodeKeyType> nodeKeys, int[] distances, int fromNodeIndex) {
+		Map<NodeKeyType,Optional<Integer>> costs = IntAStarSolver.runToTargets(nodeAdapter, new AStarSolver.OptionalResultAdapter<>(new AStarSolver.CostOnlyResultAdapter<>()), nodeKeys.get(fromNodeIndex), nodeKeys);
+		int nodeCount = nodeKeys.size();
+		for (int toNodeIndex = 0; toNodeIndex < nodeCount; toNodeIndex++) {
+			distances[fromNodeIndex * nodeCount + toNodeIndex] = costs.get(nodeKeys.get(toNodeIndex)).orElse(UNREACHABLE);
+		}
+	}
+
+	// Chooses Floyd-Warshall if the whole graph is small enough, and otherwise a search from each node.
+	public static <NodeKeyType> DistanceMatrix calculate(AStarSolver.NodeAdapter<NodeKeyType,Integer> nodeAdapter, Collection<NodeKeyType> allNodeKeys, List<NodeKeyType> nodeKeys) {
+		if (allNodeKeys.size() <= FLOYD_WARSHALL_MAXIMUM_NODE_COUNT) {
+			return calculateWithFloydWarshall(nodeAdapter, allNodeKeys, nodeKeys);
+		}
+		else {
+			return calculateWithSearches(nodeAdapter, nodeKeys);
+		}
+	}
+
+	// Runs one IntAStarSolver.runToTargets search from each node, in parallel on the common fork join pool if it has more than one thread, so the node adapter must be safe to call from several threads at once.
+	// The whole graph never needs to be listed, so this suits large graphs such as grids.
+	public static <NodeKeyType> DistanceMatrix calculateWithSearches(AStarSolver.NodeAdapter<NodeKeyType,Integer> nodeAdapter, List<NodeKeyType> nodeKeys) {
+		int nodeCount = nodeKeys.size();
+		int[] distances = new int[nodeCount * nodeCount];
+		if (ParallelStreams.isWorthwhile()) {
+			ForkJoinPool.commonPool().invoke(new SearchTask<>(nodeAdapter, nodeKeys, distances, 0, nodeCount, AStarStatistics.getCurrent()));
+		}
+		else {
+			// Handing the searches to a single worker thread would only add overhead.
+			for (int fromNodeIndex = 0; fromNodeIndex < nodeCount; fromNodeIndex++) {
+				searchFrom(nodeAdapter, nodeKeys, distances, fromNodeIndex);
+			}
+		}
+		return new DistanceMatrix(nodeCount, distances);
+	}
+
+	// Runs Floyd-Warshall over every node in the graph, which must all be given, and then picks out the distances between the requested nodes.
+	public static <NodeKeyType> DistanceMatrix calculateWithFloydWarshall(AStarSolver.NodeAdapter<NodeKeyType,Integer> nodeAdapter, Collection<NodeKeyType> allNodeKeys, List<NodeKeyType> nodeKeys) {
+		int allNodeCount = allNodeKeys.size();
+		Map<NodeKeyType,Integer> allNodeIndexes = new HashMap<>();
+		for (NodeKeyType nodeKey : allNodeKeys) {
+			if (allNodeIndexes.put(nodeKey, allNodeIndexes.size()) != null) {
+				throw new IllegalStateException("Duplicate node " + nodeKey);
+			}
+		}
+		int[] allDistances = new int[allNodeCount * allNodeCount];
+		Arrays.fill(allDistances, UNREACHABLE);
+		for (Map.Entry<NodeKeyType,Integer> allNodeIndexEntry : allNodeIndexes.entrySet()) {
+			NodeKeyType fromNodeKey = allNodeIndexEntry.getKey();
+			int fromRowOffset = allNodeIndexEntry.getValue() * allNodeCount;
+			allDistances[fromRowOffset + allNodeIndexEntry.getValue()] = 0;
+			nodeAdapter.getLinkedNodeKeys(fromNodeKey, linkedNodeKey -> {
+				Integer toNodeIndex = allNodeIndexes.get(linkedNodeKey);
+				if (toNodeIndex == null) {
+					throw new IllegalStateException("Linked node " + linkedNodeKey + " is not in the list of all nodes");
+				}
+				int cost = nodeAdapter.getCostOfMovingBetweenLinkedNodes(fromNodeKey, linkedNodeKey);
+				if (cost < allDistances[fromRowOffset + toNodeIndex]) {
+					allDistances[fromRowOffset + toNodeIndex] = cost;
+				}
+			});
+		}
+		for (int viaNodeIndex = 0; viaNodeIndex < allNodeCount; viaNodeIndex++) {
+			int viaRowOffset = viaNodeIndex * allNodeCount;
+			for (int fromNodeIndex = 0; fromNodeIndex < allNodeCount; fromNodeIndex++) {
+				int fromRowOffset = fromNodeIndex * allNodeCount;
+				int fromToViaDistance = allDistances[fromRowOffset + viaNodeIndex];
+				if (fromToViaDistance == UNREACHABLE) {
+					continue;
+				}
+				for (int toNodeIndex = 0; toNodeIndex < allNodeCount; toNodeIndex++) {
+					int viaToToDistance = allDistances[viaRowOffset + toNodeIndex];
+					if (viaToToDistance != UNREACHABLE && fromToViaDistance + viaToToDistance < allDistances[fromRowOffset + toNodeIndex]) {
+						allDistances[fromRowOffset + toNodeIndex] = fromToViaDistance + viaToToDistance;
+					}
+				}
+			}
+		}
+		int nodeCount = nodeKeys.size();
+		int[] nodeIndexesInAll = new int[nodeCount];
+		for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++) {
+			Integer nodeIndexInAll = allNodeIndexes.get(nodeKeys.get(nodeIndex));
+			if (nodeIndexInAll == null) {
+				throw new IllegalStateException("Node " + nodeKeys.get(nodeIndex) + " is not in the list of all nodes");
+			}
+			nodeIndexesInAll[nodeIndex] = nodeIndexInAll;
+		}
+		int[] distances = new int[nodeCount * nodeCount];
+		for (int fromNodeIndex = 0; fromNodeIndex < nodeCount; fromNodeIndex++) {
+			int fromRowOffsetInAll = nodeIndexesInAll[fromNodeIndex] * allNodeCount;
+			for (int toNodeIndex = 0; toNodeIndex < nodeCount; toNodeIndex++) {
+				distances[fromNodeIndex * nodeCount + toNodeIndex] = allDistances[fromRowOffsetInAll + nodeIndexesInAll[toNodeIndex]];
+			}
+		}
+		return new DistanceMatrix(nodeCount, distances);
+	}
+}
@@ -2,9 +2,14 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.LongPredicate;
 
 public class AssembunnyComputer {
 	private static enum OperandType {
@@ -62,9 +67,7 @@ public class AssembunnyComputer {
 	}
 
 	public enum InstructionType {
-		OPTIMIZED_AWAY,
-		INCREMENT_REGISTER_BY,
-		INCREMENT_REGISTER_BY_MULTIPLICATION,
+		CLOSED_FORM_LOOP,
 		COPY_INTO_REGISTER,
 		INCREMENT_REGISTER,
 		DECREMENT_REGISTER,
@@ -80,86 +83,270 @@ public class AssembunnyComputer {
 		InstructionType getInstructionType();
 	}
 
-	private static class OptimizedAwayInstruction implements Instruction {
-		public static final OptimizedAwayInstruction INSTANCE = new OptimizedAwayInstruction();
+	// A polynomial in the values the registers held at some earlier point, such as the start of a loop. The coefficients wrap on overflow exactly as the registers themselves do, so evaluating it gives the same result as running the instructions it describes.
+	// Each term's registers are packed into a long, as the register index plus one in every 5 bits, in ascending order and repeated for higher powers. The terms are kept sorted, so the whole polynomial is just two primitive arrays.
+	private static final class Polynomial {
+		public static final int MAXIMUM_DEGREE = 12;
+		private static final int BITS_PER_REGISTER = 5;
+		private static final long REGISTER_BITS_MASK = (1L << BITS_PER_REGISTER) - 1;
+		private static final Polynomial ZERO = new Polynomial(new long[0], new long[0]);
+
+		private final long[] terms;
+		private final long[] coefficients;
+		private final long registerMask;
+		private final int degree;
+
+		private Polynomial(long[] terms, long[] coefficients) {
+			this.terms = terms;
+			this.coefficients = coefficients;
+			long registerMask = 0;
+			int degree = 0;
+			for (long term : terms) {
+				int termDegree = 0;
+				for (; term != 0; term >>>= BITS_PER_REGISTER) {
+					registerMask |= 1L << ((term & REGISTER_BITS_MASK) - 1);
+					termDegree++;
+				}
+				degree = Math.max(degree, termDegree);
+			}
+			this.registerMask = registerMask;
+			this.degree = degree;
+		}
 
-		private OptimizedAwayInstruction() {}
+		public static Polynomial constant(long value) {
+			return value == 0 ? ZERO : new Polynomial(new long[]{0}, new long[]{value});
+		}
 
-		@Override
-		public void run(State state) {
-			state.deoptimize();
+		public static Polynomial register(int register) {
+			return new Polynomial(new long[]{register + 1}, new long[]{1});
 		}
 
-		@Override
-		public InstructionType getInstructionType() {
-			return InstructionType.OPTIMIZED_AWAY;
+		// Sorts the terms, combining any that are the same and dropping any that cancel out.
+		private static Polynomial fromUnsortedTerms(long[] terms, long[] coefficients, int termCount) {
+			for (int termIndex=1; termIndex<termCount; termIndex++) {
+				long term = terms[termIndex];
+				long coefficient = coefficients[termIndex];
+				int insertIndex = termIndex;
+				while (insertIndex > 0 && terms[insertIndex-1] > term) {
+					terms[insertIndex] = terms[insertIndex-1];
+					coefficients[insertIndex] = coefficients[insertIndex-1];
+					insertIndex--;
+				}
+				terms[insertIndex] = term;
+				coefficients[insertIndex] = coefficient;
+			}
+			int newTermCount = 0;
+			for (int termIndex=0; termIndex<termCount; termIndex++) {
+				if (newTermCount > 0 && terms[newTermCount-1] == terms[termIndex]) {
+					coefficients[newTermCount-1] += coefficients[termIndex];
+				}
+				else {
+					terms[newTermCount] = terms[termIndex];
+					coefficients[newTermCount] = coefficients[termIndex];
+					newTermCount++;
+				}
+				if (coefficients[newTermCount-1] == 0) {
+					newTermCount--;
+				}
+			}
+			return new Polynomial(Arrays.copyOf(terms, newTermCount), Arrays.copyOf(coefficients, newTermCount));
+		}
+
+		private static long multiplyTerms(long firstTerm, long secondTerm) {
+			long product = 0;
+			int shift = 0;
+			while (firstTerm != 0 || secondTerm != 0) {
+				long firstRegisterBits = firstTerm & REGISTER_BITS_MASK;
+				long secondRegisterBits = secondTerm & REGISTER_BITS_MASK;
+				if (secondRegisterBits == 0 || (firstRegisterBits != 0 && firstRegisterBits <= secondRegisterBits)) {
+					product |= firstRegisterBits << shift;
+					firstTerm >>>= BITS_PER_REGISTER;
+				}
+				else {
+					product |= secondRegisterBits << shift;
+					secondTerm >>>= BITS_PER_REGISTER;
+				}
+				shift += BITS_PER_REGISTER;
+			}
+			return product;
+		}
+
+		public Polynomial add(Polynomial other) {
+			int termCount = this.terms.length + other.terms.length;
+			long[] terms = Arrays.copyOf(this.terms, termCount);
+			long[] coefficients = Arrays.copyOf(this.coefficients, termCount);
+			System.arraycopy(other.terms, 0, terms, this.terms.length, other.terms.length);
+			System.arraycopy(other.coefficients, 0, coefficients, this.coefficients.length, other.coefficients.length);
+			return fromUnsortedTerms(terms, coefficients, termCount);
+		}
+
+		public Polynomial add(long value) {
+			return this.add(constant(value));
+		}
+
+		public Polynomial subtract(Polynomial other) {
+			long[] negatedCoefficients = new long[other.coefficients.length];
+			for (int termIndex=0; termIndex<negatedCoefficients.length; termIndex++) {
+				negatedCoefficients[termIndex] = -other.coefficients[termIndex];
+			}
+			return this.add(new Polynomial(other.terms, negatedCoefficients));
 		}
-	}
 
-	private static class IncrementRegisterByInstruction implements Instruction {
-		private int resultRegister;
-		private int sourceRegister;
+		// Returns null if the product would have a term of more than the maximum degree.
+		public Polynomial multiply(Polynomial other) {
+			if (this.degree + other.degree > MAXIMUM_DEGREE) {
+				return null;
+			}
+			int termCount = this.terms.length * other.terms.length;
+			long[] terms = new long[termCount];
+			long[] coefficients = new long[termCount];
+			int termIndex = 0;
+			for (int thisTermIndex=0; thisTermIndex<this.terms.length; thisTermIndex++) {
+				for (int otherTermIndex=0; otherTermIndex<other.terms.length; otherTermIndex++) {
+					terms[termIndex] = multiplyTerms(this.terms[thisTermIndex], other.terms[otherTermIndex]);
+					coefficients[termIndex] = this.coefficients[thisTermIndex] * other.coefficients[otherTermIndex];
+					termIndex++;
+				}
+			}
+			return fromUnsortedTerms(terms, coefficients, termCount);
+		}
 
-		public IncrementRegisterByInstruction(int resultRegister, int sourceRegister) {
-			this.resultRegister = resultRegister;
-			this.sourceRegister = sourceRegister;
+		// Replaces each register with the given polynomial for its value. Returns null if the result would be too complex.
+		public Polynomial substitute(Polynomial[] registerValues) {
+			Polynomial result = ZERO;
+			for (int termIndex=0; termIndex<this.terms.length; termIndex++) {
+				Polynomial termValue = constant(this.coefficients[termIndex]);
+				for (long term = this.terms[termIndex]; term != 0 && termValue != null; term >>>= BITS_PER_REGISTER) {
+					termValue = termValue.multiply(registerValues[(int)(term & REGISTER_BITS_MASK) - 1]);
+				}
+				if (termValue == null) {
+					return null;
+				}
+				result = result.add(termValue);
+			}
+			return result;
+		}
+
+		public boolean isConstant() {
+			return this.registerMask == 0;
 		}
 
-		public int getResultRegister() {
-			return resultRegister;
+		public long getRegisterMask() {
+			return this.registerMask;
+		}
+
+		public long evaluate(State state) {
+			long result = 0;
+			for (int termIndex=0; termIndex<this.terms.length; termIndex++) {
+				long termValue = this.coefficients[termIndex];
+				for (long term = this.terms[termIndex]; term != 0; term >>>= BITS_PER_REGISTER) {
+					termValue *= state.getRegisterValue((int)(term & REGISTER_BITS_MASK) - 1);
+				}
+				result += termValue;
+			}
+			return result;
 		}
 
-		public int getSourceRegister() {
-			return sourceRegister;
+		// Leaves the value on the operand stack, reading each register from the long local in the given slot.
+		public void compile(BytecodeClassBuilder.Code code, int[] registerSlots) {
+			if (this.terms.length == 0) {
+				code.pushLong(0);
+				return;
+			}
+			for (int termIndex=0; termIndex<this.terms.length; termIndex++) {
+				code.pushLong(this.coefficients[termIndex]);
+				for (long term = this.terms[termIndex]; term != 0; term >>>= BITS_PER_REGISTER) {
+					code.localInstruction(BytecodeClassBuilder.LLOAD, registerSlots[(int)(term & REGISTER_BITS_MASK) - 1]);
+					code.instruction(BytecodeClassBuilder.LMUL);
+				}
+				if (termIndex > 0) {
+					code.instruction(BytecodeClassBuilder.LADD);
+				}
+			}
 		}
 
 		@Override
-		public void run(State state) {
-			state.setRegisterValue(this.resultRegister, state.getRegisterValue(this.resultRegister) + state.getRegisterValue(this.sourceRegister));
-			state.setRegisterValue(this.sourceRegister, 0);
-			state.adjustPC(3);
+		public boolean equals(Object otherObject) {
+			if (!(otherObject instanceof Polynomial)) {
+				return false;
+			}
+			Polynomial otherPolynomial = (Polynomial)otherObject;
+			return Arrays.equals(this.terms, otherPolynomial.terms) && Arrays.equals(this.coefficients, otherPolynomial.coefficients);
 		}
 
 		@Override
-		public InstructionType getInstructionType() {
-			return InstructionType.INCREMENT_REGISTER_BY;
+		public int hashCode() {
+			return Arrays.hashCode(this.terms) * 31 + Arrays.hashCode(this.coefficients);
 		}
 	}
 
-	private static class IncrementRegisterByMultiplicationInstruction implements Instruction {
-		private int resultRegister;
-		private int sourceRegister1;
-		private int sourceRegister2;
+	// Stands in for the first instruction of a counted loop, and runs the whole loop in one go using the value every register ends up with, worked out ahead of time. The rest of the loop's instructions are left as they are, in case anything jumps into the middle of it.
+	private static final class ClosedFormLoopInstruction implements Instruction {
+		private final int startIndex;
+		private final int endIndex;
+		// All must be positive for the closed form to hold, such as the number of times the loop will run, or the loop's first instruction is just run normally instead.
+		private final Polynomial[] conditions;
+		// In terms of the register values before the loop.
+		private final Polynomial[] finalRegisterValues;
+		private final int[] changedRegisters;
+
+		public ClosedFormLoopInstruction(int startIndex, int endIndex, Polynomial[] conditions, Polynomial[] finalRegisterValues) {
+			this.startIndex = startIndex;
+			this.endIndex = endIndex;
+			this.conditions = conditions;
+			this.finalRegisterValues = finalRegisterValues;
+			int[] changedRegisters = new int[finalRegisterValues.length];
+			int changedRegisterCount = 0;
+			for (int register=0; register<finalRegisterValues.length; register++) {
+				if (!finalRegisterValues[register].equals(Polynomial.register(register))) {
+					changedRegisters[changedRegisterCount++] = register;
+				}
+			}
+			this.changedRegisters = Arrays.copyOf(changedRegisters, changedRegisterCount);
+		}
 
-		public IncrementRegisterByMultiplicationInstruction(int resultRegister, int sourceRegister1, int sourceRegister2) {
-			this.resultRegister = resultRegister;
-			this.sourceRegister1 = sourceRegister1;
-			this.sourceRegister2 = sourceRegister2;
+		public int getStartIndex() {
+			return startIndex;
 		}
 
-		public int getResultRegister() {
-			return resultRegister;
+		public int getEndIndex() {
+			return endIndex;
 		}
 
-		public int getSourceRegister1() {
-			return sourceRegister1;
+		public Polynomial[] getConditions() {
+			return conditions;
 		}
 
-		public int getSourceRegister2() {
-			return sourceRegister2;
+		public Polynomial[] getFinalRegisterValues() {
+			return finalRegisterValues;
+		}
+
+		public int[] getChangedRegisters() {
+			return changedRegisters;
 		}
 
 		@Override
 		public void run(State state) {
-			state.setRegisterValue(this.resultRegister, state.getRegisterValue(this.resultRegister) + (state.getRegisterValue(this.sourceRegister1) * state.getRegisterValue(this.sourceRegister2)));
-			state.setRegisterValue(this.sourceRegister1, 0);
-			state.setRegisterValue(this.sourceRegister2, 0);
-			state.adjustPC(5);
+			for (Polynomial condition : this.conditions) {
+				if (condition.evaluate(state) <= 0) {
+					state.runUnoptimizedInstruction();
+					return;
+				}
+			}
+			int changedRegisterCount = this.changedRegisters.length;
+			long[] newRegisterValues = new long[changedRegisterCount];
+			for (int changedRegisterIndex=0; changedRegisterIndex<changedRegisterCount; changedRegisterIndex++) {
+				newRegisterValues[changedRegisterIndex] = this.finalRegisterValues[this.changedRegisters[changedRegisterIndex]].evaluate(state);
+			}
+			for (int changedRegisterIndex=0; changedRegisterIndex<changedRegisterCount; changedRegisterIndex++) {
+				state.setRegisterValue(this.changedRegisters[changedRegisterIndex], newRegisterValues[changedRegisterIndex]);
+			}
+			state.adjustPC(this.endIndex + 1 - this.startIndex);
 		}
 
 		@Override
 		public InstructionType getInstructionType() {
-			return InstructionType.INCREMENT_REGISTER_BY_MULTIPLICATION;
+			return InstructionType.CLOSED_FORM_LOOP;
 		}
 	}
 
@@ -427,6 +614,10 @@ public class AssembunnyComputer {
 			this.value = value;
 		}
 
+		public long getValue() {
+			return value;
+		}
+
 		@Override
 		public long getLongValue(State state) {
 			return this.value;
@@ -445,6 +636,10 @@ public class AssembunnyComputer {
 			this.register = register;
 		}
 
+		public int getRegister() {
+			return register;
+		}
+
 		@Override
 		public long getLongValue(State state) {
 			return state.getRegisterValue(this.register);
@@ -633,6 +828,216 @@ public class AssembunnyComputer {
 		}
 	}
 
+	// Implemented by the class each program is compiled into. Runs from the given instruction until it reaches one that only the interpreter can run, such as a tgl or out, or leaves the program, and returns the index of that instruction.
+	static interface CompiledProgram {
+		int run(long[] registers, int pc);
+	}
+
+	// Compiles a program to a single method, with the registers held in locals. Each instruction's code falls through to the next, static jumps become gotos, and anything else that moves the PC goes back through a switch on it.
+	// A closed form loop is compiled as its conditions and then its final register values, with the code of the instruction it stands in for following, for when a condition does not hold.
+	private static final class BytecodeCompiler {
+		private static final int REGISTERS_SLOT = 1;
+		private static final int PC_SLOT = 2;
+		private static final int FIRST_REGISTER_SLOT = 3;
+		private static final int MAXIMUM_STACK_SIZE = 8;
+
+		private final Instruction[] program;
+		private final Instruction[] unoptimizedProgram;
+		private final int registerCount;
+		private final BytecodeClassBuilder classBuilder;
+		private final BytecodeClassBuilder.Code code;
+		private final int[] registerSlots;
+		private final int firstTemporarySlot;
+		private final BytecodeClassBuilder.Label[] instructionLabels;
+		private final BytecodeClassBuilder.Label dispatchLabel;
+		private final BytecodeClassBuilder.Label exitLabel;
+		// Each sets the PC to its key and then exits.
+		private final Map<Integer,BytecodeClassBuilder.Label> exitAtLabels;
+		private int maximumTemporaryCount;
+
+		private BytecodeCompiler(Instruction[] program, Instruction[] unoptimizedProgram, int registerCount) {
+			this.program = program;
+			this.unoptimizedProgram = unoptimizedProgram;
+			this.registerCount = registerCount;
+			this.classBuilder = new BytecodeClassBuilder("CompiledAssembunnyProgram", CompiledProgram.class);
+			this.code = this.classBuilder.createCode();
+			this.registerSlots = new int[registerCount];
+			for (int register=0; register<registerCount; register++) {
+				this.registerSlots[register] = FIRST_REGISTER_SLOT + register * 2;
+			}
+			this.firstTemporarySlot = FIRST_REGISTER_SLOT + registerCount * 2;
+			this.instructionLabels = new BytecodeClassBuilder.Label[program.length];
+			for (int instructionIndex=0; instructionIndex<program.length; instructionIndex++) {
+				this.instructionLabels[instructionIndex] = new BytecodeClassBuilder.Label();
+			}
+			this.dispatchLabel = new BytecodeClassBuilder.Label();
+			this.exitLabel = new BytecodeClassBuilder.Label();
+			this.exitAtLabels = new TreeMap<>();
+			this.maximumTemporaryCount = 0;
+		}
+
+		public static CompiledProgram compile(Instruction[] program, Instruction[] unoptimizedProgram, int registerCount) {
+			return new BytecodeCompiler(program, unoptimizedProgram, registerCount).compile();
+		}
+
+		private CompiledProgram compile() {
+			BytecodeClassBuilder.Code code = this.code;
+			int instructionCount = this.program.length;
+			for (int register=0; register<this.registerCount; register++) {
+				code.localInstruction(BytecodeClassBuilder.ALOAD, REGISTERS_SLOT);
+				code.pushInt(register);
+				code.instruction(BytecodeClassBuilder.LALOAD);
+				code.localInstruction(BytecodeClassBuilder.LSTORE, this.registerSlots[register]);
+			}
+			code.placeLabel(this.dispatchLabel);
+			code.localInstruction(BytecodeClassBuilder.ILOAD, PC_SLOT);
+			int[] instructionIndexes = new int[instructionCount];
+			for (int instructionIndex=0; instructionIndex<instructionCount; instructionIndex++) {
+				instructionIndexes[instructionIndex] = instructionIndex;
+			}
+			code.switchOn(instructionIndexes, this.instructionLabels, this.exitLabel);
+			for (int instructionIndex=0; instructionIndex<instructionCount; instructionIndex++) {
+				code.placeLabel(this.instructionLabels[instructionIndex]);
+				Instruction instruction = this.program[instructionIndex];
+				BytecodeClassBuilder.Label unoptimizedLabel = null;
+				if (instruction.getInstructionType() == InstructionType.CLOSED_FORM_LOOP) {
+					unoptimizedLabel = new BytecodeClassBuilder.Label();
+					this.compileClosedFormLoop((ClosedFormLoopInstruction)instruction, unoptimizedLabel);
+					code.placeLabel(unoptimizedLabel);
+					instruction = this.unoptimizedProgram[instructionIndex];
+				}
+				if (this.compileInstruction(instruction, instructionIndex)) {
+					if (instructionIndex + 1 == instructionCount) {
+						this.goTo(instructionCount);
+					}
+				}
+			}
+			for (Map.Entry<Integer,BytecodeClassBuilder.Label> exitAtLabelEntry : this.exitAtLabels.entrySet()) {
+				code.placeLabel(exitAtLabelEntry.getValue());
+				code.pushInt(exitAtLabelEntry.getKey());
+				code.localInstruction(BytecodeClassBuilder.ISTORE, PC_SLOT);
+				code.branch(BytecodeClassBuilder.GOTO, this.exitLabel);
+			}
+			code.placeLabel(this.exitLabel);
+			for (int register=0; register<this.registerCount; register++) {
+				code.localInstruction(BytecodeClassBuilder.ALOAD, REGISTERS_SLOT);
+				code.pushInt(register);
+				code.localInstruction(BytecodeClassBuilder.LLOAD, this.registerSlots[register]);
+				code.instruction(BytecodeClassBuilder.LASTORE);
+			}
+			code.localInstruction(BytecodeClassBuilder.ILOAD, PC_SLOT);
+			code.instruction(BytecodeClassBuilder.IRETURN);
+			return this.classBuilder.buildInstance(CompiledProgram.class, "run", "([JI)I", code, MAXIMUM_STACK_SIZE, this.firstTemporarySlot + this.maximumTemporaryCount * 2);
+		}
+
+		private BytecodeClassBuilder.Label getExitAtLabel(int pc) {
+			return this.exitAtLabels.computeIfAbsent(pc, key -> new BytecodeClassBuilder.Label());
+		}
+
+		// Continues at the given instruction, or exits with the PC set to it if it is outside the program.
+		private void goTo(int instructionIndex) {
+			if (instructionIndex >= 0 && instructionIndex < this.program.length) {
+				this.code.branch(BytecodeClassBuilder.GOTO, this.instructionLabels[instructionIndex]);
+			}
+			else {
+				this.code.branch(BytecodeClassBuilder.GOTO, this.getExitAtLabel(instructionIndex));
+			}
+		}
+
+		private void compileClosedFormLoop(ClosedFormLoopInstruction closedFormLoop, BytecodeClassBuilder.Label unoptimizedLabel) {
+			BytecodeClassBuilder.Code code = this.code;
+			for (Polynomial condition : closedFormLoop.getConditions()) {
+				condition.compile(code, this.registerSlots);
+				code.pushLong(0);
+				code.instruction(BytecodeClassBuilder.LCMP);
+				code.branch(BytecodeClassBuilder.IFLE, unoptimizedLabel);
+			}
+			// Every final value is in terms of the registers before the loop, so none can be stored until all have been worked out.
+			int[] changedRegisters = closedFormLoop.getChangedRegisters();
+			Polynomial[] finalRegisterValues = closedFormLoop.getFinalRegisterValues();
+			this.maximumTemporaryCount = Math.max(this.maximumTemporaryCount, changedRegisters.length);
+			for (int changedRegisterIndex=0; changedRegisterIndex<changedRegisters.length; changedRegisterIndex++) {
+				finalRegisterValues[changedRegisters[changedRegisterIndex]].compile(code, this.registerSlots);
+				code.localInstruction(BytecodeClassBuilder.LSTORE, this.firstTemporarySlot + changedRegisterIndex * 2);
+			}
+			for (int changedRegisterIndex=0; changedRegisterIndex<changedRegisters.length; changedRegisterIndex++) {
+				code.localInstruction(BytecodeClassBuilder.LLOAD, this.firstTemporarySlot + changedRegisterIndex * 2);
+				code.localInstruction(BytecodeClassBuilder.LSTORE, this.registerSlots[changedRegisters[changedRegisterIndex]]);
+			}
+			this.goTo(closedFormLoop.getEndIndex() + 1);
+		}
+
+		// Returns whether the code falls through to the next instruction.
+		private boolean compileInstruction(Instruction instruction, int instructionIndex) {
+			BytecodeClassBuilder.Code code = this.code;
+			switch (instruction.getInstructionType()) {
+				case COPY_INTO_REGISTER:
+					CopyIntoRegisterInstruction copyIntoRegisterInstruction = (CopyIntoRegisterInstruction)instruction;
+					this.compileLongValue(copyIntoRegisterInstruction.getSource());
+					code.localInstruction(BytecodeClassBuilder.LSTORE, this.registerSlots[copyIntoRegisterInstruction.getDestinationRegister()]);
+					return true;
+				case INCREMENT_REGISTER:
+				case DECREMENT_REGISTER:
+					boolean increment = instruction.getInstructionType() == InstructionType.INCREMENT_REGISTER;
+					int registerSlot = this.registerSlots[increment ? ((IncrementRegisterInstruction)instruction).getRegister() : ((DecrementRegisterInstruction)instruction).getRegister()];
+					code.localInstruction(BytecodeClassBuilder.LLOAD, registerSlot);
+					code.pushLong(1);
+					code.instruction(increment ? BytecodeClassBuilder.LADD : BytecodeClassBuilder.LSUB);
+					code.localInstruction(BytecodeClassBuilder.LSTORE, registerSlot);
+					return true;
+				case NOOP:
+					return true;
+				case JUMP_ALWAYS:
+					this.compileJump(((AbstractJumpInstruction)instruction).getOffsetRetriever(), instructionIndex);
+					return false;
+				case JUMP_IF_REGISTER_NOT_ZERO:
+					BytecodeClassBuilder.Label notJumpingLabel = new BytecodeClassBuilder.Label();
+					code.localInstruction(BytecodeClassBuilder.LLOAD, this.registerSlots[((JumpIfRegisterNotZeroInstruction)instruction).getRegister()]);
+					code.pushLong(0);
+					code.instruction(BytecodeClassBuilder.LCMP);
+					code.branch(BytecodeClassBuilder.IFEQ, notJumpingLabel);
+					this.compileJump(((AbstractJumpInstruction)instruction).getOffsetRetriever(), instructionIndex);
+					code.placeLabel(notJumpingLabel);
+					return true;
+				default:
+					// Left to the interpreter.
+					code.branch(BytecodeClassBuilder.GOTO, this.getExitAtLabel(instructionIndex));
+					return false;
+			}
+		}
+
+		private void compileLongValue(LongValueRetriever longValueRetriever) {
+			if (longValueRetriever.getType() == ValueRetrieverType.STATIC) {
+				this.code.pushLong(((StaticLongValueRetriever)longValueRetriever).getValue());
+			}
+			else {
+				this.code.localInstruction(BytecodeClassBuilder.LLOAD, this.registerSlots[((RegisterLongValueRetriever)longValueRetriever).getRegister()]);
+			}
+		}
+
+		private void compileJump(IntValueRetriever offsetRetriever, int instructionIndex) {
+			BytecodeClassBuilder.Code code = this.code;
+			if (offsetRetriever.getType() == ValueRetrieverType.STATIC) {
+				this.goTo(instructionIndex + ((StaticIntValueRetriever)offsetRetriever).getIntValue());
+				return;
+			}
+			// An offset too large for an int is left to the interpreter to fail on.
+			int registerSlot = this.registerSlots[((RegisterIntValueRetriever)offsetRetriever).getRegister()];
+			code.localInstruction(BytecodeClassBuilder.LLOAD, registerSlot);
+			code.localInstruction(BytecodeClassBuilder.LLOAD, registerSlot);
+			code.instruction(BytecodeClassBuilder.L2I);
+			code.instruction(BytecodeClassBuilder.I2L);
+			code.instruction(BytecodeClassBuilder.LCMP);
+			code.branch(BytecodeClassBuilder.IFNE, this.getExitAtLabel(instructionIndex));
+			code.localInstruction(BytecodeClassBuilder.LLOAD, registerSlot);
+			code.instruction(BytecodeClassBuilder.L2I);
+			code.pushInt(instructionIndex);
+			code.instruction(BytecodeClassBuilder.IADD);
+			code.localInstruction(BytecodeClassBuilder.ISTORE, PC_SLOT);
+			code.branch(BytecodeClassBuilder.GOTO, this.dispatchLabel);
+		}
+	}
+
 	public static class InstructionPair {
 		private final Instruction normalInstruction;
 		private final Instruction toggledInstruction;
@@ -659,15 +1064,104 @@ public class AssembunnyComputer {
 		void handleOutput(long output);
 	}
 
+	// The outputs of a program that has been proven to repeat forever, as the outputs before the repeating part, and then one repeat of it.
+	public static final class PeriodicOutput {
+		private final long[] leadingOutputs;
+		private final long[] repeatingOutputs;
+
+		public PeriodicOutput(long[] leadingOutputs, long[] repeatingOutputs) {
+			this.leadingOutputs = leadingOutputs;
+			this.repeatingOutputs = repeatingOutputs;
+		}
+
+		public long[] getLeadingOutputs() {
+			return leadingOutputs;
+		}
+
+		public long[] getRepeatingOutputs() {
+			return repeatingOutputs;
+		}
+	}
+
+	private static final class OutputRecorder implements OutputHandler {
+		private final LongPredicate outputFilter;
+		private long[] outputs;
+		private int outputCount;
+		private boolean rejected;
+
+		public OutputRecorder(LongPredicate outputFilter) {
+			this.outputFilter = outputFilter;
+			this.outputs = new long[16];
+			this.outputCount = 0;
+			this.rejected = false;
+		}
+
+		@Override
+		public void handleOutput(long output) {
+			if (!this.outputFilter.test(output)) {
+				this.rejected = true;
+			}
+			if (this.outputCount == this.outputs.length) {
+				this.outputs = Arrays.copyOf(this.outputs, this.outputCount * 2);
+			}
+			this.outputs[this.outputCount++] = output;
+		}
+
+		public int getOutputCount() {
+			return outputCount;
+		}
+
+		public boolean isRejected() {
+			return rejected;
+		}
+
+		public PeriodicOutput createPeriodicOutput(int repeatStartOutputIndex) {
+			return new PeriodicOutput(Arrays.copyOf(this.outputs, repeatStartOutputIndex), Arrays.copyOfRange(this.outputs, repeatStartOutputIndex, this.outputCount));
+		}
+	}
+
+	// Everything that decides what a program does next. The instructions that are toggled are included, as a tgl changes the program itself.
+	private static final class StateFingerprint {
+		private final int pc;
+		private final long[] registers;
+		private final boolean[] instructionsToggled;
+		private final int hashCode;
+
+		public StateFingerprint(int pc, long[] registers, boolean[] instructionsToggled) {
+			this.pc = pc;
+			this.registers = registers.clone();
+			this.instructionsToggled = instructionsToggled.clone();
+			this.hashCode = (pc * 31 + Arrays.hashCode(registers)) * 31 + Arrays.hashCode(instructionsToggled);
+		}
+
+		@Override
+		public boolean equals(Object otherObject) {
+			if (!(otherObject instanceof StateFingerprint)) {
+				return false;
+			}
+			StateFingerprint otherStateFingerprint = (StateFingerprint)otherObject;
+			return this.pc == otherStateFingerprint.pc && Arrays.equals(this.registers, otherStateFingerprint.registers) && Arrays.equals(this.instructionsToggled, otherStateFingerprint.instructionsToggled);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
 	public static class State {
 		private final InstructionPair[] instructionsPairs;
 		private final Instruction[] programWithToggles;
-		private Instruction[] programWithTogglesAndOptimizations;
+		private final Instruction[] programWithTogglesAndOptimizations;
+		// The closed form of the loop that ends with the backward jump at each index, if it has one.
+		private final ClosedFormLoopInstruction[] closedFormLoopsByEndIndex;
 		private final boolean[] instructionsToggled;
 		private final int instructionCount;
 		private final long[] registers;
 		private int pc;
 		private OutputHandler outputHandler;
+		// Dropped as soon as a tgl changes the program.
+		private CompiledProgram compiledProgram;
 
 		public State(InstructionPair[] instructionsPairs, int registerCount) {
 			int instructionCount = instructionsPairs.length;
@@ -676,91 +1170,190 @@ public class AssembunnyComputer {
 			for (int instructionIndex=0; instructionIndex<instructionCount; instructionIndex++) {
 				this.programWithToggles[instructionIndex] = instructionsPairs[instructionIndex].getNormalInstruction();
 			}
+			this.programWithTogglesAndOptimizations = new Instruction[instructionCount];
+			this.closedFormLoopsByEndIndex = new ClosedFormLoopInstruction[instructionCount];
 			this.instructionsToggled = new boolean[instructionCount];
 			this.instructionCount = instructionCount;
-			this.optimize();
 			this.registers = new long[registerCount];
+			this.optimizeLoops(0, instructionCount-1);
 		}
 
-		private static boolean isInstructionJumpIfNotZeroOfRegisterAndOffset(Instruction instruction, int wantedRegister, int wantedOffset) {
+		// Returns the index a backward jump at the given index goes to, or -1 if there is no such jump.
+		private int getLoopStartIndex(int endIndex) {
+			Instruction instruction = this.programWithToggles[endIndex];
 			if (instruction.getInstructionType() != InstructionType.JUMP_IF_REGISTER_NOT_ZERO) {
-				return false;
-			}
-			JumpIfRegisterNotZeroInstruction jumpIfRegisterNotZeroInstruction = (JumpIfRegisterNotZeroInstruction)instruction;
-			if (jumpIfRegisterNotZeroInstruction.getRegister() != wantedRegister) {
-				return false;
+				return -1;
 			}
-			IntValueRetriever offsetRetriever = jumpIfRegisterNotZeroInstruction.getOffsetRetriever();
+			IntValueRetriever offsetRetriever = ((JumpIfRegisterNotZeroInstruction)instruction).getOffsetRetriever();
 			if (offsetRetriever.getType() != ValueRetrieverType.STATIC) {
-				return false;
+				return -1;
 			}
-			StaticIntValueRetriever staticOffsetRetriever = (StaticIntValueRetriever)offsetRetriever;
-			if (staticOffsetRetriever.getIntValue() != wantedOffset) {
-				return false;
+			int offset = ((StaticIntValueRetriever)offsetRetriever).getIntValue();
+			if (offset >= 0 || endIndex + offset < 0) {
+				return -1;
 			}
-			return true;
+			return endIndex + offset;
 		}
 
-		private void optimize() {
-			this.programWithTogglesAndOptimizations = this.programWithToggles;
-			boolean optimizationFound = false;
-			int iterationsForIncrementBy = this.instructionCount-3;
-			int iterationsForIncrementByMultiply = this.instructionCount-5;
-			int instructionIndexIncrease = 1;
-			for (int instructionIndex=0; instructionIndex<iterationsForIncrementBy; instructionIndex+=instructionIndexIncrease) {
-				instructionIndexIncrease = 1;
-				Instruction instruction1 = this.programWithTogglesAndOptimizations[instructionIndex];
-				Instruction instruction2 = this.programWithTogglesAndOptimizations[instructionIndex+1];
-				IncrementRegisterInstruction incrementRegisterInstruction;
-				DecrementRegisterInstruction decrementRegisterInstruction;
-				if (instruction1.getInstructionType() == InstructionType.INCREMENT_REGISTER && instruction2.getInstructionType() == InstructionType.DECREMENT_REGISTER) {
-					incrementRegisterInstruction = (IncrementRegisterInstruction)instruction1;
-					decrementRegisterInstruction = (DecrementRegisterInstruction)instruction2;
-				}
-				else if (instruction1.getInstructionType() == InstructionType.DECREMENT_REGISTER && instruction2.getInstructionType() == InstructionType.INCREMENT_REGISTER) {
-					decrementRegisterInstruction = (DecrementRegisterInstruction)instruction1;
-					incrementRegisterInstruction = (IncrementRegisterInstruction)instruction2;
+		// Works out afresh the closed form of every loop that includes any instruction in the given range, so a toggle only affects the loops around it. Inner loops are done before the loops around them, which build on them.
+		private void optimizeLoops(int fromIndex, int toIndex) {
+			List<int[]> loops = new ArrayList<>();
+			for (int endIndex=fromIndex; endIndex<this.instructionCount; endIndex++) {
+				ClosedFormLoopInstruction closedFormLoop = this.closedFormLoopsByEndIndex[endIndex];
+				if (closedFormLoop != null && closedFormLoop.getStartIndex() <= toIndex) {
+					this.closedFormLoopsByEndIndex[endIndex] = null;
 				}
-				else {
-					continue;
-				}
-				int resultRegister = incrementRegisterInstruction.getRegister();
-				int sourceRegister = decrementRegisterInstruction.getRegister();
-				if (resultRegister == sourceRegister) {
-					continue;
-				}
-				Instruction instruction3 = this.programWithToggles[instructionIndex+2];
-				if (!isInstructionJumpIfNotZeroOfRegisterAndOffset(instruction3, sourceRegister, -2)) {
-					continue;
-				}
-				if (!optimizationFound) {
-					optimizationFound = true;
-					this.programWithTogglesAndOptimizations = Arrays.copyOf(this.programWithTogglesAndOptimizations,this.instructionCount);
-				}
-				this.programWithTogglesAndOptimizations[instructionIndex+0] = new IncrementRegisterByInstruction(resultRegister,sourceRegister);
-				this.programWithTogglesAndOptimizations[instructionIndex+1] = OptimizedAwayInstruction.INSTANCE;
-				this.programWithTogglesAndOptimizations[instructionIndex+2] = OptimizedAwayInstruction.INSTANCE;
-				instructionIndexIncrease = 3;
-				if (instructionIndex < iterationsForIncrementByMultiply) {
-					Instruction instruction4 = this.programWithTogglesAndOptimizations[instructionIndex+3];
-					if (instruction4.getInstructionType() != InstructionType.DECREMENT_REGISTER) {
-						continue;
+				int startIndex = this.getLoopStartIndex(endIndex);
+				if (startIndex >= 0 && startIndex <= toIndex) {
+					loops.add(new int[]{startIndex, endIndex});
+				}
+			}
+			loops.sort(Comparator.comparingInt(loop -> loop[1] - loop[0]));
+			for (int[] loop : loops) {
+				this.closedFormLoopsByEndIndex[loop[1]] = this.findClosedFormLoop(loop[0], loop[1]);
+			}
+			System.arraycopy(this.programWithToggles, 0, this.programWithTogglesAndOptimizations, 0, this.instructionCount);
+			// Where several loops start at the same instruction, the outermost wins.
+			for (ClosedFormLoopInstruction closedFormLoop : this.closedFormLoopsByEndIndex) {
+				if (closedFormLoop != null) {
+					this.programWithTogglesAndOptimizations[closedFormLoop.getStartIndex()] = closedFormLoop;
+				}
+			}
+		}
+
+		private ClosedFormLoopInstruction findOutermostClosedFormLoop(int startIndex, int maximumEndIndex) {
+			for (int endIndex=maximumEndIndex; endIndex>=startIndex; endIndex--) {
+				ClosedFormLoopInstruction closedFormLoop = this.closedFormLoopsByEndIndex[endIndex];
+				if (closedFormLoop != null && closedFormLoop.getStartIndex() == startIndex) {
+					return closedFormLoop;
+				}
+			}
+			return null;
+		}
+
+		// Updates the register values for running the given instruction, or returns false if it is not one that can be worked out ahead of time.
+		private static boolean runSymbolically(Instruction instruction, Polynomial[] registerValues) {
+			switch (instruction.getInstructionType()) {
+				case COPY_INTO_REGISTER:
+					CopyIntoRegisterInstruction copyIntoRegisterInstruction = (CopyIntoRegisterInstruction)instruction;
+					LongValueRetriever source = copyIntoRegisterInstruction.getSource();
+					if (source.getType() == ValueRetrieverType.STATIC) {
+						registerValues[copyIntoRegisterInstruction.getDestinationRegister()] = Polynomial.constant(((StaticLongValueRetriever)source).getValue());
 					}
-					DecrementRegisterInstruction decrementRegisterInstruction2 = (DecrementRegisterInstruction)instruction4;
-					int sourceRegister2 = decrementRegisterInstruction2.getRegister();
-					if (sourceRegister2 == sourceRegister || sourceRegister2 == resultRegister) {
-						continue;
+					else {
+						registerValues[copyIntoRegisterInstruction.getDestinationRegister()] = registerValues[((RegisterLongValueRetriever)source).getRegister()];
+					}
+					return true;
+				case INCREMENT_REGISTER:
+					int incrementedRegister = ((IncrementRegisterInstruction)instruction).getRegister();
+					registerValues[incrementedRegister] = registerValues[incrementedRegister].add(1);
+					return true;
+				case DECREMENT_REGISTER:
+					int decrementedRegister = ((DecrementRegisterInstruction)instruction).getRegister();
+					registerValues[decrementedRegister] = registerValues[decrementedRegister].add(-1);
+					return true;
+				case NOOP:
+					return true;
+				default:
+					return false;
+			}
+		}
+
+		// Runs one iteration of the loop symbolically, using the closed forms of any inner loops, to get each register's value at the end of the iteration in terms of its values at the start.
+		// A loop has a closed form if its counter goes up or down by exactly one each iteration, and every other register either stays the same, has the same amount added each iteration, or is set to the same value each iteration.
+		private ClosedFormLoopInstruction findClosedFormLoop(int startIndex, int endIndex) {
+			int registerCount = this.registers.length;
+			Polynomial[] initialRegisterValues = new Polynomial[registerCount];
+			for (int register=0; register<registerCount; register++) {
+				initialRegisterValues[register] = Polynomial.register(register);
+			}
+			Polynomial[] registerValues = initialRegisterValues.clone();
+			List<Polynomial> conditions = new ArrayList<>();
+			int instructionIndex = startIndex;
+			while (instructionIndex < endIndex) {
+				ClosedFormLoopInstruction innerClosedFormLoop = this.findOutermostClosedFormLoop(instructionIndex, endIndex-1);
+				if (innerClosedFormLoop != null) {
+					for (Polynomial condition : innerClosedFormLoop.getConditions()) {
+						Polynomial substitutedCondition = condition.substitute(registerValues);
+						if (substitutedCondition == null) {
+							return null;
+						}
+						conditions.add(substitutedCondition);
 					}
-					Instruction instruction5 = this.programWithToggles[instructionIndex+4];
-					if (!isInstructionJumpIfNotZeroOfRegisterAndOffset(instruction5, sourceRegister2, -5)) {
-						continue;
+					Polynomial[] newRegisterValues = new Polynomial[registerCount];
+					for (int register=0; register<registerCount; register++) {
+						newRegisterValues[register] = innerClosedFormLoop.getFinalRegisterValues()[register].substitute(registerValues);
+						if (newRegisterValues[register] == null) {
+							return null;
+						}
 					}
-					this.programWithTogglesAndOptimizations[instructionIndex+0] = new IncrementRegisterByMultiplicationInstruction(resultRegister, sourceRegister, sourceRegister2);
-					this.programWithTogglesAndOptimizations[instructionIndex+3] = OptimizedAwayInstruction.INSTANCE;
-					this.programWithTogglesAndOptimizations[instructionIndex+4] = OptimizedAwayInstruction.INSTANCE;
-					instructionIndexIncrease = 5;
+					registerValues = newRegisterValues;
+					instructionIndex = innerClosedFormLoop.getEndIndex() + 1;
 				}
+				else if (runSymbolically(this.programWithToggles[instructionIndex], registerValues)) {
+					instructionIndex++;
+				}
+				else {
+					return null;
+				}
+			}
+			long invariantRegisterMask = 0;
+			for (int register=0; register<registerCount; register++) {
+				if (registerValues[register].equals(initialRegisterValues[register])) {
+					invariantRegisterMask |= 1L << register;
+				}
+			}
+			int counterRegister = ((JumpIfRegisterNotZeroInstruction)this.programWithToggles[endIndex]).getRegister();
+			Polynomial counterStep = registerValues[counterRegister].subtract(initialRegisterValues[counterRegister]);
+			Polynomial iterationCount;
+			if (counterStep.equals(Polynomial.constant(-1))) {
+				iterationCount = initialRegisterValues[counterRegister];
+			}
+			else if (counterStep.equals(Polynomial.constant(1))) {
+				iterationCount = initialRegisterValues[counterRegister].multiply(Polynomial.constant(-1));
 			}
+			else {
+				return null;
+			}
+			Polynomial[] finalRegisterValues = new Polynomial[registerCount];
+			for (int register=0; register<registerCount; register++) {
+				Polynomial registerStep = registerValues[register].subtract(initialRegisterValues[register]);
+				if (register == counterRegister) {
+					finalRegisterValues[register] = Polynomial.constant(0);
+				}
+				else if ((registerStep.getRegisterMask() & ~invariantRegisterMask) == 0) {
+					Polynomial totalRegisterStep = iterationCount.multiply(registerStep);
+					if (totalRegisterStep == null) {
+						return null;
+					}
+					finalRegisterValues[register] = initialRegisterValues[register].add(totalRegisterStep);
+				}
+				else if ((registerValues[register].getRegisterMask() & ~invariantRegisterMask) == 0) {
+					finalRegisterValues[register] = registerValues[register];
+				}
+				else {
+					return null;
+				}
+			}
+			// The conditions of inner loops are checked once before the whole loop, so must be the same for every iteration.
+			for (Polynomial condition : conditions) {
+				if ((condition.getRegisterMask() & ~invariantRegisterMask) != 0) {
+					return null;
+				}
+			}
+			conditions.add(iterationCount);
+			List<Polynomial> remainingConditions = new ArrayList<>();
+			for (Polynomial condition : conditions) {
+				if (condition.isConstant()) {
+					if (condition.evaluate(this) <= 0) {
+						return null;
+					}
+				}
+				else if (!remainingConditions.contains(condition)) {
+					remainingConditions.add(condition);
+				}
+			}
+			return new ClosedFormLoopInstruction(startIndex, endIndex, remainingConditions.toArray(new Polynomial[0]), finalRegisterValues);
 		}
 
 		public void toggleInstruction(int index) {
@@ -773,11 +1366,13 @@ public class AssembunnyComputer {
 				instruction = instructionPair.getNormalInstruction();
 			}
 			this.programWithToggles[index] = instruction;
-			this.optimize();
+			this.optimizeLoops(index, index);
+			this.compiledProgram = null;
 		}
 
-		public void deoptimize() {
-			this.programWithTogglesAndOptimizations = this.programWithToggles;
+		// For when an optimization cannot be used, such as a loop that would not end.
+		public void runUnoptimizedInstruction() {
+			this.programWithToggles[this.pc].run(this);
 		}
 
 		public boolean isValidInstructionIndex(int index) {
@@ -815,6 +1410,55 @@ public class AssembunnyComputer {
 		public OutputHandler getOutputHandler() {
 			return this.outputHandler;
 		}
+
+		// Compiles the program as it now stands to JVM bytecode, which then runs in place of the interpreter until a tgl changes the program. A program too large to compile is left to the interpreter.
+		public void compile() {
+			try {
+				this.compiledProgram = BytecodeCompiler.compile(this.programWithTogglesAndOptimizations.clone(), this.programWithToggles.clone(), this.registers.length);
+			} catch (IllegalStateException ex) {
+				this.compiledProgram = null;
+			}
+		}
+
+		public void runUntilTermination() {
+			while (this.isValidInstructionIndex(this.pc)) {
+				CompiledProgram compiledProgram = this.compiledProgram;
+				if (compiledProgram != null) {
+					this.pc = compiledProgram.run(this.registers, this.pc);
+					if (!this.isValidInstructionIndex(this.pc)) {
+						break;
+					}
+				}
+				this.programWithTogglesAndOptimizations[this.pc].run(this);
+			}
+		}
+
+		// Runs until the program reaches an out instruction in exactly the same state as it was at an earlier one. As the program is deterministic, the outputs in between then repeat forever.
+		// Each output is passed to the output filter rather than the output handler. Returns null if the filter rejects an output, so that a program can be given up on as soon as its output is wrong, or if the program ends or runs more than the maximum number of instructions.
+		public PeriodicOutput runUntilOutputRepeats(LongPredicate outputFilter, long maximumInstructionCount) {
+			Map<StateFingerprint,Integer> outputCountsByStateFingerprint = new HashMap<>();
+			OutputRecorder outputRecorder = new OutputRecorder(outputFilter);
+			OutputHandler originalOutputHandler = this.outputHandler;
+			this.outputHandler = outputRecorder;
+			try {
+				for (long instructionCount=0; instructionCount<maximumInstructionCount && this.isValidInstructionIndex(this.pc); instructionCount++) {
+					Instruction instruction = this.programWithTogglesAndOptimizations[this.pc];
+					if (instruction.getInstructionType() == InstructionType.OUT) {
+						Integer earlierOutputCount = outputCountsByStateFingerprint.putIfAbsent(new StateFingerprint(this.pc, this.registers, this.instructionsToggled), outputRecorder.getOutputCount());
+						if (earlierOutputCount != null) {
+							return outputRecorder.createPeriodicOutput(earlierOutputCount);
+						}
+					}
+					instruction.run(this);
+					if (outputRecorder.isRejected()) {
+						return null;
+					}
+				}
+				return null;
+			} finally {
+				this.outputHandler = originalOutputHandler;
+			}
+		}
 	}
 
 	private static final Map<String,InstructionFactory> INSTRUCTION_FACTORY_MAP = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
@@ -886,15 +1530,16 @@ public class AssembunnyComputer {
 	}
 
 	public static long runProgramUntilTerminationWithIORegisters(InstructionPair[] instructionsPairs, int registerCount, int inputRegisterIndex, int outputRegisterIndex, long inputValue) {
+		return runProgramUntilTerminationWithIORegisters(instructionsPairs, registerCount, inputRegisterIndex, outputRegisterIndex, inputValue, ExecutionBackend.INTERPRETER);
+	}
+
+	public static long runProgramUntilTerminationWithIORegisters(InstructionPair[] instructionsPairs, int registerCount, int inputRegisterIndex, int outputRegisterIndex, long inputValue, ExecutionBackend executionBackend) {
 		State state = new State(instructionsPairs, registerCount);
 		state.setRegisterValue(inputRegisterIndex, inputValue);
-		while (true) {
-			int pc = state.getPC();
-			if (!state.isValidInstructionIndex(pc)) {
-				break;
-			}
-			state.getInstruction(pc).run(state);
+		if (executionBackend == ExecutionBackend.BYTECODE) {
+			state.compile();
 		}
+		state.runUntilTermination();
 		return state.getRegisterValue(outputRegisterIndex);
 	}
 }
@@ -0,0 +1,391 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Builds just enough of a JVM class file for the interpreters to compile programs into: a final class in this package with a no argument constructor and a single method implementing an interface, which is then loaded as a hidden class.
+// The class file version predates stack map frames, so the JVM works out the types at each branch target itself, and the generated code does not have to describe them.
+final class BytecodeClassBuilder {
+	private static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+	private static final int CLASS_FILE_MAJOR_VERSION = 49;
+	private static final int ACCESS_PUBLIC = 0x0001;
+	private static final int ACCESS_FINAL = 0x0010;
+	private static final int ACCESS_SUPER = 0x0020;
+	private static final int MAXIMUM_CODE_LENGTH = 65535;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_METHOD_REF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	static final int ICONST_0 = 0x03;
+	static final int LCONST_0 = 0x09;
+	static final int LCONST_1 = 0x0A;
+	static final int BIPUSH = 0x10;
+	static final int SIPUSH = 0x11;
+	static final int LDC_W = 0x13;
+	static final int LDC2_W = 0x14;
+	static final int ILOAD = 0x15;
+	static final int LLOAD = 0x16;
+	static final int ALOAD = 0x19;
+	static final int LALOAD = 0x2F;
+	static final int BALOAD = 0x33;
+	static final int ISTORE = 0x36;
+	static final int LSTORE = 0x37;
+	static final int IASTORE = 0x4F;
+	static final int LASTORE = 0x50;
+	static final int IADD = 0x60;
+	static final int LADD = 0x61;
+	static final int LSUB = 0x65;
+	static final int LMUL = 0x69;
+	static final int I2L = 0x85;
+	static final int L2I = 0x88;
+	static final int LCMP = 0x94;
+	static final int IFEQ = 0x99;
+	static final int IFNE = 0x9A;
+	static final int IFLT = 0x9B;
+	static final int IFGE = 0x9C;
+	static final int IFLE = 0x9E;
+	static final int IF_ICMPGE = 0xA2;
+	static final int GOTO = 0xA7;
+	static final int TABLESWITCH = 0xAA;
+	static final int LOOKUPSWITCH = 0xAB;
+	static final int IRETURN = 0xAC;
+	static final int RETURN = 0xB1;
+	static final int INVOKESPECIAL = 0xB7;
+	static final int ARRAYLENGTH = 0xBE;
+
+	private final String className;
+	private final String interfaceName;
+	private final List<byte[]> constants;
+	private final Map<String,Integer> constantIndexes;
+	private int nextConstantIndex;
+
+	// The interface must be visible to this package, as that is where the class is defined. The JVM adds a suffix to the name to make it unique.
+	BytecodeClassBuilder(String simpleClassName, Class<?> interfaceClass) {
+		this.interfaceName = interfaceClass.getName().replace('.', '/');
+		this.className = BytecodeClassBuilder.class.getPackage().getName().replace('.', '/') + "/" + simpleClassName;
+		this.constants = new ArrayList<>();
+		this.constantIndexes = new HashMap<>();
+		this.nextConstantIndex = 1;
+	}
+
+	static final class Label {
+		private int position = -1;
+	}
+
+	private static final class BranchFixup {
+		private final int instructionPosition;
+		private final int offsetPosition;
+		private final boolean wide;
+		private final Label label;
+
+		private BranchFixup(int instructionPosition, int offsetPosition, boolean wide, Label label) {
+			this.instructionPosition = instructionPosition;
+			this.offsetPosition = offsetPosition;
+			this.wide = wide;
+			this.label = label;
+		}
+	}
+
+	// The code of the one method. Branches are written with placeholder offsets, which are filled in once every label has been placed.
+	final class Code {
+		private byte[] bytes = new byte[1024];
+		private int length = 0;
+		private final List<BranchFixup> branchFixups = new ArrayList<>();
+
+		private void writeByte(int value) {
+			if (this.length == this.bytes.length) {
+				this.bytes = Arrays.copyOf(this.bytes, this.length * 2);
+			}
+			this.bytes[this.length++] = (byte) value;
+		}
+
+		private void writeShort(int value) {
+			this.writeByte(value >>> 8);
+			this.writeByte(value);
+		}
+
+		private void writeInt(int value) {
+			this.writeShort(value >>> 16);
+			this.writeShort(value);
+		}
+
+		void instruction(int opcode) {
+			this.writeByte(opcode);
+		}
+
+		void localInstruction(int opcode, int slot) {
+			if (slot > 255) {
+				throw new IllegalStateException("Too many locals");
+			}
+			this.writeByte(opcode);
+			this.writeByte(slot);
+		}
+
+		void pushInt(int value) {
+			if (value >= -1 && value <= 5) {
+				this.writeByte(ICONST_0 + value);
+			}
+			else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				this.writeByte(BIPUSH);
+				this.writeByte(value);
+			}
+			else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				this.writeByte(SIPUSH);
+				this.writeShort(value);
+			}
+			else {
+				this.writeByte(LDC_W);
+				this.writeShort(BytecodeClassBuilder.this.addIntegerConstant(value));
+			}
+		}
+
+		void pushLong(long value) {
+			if (value == 0) {
+				this.writeByte(LCONST_0);
+			}
+			else if (value == 1) {
+				this.writeByte(LCONST_1);
+			}
+			else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+				this.pushInt((int) value);
+				this.writeByte(I2L);
+			}
+			else {
+				this.writeByte(LDC2_W);
+				this.writeShort(BytecodeClassBuilder.this.addLongConstant(value));
+			}
+		}
+
+		void placeLabel(Label label) {
+			if (label.position >= 0) {
+				throw new IllegalStateException("Label already placed");
+			}
+			label.position = this.length;
+		}
+
+		boolean isPlaced(Label label) {
+			return label.position >= 0;
+		}
+
+		void branch(int opcode, Label label) {
+			int instructionPosition = this.length;
+			this.writeByte(opcode);
+			this.branchFixups.add(new BranchFixup(instructionPosition, this.length, false, label));
+			this.writeShort(0);
+		}
+
+		// A table switch when the keys are dense enough, as it jumps straight to the label rather than searching for the key.
+		void switchOn(int[] sortedKeys, Label[] labels, Label defaultLabel) {
+			if (sortedKeys.length == 0 || (long) sortedKeys[sortedKeys.length - 1] - sortedKeys[0] >= sortedKeys.length * 4L) {
+				this.lookupSwitch(sortedKeys, labels, defaultLabel);
+				return;
+			}
+			int instructionPosition = this.length;
+			this.writeByte(TABLESWITCH);
+			while (this.length % 4 != 0) {
+				this.writeByte(0);
+			}
+			this.branchFixups.add(new BranchFixup(instructionPosition, this.length, true, defaultLabel));
+			this.writeInt(0);
+			int lowKey = sortedKeys[0];
+			int highKey = sortedKeys[sortedKeys.length - 1];
+			this.writeInt(lowKey);
+			this.writeInt(highKey);
+			int keyIndex = 0;
+			for (int key = lowKey; key <= highKey; key++) {
+				Label label = defaultLabel;
+				if (sortedKeys[keyIndex] == key) {
+					label = labels[keyIndex++];
+				}
+				this.branchFixups.add(new BranchFixup(instructionPosition, this.length, true, label));
+				this.writeInt(0);
+			}
+		}
+
+		private void lookupSwitch(int[] sortedKeys, Label[] labels, Label defaultLabel) {
+			int instructionPosition = this.length;
+			this.writeByte(LOOKUPSWITCH);
+			while (this.length % 4 != 0) {
+				this.writeByte(0);
+			}
+			this.branchFixups.add(new BranchFixup(instructionPosition, this.length, true, defaultLabel));
+			this.writeInt(0);
+			this.writeInt(sortedKeys.length);
+			for (int keyIndex = 0; keyIndex < sortedKeys.length; keyIndex++) {
+				this.writeInt(sortedKeys[keyIndex]);
+				this.branchFixups.add(new BranchFixup(instructionPosition, this.length, true, labels[keyIndex]));
+				this.writeInt(0);
+			}
+		}
+
+		private byte[] resolve() {
+			if (this.length > MAXIMUM_CODE_LENGTH) {
+				throw new IllegalStateException("Method too large");
+			}
+			for (BranchFixup branchFixup : this.branchFixups) {
+				if (branchFixup.label.position < 0) {
+					throw new IllegalStateException("Label never placed");
+				}
+				int offset = branchFixup.label.position - branchFixup.instructionPosition;
+				if (branchFixup.wide) {
+					for (int byteIndex = 0; byteIndex < 4; byteIndex++) {
+						this.bytes[branchFixup.offsetPosition + byteIndex] = (byte) (offset >>> (24 - byteIndex * 8));
+					}
+				}
+				else {
+					if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+						throw new IllegalStateException("Branch too far");
+					}
+					this.bytes[branchFixup.offsetPosition] = (byte) (offset >>> 8);
+					this.bytes[branchFixup.offsetPosition + 1] = (byte) offset;
+				}
+			}
+			return Arrays.copyOf(this.bytes, this.length);
+		}
+	}
+
+	Code createCode() {
+		return new Code();
+	}
+
+	private int addConstant(String key, byte[] bytes, int slotCount) {
+		Integer existingIndex = this.constantIndexes.get(key);
+		if (existingIndex != null) {
+			return existingIndex;
+		}
+		int index = this.nextConstantIndex;
+		this.nextConstantIndex += slotCount;
+		this.constants.add(bytes);
+		this.constantIndexes.put(key, index);
+		return index;
+	}
+
+	private static byte[] toBytes(IOWriter ioWriter) {
+		ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+		try (DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream)) {
+			ioWriter.write(dataOutputStream);
+		} catch (IOException ex) {
+			throw new IllegalStateException("Unable to write to memory", ex);
+		}
+		return byteArrayOutputStream.toByteArray();
+	}
+
+	private static interface IOWriter {
+		void write(DataOutputStream dataOutputStream) throws IOException;
+	}
+
+	private int addUtf8Constant(String value) {
+		return this.addConstant("Utf8:" + value, toBytes(dataOutputStream -> {
+			dataOutputStream.writeByte(CONSTANT_UTF8);
+			dataOutputStream.writeUTF(value);
+		}), 1);
+	}
+
+	private int addIntegerConstant(int value) {
+		return this.addConstant("Integer:" + value, toBytes(dataOutputStream -> {
+			dataOutputStream.writeByte(CONSTANT_INTEGER);
+			dataOutputStream.writeInt(value);
+		}), 1);
+	}
+
+	private int addLongConstant(long value) {
+		return this.addConstant("Long:" + value, toBytes(dataOutputStream -> {
+			dataOutputStream.writeByte(CONSTANT_LONG);
+			dataOutputStream.writeLong(value);
+		}), 2);
+	}
+
+	private int addClassConstant(String internalName) {
+		int nameIndex = this.addUtf8Constant(internalName);
+		return this.addConstant("Class:" + internalName, toBytes(dataOutputStream -> {
+			dataOutputStream.writeByte(CONSTANT_CLASS);
+			dataOutputStream.writeShort(nameIndex);
+		}), 1);
+	}
+
+	private int addMethodRefConstant(String ownerInternalName, String name, String descriptor) {
+		int classIndex = this.addClassConstant(ownerInternalName);
+		int nameIndex = this.addUtf8Constant(name);
+		int descriptorIndex = this.addUtf8Constant(descriptor);
+		int nameAndTypeIndex = this.addConstant("NameAndType:" + name + ":" + descriptor, toBytes(dataOutputStream -> {
+			dataOutputStream.writeByte(CONSTANT_NAME_AND_TYPE);
+			dataOutputStream.writeShort(nameIndex);
+			dataOutputStream.writeShort(descriptorIndex);
+		}), 1);
+		return this.addConstant("MethodRef:" + ownerInternalName + ":" + name + ":" + descriptor, toBytes(dataOutputStream -> {
+			dataOutputStream.writeByte(CONSTANT_METHOD_REF);
+			dataOutputStream.writeShort(classIndex);
+			dataOutputStream.writeShort(nameAndTypeIndex);
+		}), 1);
+	}
+
+	// Defines the class with the given code as its implementation of the interface method, and returns a new instance of it.
+	<T> T buildInstance(Class<T> interfaceClass, String methodName, String methodDescriptor, Code code, int maximumStackSize, int maximumLocalCount) {
+		byte[] methodCode = code.resolve();
+		Code constructorCode = new Code();
+		constructorCode.localInstruction(ALOAD, 0);
+		constructorCode.instruction(INVOKESPECIAL);
+		constructorCode.writeShort(this.addMethodRefConstant("java/lang/Object", "<init>", "()V"));
+		constructorCode.instruction(RETURN);
+		byte[] constructorMethodCode = constructorCode.resolve();
+		int thisClassIndex = this.addClassConstant(this.className);
+		int superClassIndex = this.addClassConstant("java/lang/Object");
+		int interfaceIndex = this.addClassConstant(this.interfaceName);
+		int codeAttributeNameIndex = this.addUtf8Constant("Code");
+		int constructorNameIndex = this.addUtf8Constant("<init>");
+		int constructorDescriptorIndex = this.addUtf8Constant("()V");
+		int methodNameIndex = this.addUtf8Constant(methodName);
+		int methodDescriptorIndex = this.addUtf8Constant(methodDescriptor);
+		byte[] classBytes = toBytes(dataOutputStream -> {
+			dataOutputStream.writeInt(CLASS_FILE_MAGIC);
+			dataOutputStream.writeShort(0);
+			dataOutputStream.writeShort(CLASS_FILE_MAJOR_VERSION);
+			dataOutputStream.writeShort(this.nextConstantIndex);
+			for (byte[] constant : this.constants) {
+				dataOutputStream.write(constant);
+			}
+			dataOutputStream.writeShort(ACCESS_FINAL | ACCESS_SUPER);
+			dataOutputStream.writeShort(thisClassIndex);
+			dataOutputStream.writeShort(superClassIndex);
+			dataOutputStream.writeShort(1);
+			dataOutputStream.writeShort(interfaceIndex);
+			dataOutputStream.writeShort(0);
+			dataOutputStream.writeShort(2);
+			writeMethod(dataOutputStream, constructorNameIndex, constructorDescriptorIndex, codeAttributeNameIndex, constructorMethodCode, 1, 1);
+			writeMethod(dataOutputStream, methodNameIndex, methodDescriptorIndex, codeAttributeNameIndex, methodCode, maximumStackSize, maximumLocalCount);
+			dataOutputStream.writeShort(0);
+		});
+		try {
+			Class<?> definedClass = MethodHandles.lookup().defineHiddenClass(classBytes, true).lookupClass();
+			return interfaceClass.cast(definedClass.getDeclaredConstructor().newInstance());
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException("Unable to define compiled class", ex);
+		}
+	}
+
+	private static void writeMethod(DataOutputStream dataOutputStream, int nameIndex, int descriptorIndex, int codeAttributeNameIndex, byte[] methodCode, int maximumStackSize, int maximumLocalCount) throws IOException {
+		dataOutputStream.writeShort(ACCESS_PUBLIC);
+		dataOutputStream.writeShort(nameIndex);
+		dataOutputStream.writeShort(descriptorIndex);
+		dataOutputStream.writeShort(1);
+		dataOutputStream.writeShort(codeAttributeNameIndex);
+		dataOutputStream.writeInt(12 + methodCode.length);
+		dataOutputStream.writeShort(maximumStackSize);
+		dataOutputStream.writeShort(maximumLocalCount);
+		dataOutputStream.writeInt(methodCode.length);
+		dataOutputStream.write(methodCode);
+		dataOutputStream.writeShort(0);
+		dataOutputStream.writeShort(0);
+	}
+}
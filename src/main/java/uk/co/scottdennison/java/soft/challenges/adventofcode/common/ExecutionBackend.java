@@ -0,0 +1,7 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+// How AssembunnyComputer and IntcodeComputer run a program. Compiling to JVM bytecode costs far more up front than interpreting, so only pays off for programs that run for a long time without modifying themselves, and anything the compiled code cannot handle is left to the interpreter.
+public enum ExecutionBackend {
+	INTERPRETER,
+	BYTECODE
+}
@@ -1,9 +1,15 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
 
-import java.util.ArrayList;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
 
 public class IntcodeComputer {
     public static enum State {
@@ -31,6 +37,63 @@ public class IntcodeComputer {
         }
     }
 
+    // Where a computer takes its input values from. When none are available, the computer pauses in the AWAITING_INPUT state until there are.
+    public static interface InputSource extends LongSupplier {
+        boolean hasInput();
+    }
+
+    // A first in first out queue of values, held in a primitive ring buffer so that no value is ever boxed. Every computer has one as its own input source, and a computer's outputs can be sent straight to another's input channel to connect the two.
+    public static final class Channel implements InputSource, LongConsumer {
+        private long[] values;
+        private int head;
+        private int size;
+
+        public Channel() {
+            this.values = new long[16];
+            this.head = 0;
+            this.size = 0;
+        }
+
+        private Channel(Channel original) {
+            this.values = original.values.clone();
+            this.head = original.head;
+            this.size = original.size;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public boolean hasInput() {
+            return this.size > 0;
+        }
+
+        @Override
+        public void accept(long value) {
+            if (this.size == this.values.length) {
+                long[] newValues = new long[this.values.length * 2];
+                int firstPartLength = this.values.length - this.head;
+                System.arraycopy(this.values, this.head, newValues, 0, firstPartLength);
+                System.arraycopy(this.values, 0, newValues, firstPartLength, this.head);
+                this.values = newValues;
+                this.head = 0;
+            }
+            this.values[(this.head + this.size++) & (this.values.length - 1)] = value;
+        }
+
+        @Override
+        public long getAsLong() {
+            if (this.size == 0) {
+                throw new NoSuchElementException("The channel is empty.");
+            }
+            long value = this.values[this.head];
+            this.head = (this.head + 1) & (this.values.length - 1);
+            this.size--;
+            return value;
+        }
+    }
+
     private static final long[] POWERS_OF_10 = {
         1L,
         10L,
@@ -53,47 +116,120 @@ public class IntcodeComputer {
         1000000000000000000L
     };
 
+    private static final int NOT_DECODED = 0;
+    private static final int OPCODE_MASK = 0x7F;
+    private static final int PARAMETER_MODES_SHIFT = 7;
+
     private long[] memory;
-    private final List<Long> inputs;
-    private final List<Long> outputs;
+    // The decoded form of the intcode at each address that has been run as an instruction, or NOT_DECODED.
+    private int[] decodedInstructions;
+    // Whether the memory and decoded instructions may be shared with a fork, so must be copied before they are next written to.
+    private boolean memoryShared;
+    private final Channel inputChannel;
+    private InputSource inputSource;
+    // Outputs are only recorded here if there is no output consumer.
+    private long[] outputs;
+    private int outputCount;
+    private LongConsumer outputConsumer;
 
     private State state;
     private boolean inputsLocked;
     private long instructionPointer;
-    private int inputPointer;
     private long relativeBase;
-
-    private long currentIntcode;
+    // Only set while the bytecode backend is in use and the code it was compiled from is unchanged. Shared with forks, as it never changes.
+    private Compilation compilation;
 
     public IntcodeComputer(long[] memory) {
         this.memory = Arrays.copyOf(memory, memory.length);
-        this.inputs = new ArrayList<>();
-        this.outputs = new ArrayList<>();
+        this.decodedInstructions = new int[memory.length];
+        this.inputChannel = new Channel();
+        this.inputSource = this.inputChannel;
+        this.outputs = new long[16];
+        this.outputCount = 0;
+        this.outputConsumer = null;
         this.instructionPointer = 0;
-        this.inputPointer = 0;
         this.relativeBase = 0;
         this.state = State.NOT_STARTED;
     }
 
+    private IntcodeComputer(IntcodeComputer original) {
+        this.memory = original.memory;
+        this.decodedInstructions = original.decodedInstructions;
+        this.memoryShared = true;
+        original.memoryShared = true;
+        this.inputChannel = new Channel(original.inputChannel);
+        // A fork reads from the same external input source as the original, if it has one.
+        this.inputSource = original.inputSource == original.inputChannel ? this.inputChannel : original.inputSource;
+        this.outputs = original.outputs.clone();
+        this.outputCount = original.outputCount;
+        this.outputConsumer = original.outputConsumer;
+        this.state = original.state;
+        this.inputsLocked = original.inputsLocked;
+        this.instructionPointer = original.instructionPointer;
+        this.relativeBase = original.relativeBase;
+        this.compilation = original.compilation;
+    }
+
+    // Creates a copy of this computer, in exactly the same state, that then runs independently of it. The two share their memory until either writes to it, so forking is cheap enough to save re-running the common start of a program, such as everything before it reads an input that varies.
+    // A fork that is never run can be kept as a snapshot to fork again from.
+    public IntcodeComputer fork() {
+        return new IntcodeComputer(this);
+    }
+
     private void ensureInputsUnlocked() {
         if (this.inputsLocked) {
             throw new IllegalStateException("This operation cannot be done while inputs are locked.");
         }
     }
 
+    // The inputs added here go to the computer's own input channel, which is only read from while it is the input source.
     public void addInput(long input) {
         this.ensureInputsUnlocked();
-        this.inputs.add(input);
+        this.inputChannel.accept(input);
     }
 
     public void addInputs(long... inputs) {
         this.ensureInputsUnlocked();
-        Arrays.stream(inputs).boxed().forEach(this.inputs::add);
+        for (long input : inputs) {
+            this.inputChannel.accept(input);
+        }
     }
 
     public void addInputs(Collection<Long> inputs) {
         this.ensureInputsUnlocked();
-        this.inputs.addAll(inputs);
+        for (long input : inputs) {
+            this.inputChannel.accept(input);
+        }
+    }
+
+    public Channel getInputChannel() {
+        return this.inputChannel;
+    }
+
+    public void setInputSource(InputSource inputSource) {
+        this.inputSource = inputSource;
+    }
+
+    public boolean hasInput() {
+        return this.inputSource.hasInput();
+    }
+
+    // Sends each output to the given consumer, such as another computer's input channel, rather than recording it to be read with getOutput. Pass null to go back to recording outputs.
+    public void setOutputConsumer(LongConsumer outputConsumer) {
+        this.outputConsumer = outputConsumer;
+    }
+
+    // With the bytecode backend, the program is compiled from the memory as it now is, starting from the current instruction. It is only worth it for programs that do a lot of work between inputs and outputs, as compiling takes far longer than interpreting most programs.
+    // Anything written over the compiled code, by the program or with setMemory, drops it and leaves the rest of the run to the interpreter, as does a program too large to compile.
+    public void setExecutionBackend(ExecutionBackend executionBackend) {
+        this.compilation = null;
+        if (executionBackend == ExecutionBackend.BYTECODE) {
+            try {
+                this.compilation = BytecodeCompiler.compile(this.memory, this.instructionPointer);
+            } catch (IllegalStateException ex) {
+                this.compilation = null;
+            }
+        }
     }
 
     public void lockInputs() {
@@ -104,12 +240,19 @@ public class IntcodeComputer {
         return this.readMemory(index, false);
     }
 
+    public void setMemory(int index, long value) {
+        this.writeMemory(index, value);
+    }
+
     public int getOutputCount() {
-        return this.outputs.size();
+        return this.outputCount;
     }
 
     public long getOutput(int index) {
-        return this.outputs.get(index);
+        if (index < 0 || index >= this.outputCount) {
+            throw new IndexOutOfBoundsException("No output " + index);
+        }
+        return this.outputs[index];
     }
 
     public State getState() {
@@ -128,81 +271,185 @@ public class IntcodeComputer {
     }
 
     public void run() {
-        do {
-            this.step();
-        } while (this.state == State.RUNNING);
+        if (this.compilation == null) {
+            this.execute(false);
+        }
+        else {
+            this.runCompiled();
+        }
+    }
+
+    // Takes turns between the compiled code and single steps of the interpreter, which runs whatever the compiled code cannot. The interpreter goes first, as it checks the computer is able to run at all.
+    private void runCompiled() {
+        this.execute(true);
+        long[] registers = new long[2];
+        while (this.state == State.RUNNING) {
+            Compilation compilation = this.compilation;
+            if (compilation == null) {
+                this.execute(false);
+                return;
+            }
+            if (compilation.isEntryPoint(this.instructionPointer)) {
+                // The compiled code writes straight to memory.
+                if (this.memoryShared) {
+                    this.memory = this.memory.clone();
+                    this.decodedInstructions = this.decodedInstructions.clone();
+                    this.memoryShared = false;
+                }
+                registers[0] = this.instructionPointer;
+                registers[1] = this.relativeBase;
+                compilation.program.run(this.memory, this.decodedInstructions, compilation.codeCells, registers);
+                this.instructionPointer = registers[0];
+                this.relativeBase = registers[1];
+            }
+            this.execute(true);
+        }
     }
 
     public void step() {
+        this.execute(true);
+    }
+
+    private void execute(boolean singleStep) {
         switch (this.state) {
             case HALTED:
                 throw new InvalidIntcodeComputerStateException("The program is halted.");
             case AWAITING_INPUT:
-                if (this.inputPointer >= this.inputs.size()) {
+                if (!this.inputSource.hasInput()) {
                     throw new InsufficentInputsException("Attempting to resume running when awaiting input but no new inputs added.");
                 }
                 break;
         }
         this.state = State.RUNNING;
-        int opCode = (int)((this.currentIntcode = this.readMemory(this.instructionPointer)) % 100);
+        long instructionPointer = this.instructionPointer;
+        try {
+            do {
+                long[] memory = this.memory;
+                int decodedInstruction;
+                long firstOperand;
+                long secondOperand;
+                long thirdOperand;
+                if (instructionPointer >= 0 && instructionPointer < memory.length - 3) {
+                    // The whole instruction is in memory, so the operands can be read without any checks.
+                    int address = (int) instructionPointer;
+                    decodedInstruction = this.decodedInstructions[address];
+                    if (decodedInstruction == NOT_DECODED) {
+                        // The decoded instructions may be shared with forks, possibly running on other threads, but they would all decode the same intcode to the same value.
+                        decodedInstruction = this.decodedInstructions[address] = decodeInstruction(memory[address]);
+                    }
+                    firstOperand = memory[address + 1];
+                    secondOperand = memory[address + 2];
+                    thirdOperand = memory[address + 3];
+                }
+                else {
+                    decodedInstruction = decodeInstruction(this.readMemory(instructionPointer));
+                    firstOperand = this.readMemory(instructionPointer + 1);
+                    secondOperand = this.readMemory(instructionPointer + 2);
+                    thirdOperand = this.readMemory(instructionPointer + 3);
+                }
+                switch (decodedInstruction & OPCODE_MASK) {
+                    case 1:
+                        this.writeParameter(getParameterMode(decodedInstruction, 3), thirdOperand, this.readParameter(getParameterMode(decodedInstruction, 1), firstOperand) + this.readParameter(getParameterMode(decodedInstruction, 2), secondOperand));
+                        instructionPointer += 4;
+                        break;
+                    case 2:
+                        this.writeParameter(getParameterMode(decodedInstruction, 3), thirdOperand, this.readParameter(getParameterMode(decodedInstruction, 1), firstOperand) * this.readParameter(getParameterMode(decodedInstruction, 2), secondOperand));
+                        instructionPointer += 4;
+                        break;
+                    case 3:
+                        if (!this.inputSource.hasInput()) {
+                            if (this.inputsLocked) {
+                                throw new InsufficentInputsException("Not enough inputs, and inputs are locked.");
+                            }
+                            else {
+                                this.state = State.AWAITING_INPUT;
+                                return;
+                            }
+                        }
+                        this.writeParameter(getParameterMode(decodedInstruction, 1), firstOperand, this.inputSource.getAsLong());
+                        instructionPointer += 2;
+                        break;
+                    case 4:
+                        this.output(this.readParameter(getParameterMode(decodedInstruction, 1), firstOperand));
+                        instructionPointer += 2;
+                        break;
+                    case 5:
+                        if (this.readParameter(getParameterMode(decodedInstruction, 1), firstOperand) != 0) {
+                            instructionPointer = this.readParameter(getParameterMode(decodedInstruction, 2), secondOperand);
+                        } else {
+                            instructionPointer += 3;
+                        }
+                        break;
+                    case 6:
+                        if (this.readParameter(getParameterMode(decodedInstruction, 1), firstOperand) == 0) {
+                            instructionPointer = this.readParameter(getParameterMode(decodedInstruction, 2), secondOperand);
+                        } else {
+                            instructionPointer += 3;
+                        }
+                        break;
+                    case 7:
+                        this.writeParameter(getParameterMode(decodedInstruction, 3), thirdOperand, this.readParameter(getParameterMode(decodedInstruction, 1), firstOperand) < this.readParameter(getParameterMode(decodedInstruction, 2), secondOperand) ? 1 : 0);
+                        instructionPointer += 4;
+                        break;
+                    case 8:
+                        this.writeParameter(getParameterMode(decodedInstruction, 3), thirdOperand, this.readParameter(getParameterMode(decodedInstruction, 1), firstOperand) == this.readParameter(getParameterMode(decodedInstruction, 2), secondOperand) ? 1 : 0);
+                        instructionPointer += 4;
+                        break;
+                    case 9:
+                        this.relativeBase += this.readParameter(getParameterMode(decodedInstruction, 1), firstOperand);
+                        instructionPointer += 2;
+                        break;
+                    case 99:
+                        this.state = State.HALTED;
+                        return;
+                    default:
+                        throw new IllegalStateException("Unexpected decoded instruction");
+                }
+            } while (!singleStep);
+        } finally {
+            this.instructionPointer = instructionPointer;
+        }
+    }
+
+    private void output(long value) {
+        if (this.outputConsumer != null) {
+            this.outputConsumer.accept(value);
+        }
+        else {
+            if (this.outputCount == this.outputs.length) {
+                this.outputs = Arrays.copyOf(this.outputs, this.outputCount * 2);
+            }
+            this.outputs[this.outputCount++] = value;
+        }
+    }
+
+    // Splits an intcode into its opcode and the mode digits of its three possible parameters, each held in 4 bits. The modes are only checked when each parameter is used, as they were before instructions were decoded ahead of time.
+    private static int decodeInstruction(long intcode) {
+        int opCode = (int)(intcode % 100);
         switch (opCode) {
             case 1:
-                this.writeParameter(3, this.readParameter(1) + this.readParameter(2));
-                this.instructionPointer += 4;
-                break;
             case 2:
-                this.writeParameter(3, this.readParameter(1) * this.readParameter(2));
-                this.instructionPointer += 4;
-                break;
             case 3:
-                if (this.inputPointer >= this.inputs.size()) {
-                    if (this.inputsLocked) {
-                        throw new InsufficentInputsException("Not enough inputs, and inputs are locked.");
-                    }
-                    else {
-                        this.state = State.AWAITING_INPUT;
-                        break;
-                    }
-                }
-                this.writeParameter(1, this.inputs.get(this.inputPointer++));
-                this.instructionPointer += 2;
-                break;
             case 4:
-                this.outputs.add(this.readParameter(1));
-                this.instructionPointer += 2;
-                break;
             case 5:
-                if (this.readParameter(1) != 0) {
-                    this.instructionPointer = this.readParameter(2);
-                } else {
-                    this.instructionPointer += 3;
-                }
-                break;
             case 6:
-                if (this.readParameter(1) == 0) {
-                    this.instructionPointer = this.readParameter(2);
-                } else {
-                    this.instructionPointer += 3;
-                }
-                break;
             case 7:
-                this.writeParameter(3, this.readParameter(1) < this.readParameter(2) ? 1 : 0);
-                this.instructionPointer += 4;
-                break;
             case 8:
-                this.writeParameter(3, this.readParameter(1) == this.readParameter(2) ? 1 : 0);
-                this.instructionPointer += 4;
-                break;
             case 9:
-                this.relativeBase += this.readParameter(1);
-                this.instructionPointer += 2;
-                break;
             case 99:
-                this.state = State.HALTED;
                 break;
             default:
                 throw new IllegalProgramException("Tried to run invalid opcode: " + opCode);
         }
+        int decodedInstruction = opCode;
+        for (int parameterNumber = 1; parameterNumber <= 3; parameterNumber++) {
+            decodedInstruction |= (int)((intcode / POWERS_OF_10[parameterNumber + 1]) % 10) << (PARAMETER_MODES_SHIFT + ((parameterNumber - 1) * 4));
+        }
+        return decodedInstruction;
+    }
+
+    private static int getParameterMode(int decodedInstruction, int parameterNumber) {
+        return (decodedInstruction >>> (PARAMETER_MODES_SHIFT + ((parameterNumber - 1) * 4))) & 0xF;
     }
 
     private long readMemory(int address) {
@@ -243,8 +490,20 @@ public class IntcodeComputer {
             long[] newMemory = new long[(address*2)+1];
             System.arraycopy(this.memory,0,newMemory,0,this.memory.length);
             this.memory = newMemory;
+            this.decodedInstructions = Arrays.copyOf(this.decodedInstructions, newMemory.length);
+            this.memoryShared = false;
+        }
+        else if (this.memoryShared) {
+            this.memory = this.memory.clone();
+            this.decodedInstructions = this.decodedInstructions.clone();
+            this.memoryShared = false;
         }
         this.memory[address] = value;
+        // The program may be modifying its own code.
+        this.decodedInstructions[address] = NOT_DECODED;
+        if (this.compilation != null && this.compilation.isCodeCell(address)) {
+            this.compilation = null;
+        }
     }
 
     private void writeMemory(long address, long value) {
@@ -254,9 +513,8 @@ public class IntcodeComputer {
         this.writeMemory((int)address, value);
     }
 
-    private long readParameter(int parameterNumber) {
-        long parameterValue = this.readMemory(this.instructionPointer + parameterNumber);
-        switch (this.getParameterMode(parameterNumber)) {
+    private long readParameter(int parameterMode, long parameterValue) {
+        switch (parameterMode) {
             case 0:
                 return this.readMemory(parameterValue);
             case 1:
@@ -268,9 +526,8 @@ public class IntcodeComputer {
         }
     }
 
-    private void writeParameter(int parameterNumber, long value) {
-        long parameterValue =  this.readMemory(this.instructionPointer + parameterNumber);
-        switch (this.getParameterMode(parameterNumber)) {
+    private void writeParameter(int parameterMode, long parameterValue, long value) {
+        switch (parameterMode) {
             case 0:
                 this.writeMemory(parameterValue, value);
                 break;
@@ -284,8 +541,381 @@ public class IntcodeComputer {
         }
     }
 
-    private int getParameterMode(int parameterNumber) {
-        return (int)((this.currentIntcode / IntcodeComputer.POWERS_OF_10[parameterNumber + 1]) % 10);
+    // Implemented by the class a program is compiled into. Runs from the instruction pointer in the registers until it reaches an instruction it must leave to the interpreter, and leaves the instruction pointer and relative base in the registers.
+    static interface CompiledProgram {
+        void run(long[] memory, int[] decodedInstructions, boolean[] codeCells, long[] registers);
+    }
+
+    private static final class Compilation {
+        private final CompiledProgram program;
+        // Every address holding part of a compiled instruction, which the compiled code must not write to, as it has the operands built in.
+        private final boolean[] codeCells;
+        // The compiled instructions other than input, output and halt, which only the interpreter runs.
+        private final boolean[] entryPoints;
+
+        private Compilation(CompiledProgram program, boolean[] codeCells, boolean[] entryPoints) {
+            this.program = program;
+            this.codeCells = codeCells;
+            this.entryPoints = entryPoints;
+        }
+
+        private boolean isCodeCell(int address) {
+            return address < this.codeCells.length && this.codeCells[address];
+        }
+
+        private boolean isEntryPoint(long address) {
+            return address >= 0 && address < this.entryPoints.length && this.entryPoints[(int) address];
+        }
+    }
+
+    // Compiles every instruction that can be reached from the entry address by falling through or by a jump to an immediate address into a single method, with the modes and operands built in.
+    // Each instruction's code goes straight on to the next, and any jump whose target is only known at run time goes back through a switch on the instruction pointer. Anything that needs the interpreter, such as a memory access outside the current memory, or a write over compiled code, exits before the instruction has any effect, so the interpreter can run it.
+    private static final class BytecodeCompiler {
+        private static final int MEMORY_SLOT = 1;
+        private static final int DECODED_INSTRUCTIONS_SLOT = 2;
+        private static final int CODE_CELLS_SLOT = 3;
+        private static final int REGISTERS_SLOT = 4;
+        private static final int INSTRUCTION_POINTER_SLOT = 5;
+        private static final int RELATIVE_BASE_SLOT = 7;
+        private static final int FIRST_VALUE_SLOT = 9;
+        private static final int SECOND_VALUE_SLOT = 11;
+        private static final int ADDRESS_SLOT = 13;
+        private static final int WRITE_ADDRESS_SLOT = 15;
+        private static final int LOCAL_COUNT = 16;
+        private static final int MAXIMUM_STACK_SIZE = 8;
+
+        private final long[] memory;
+        // Each compiled instruction's decoded form, by address.
+        private final TreeMap<Integer,Integer> instructions;
+        private final boolean[] codeCells;
+        private final boolean[] entryPoints;
+        private final BytecodeClassBuilder classBuilder;
+        private final BytecodeClassBuilder.Code code;
+        private final Map<Integer,BytecodeClassBuilder.Label> instructionLabels;
+        private final BytecodeClassBuilder.Label dispatchLabel;
+        private final BytecodeClassBuilder.Label exitLabel;
+        // Each sets the instruction pointer to its key and then exits.
+        private final Map<Long,BytecodeClassBuilder.Label> exitAtLabels;
+
+        private BytecodeCompiler(long[] memory) {
+            this.memory = memory;
+            this.instructions = new TreeMap<>();
+            this.codeCells = new boolean[memory.length];
+            this.entryPoints = new boolean[memory.length];
+            this.classBuilder = new BytecodeClassBuilder("CompiledIntcodeProgram", CompiledProgram.class);
+            this.code = this.classBuilder.createCode();
+            this.instructionLabels = new HashMap<>();
+            this.dispatchLabel = new BytecodeClassBuilder.Label();
+            this.exitLabel = new BytecodeClassBuilder.Label();
+            this.exitAtLabels = new TreeMap<>();
+        }
+
+        private static Compilation compile(long[] memory, long entryAddress) {
+            BytecodeCompiler bytecodeCompiler = new BytecodeCompiler(memory);
+            bytecodeCompiler.findInstructions(entryAddress);
+            CompiledProgram program = bytecodeCompiler.compile();
+            return new Compilation(program, bytecodeCompiler.codeCells, bytecodeCompiler.entryPoints);
+        }
+
+        private static int getInstructionLength(int opCode) {
+            switch (opCode) {
+                case 1:
+                case 2:
+                case 7:
+                case 8:
+                    return 4;
+                case 5:
+                case 6:
+                    return 3;
+                case 3:
+                case 4:
+                case 9:
+                    return 2;
+                default:
+                    return 1;
+            }
+        }
+
+        private static boolean isLeftToInterpreter(int opCode) {
+            return opCode == 3 || opCode == 4 || opCode == 99;
+        }
+
+        private void findInstructions(long entryAddress) {
+            long[] memory = this.memory;
+            boolean[] visited = new boolean[memory.length];
+            Deque<Long> pendingAddresses = new ArrayDeque<>();
+            pendingAddresses.add(entryAddress);
+            while (!pendingAddresses.isEmpty()) {
+                long pendingAddress = pendingAddresses.poll();
+                if (pendingAddress < 0 || pendingAddress >= memory.length || visited[(int) pendingAddress]) {
+                    continue;
+                }
+                int address = (int) pendingAddress;
+                visited[address] = true;
+                int decodedInstruction;
+                try {
+                    decodedInstruction = decodeInstruction(memory[address]);
+                } catch (IllegalProgramException ex) {
+                    // Probably data, and left for the interpreter to fail on if it is ever run.
+                    continue;
+                }
+                int opCode = decodedInstruction & OPCODE_MASK;
+                int length = getInstructionLength(opCode);
+                if (address + length > memory.length) {
+                    continue;
+                }
+                this.instructions.put(address, decodedInstruction);
+                if (!isLeftToInterpreter(opCode)) {
+                    this.entryPoints[address] = true;
+                    Arrays.fill(this.codeCells, address, address + length, true);
+                }
+                if (opCode == 5 || opCode == 6) {
+                    boolean alwaysJumps = false;
+                    boolean neverJumps = false;
+                    if (getParameterMode(decodedInstruction, 1) == 1) {
+                        alwaysJumps = (memory[address + 1] != 0) == (opCode == 5);
+                        neverJumps = !alwaysJumps;
+                    }
+                    if (!neverJumps && getParameterMode(decodedInstruction, 2) == 1) {
+                        pendingAddresses.add(memory[address + 2]);
+                    }
+                    if (!alwaysJumps) {
+                        pendingAddresses.add((long) address + 3);
+                    }
+                }
+                else if (opCode != 99) {
+                    pendingAddresses.add((long) address + length);
+                }
+            }
+        }
+
+        private BytecodeClassBuilder.Label getInstructionLabel(int address) {
+            return this.instructionLabels.computeIfAbsent(address, key -> new BytecodeClassBuilder.Label());
+        }
+
+        private BytecodeClassBuilder.Label getExitAtLabel(long address) {
+            return this.exitAtLabels.computeIfAbsent(address, key -> new BytecodeClassBuilder.Label());
+        }
+
+        // Continues at the given address, or exits with the instruction pointer set to it if it was not compiled.
+        private void goTo(long address) {
+            if (address >= 0 && address <= Integer.MAX_VALUE && this.instructions.containsKey((int) address)) {
+                this.code.branch(BytecodeClassBuilder.GOTO, this.getInstructionLabel((int) address));
+            }
+            else {
+                this.code.branch(BytecodeClassBuilder.GOTO, this.getExitAtLabel(address));
+            }
+        }
+
+        private CompiledProgram compile() {
+            BytecodeClassBuilder.Code code = this.code;
+            code.localInstruction(BytecodeClassBuilder.ALOAD, REGISTERS_SLOT);
+            code.pushInt(0);
+            code.instruction(BytecodeClassBuilder.LALOAD);
+            code.localInstruction(BytecodeClassBuilder.LSTORE, INSTRUCTION_POINTER_SLOT);
+            code.localInstruction(BytecodeClassBuilder.ALOAD, REGISTERS_SLOT);
+            code.pushInt(1);
+            code.instruction(BytecodeClassBuilder.LALOAD);
+            code.localInstruction(BytecodeClassBuilder.LSTORE, RELATIVE_BASE_SLOT);
+            code.placeLabel(this.dispatchLabel);
+            // An instruction pointer too large for an int cannot be a compiled instruction.
+            code.localInstruction(BytecodeClassBuilder.LLOAD, INSTRUCTION_POINTER_SLOT);
+            code.localInstruction(BytecodeClassBuilder.LLOAD, INSTRUCTION_POINTER_SLOT);
+            code.instruction(BytecodeClassBuilder.L2I);
+            code.instruction(BytecodeClassBuilder.I2L);
+            code.instruction(BytecodeClassBuilder.LCMP);
+            code.branch(BytecodeClassBuilder.IFNE, this.exitLabel);
+            code.localInstruction(BytecodeClassBuilder.LLOAD, INSTRUCTION_POINTER_SLOT);
+            code.instruction(BytecodeClassBuilder.L2I);
+            int[] addresses = new int[this.instructions.size()];
+            BytecodeClassBuilder.Label[] labels = new BytecodeClassBuilder.Label[addresses.length];
+            int instructionIndex = 0;
+            for (int address : this.instructions.keySet()) {
+                addresses[instructionIndex] = address;
+                labels[instructionIndex++] = this.getInstructionLabel(address);
+            }
+            code.switchOn(addresses, labels, this.exitLabel);
+            for (Map.Entry<Integer,Integer> instructionEntry : this.instructions.entrySet()) {
+                int address = instructionEntry.getKey();
+                code.placeLabel(this.getInstructionLabel(address));
+                if (this.compileInstruction(address, instructionEntry.getValue())) {
+                    Integer nextAddress = this.instructions.higherKey(address);
+                    long fallThroughAddress = (long) address + getInstructionLength(instructionEntry.getValue() & OPCODE_MASK);
+                    if (nextAddress == null || nextAddress != fallThroughAddress) {
+                        this.goTo(fallThroughAddress);
+                    }
+                }
+            }
+            for (Map.Entry<Long,BytecodeClassBuilder.Label> exitAtLabelEntry : this.exitAtLabels.entrySet()) {
+                code.placeLabel(exitAtLabelEntry.getValue());
+                code.pushLong(exitAtLabelEntry.getKey());
+                code.localInstruction(BytecodeClassBuilder.LSTORE, INSTRUCTION_POINTER_SLOT);
+                code.branch(BytecodeClassBuilder.GOTO, this.exitLabel);
+            }
+            code.placeLabel(this.exitLabel);
+            code.localInstruction(BytecodeClassBuilder.ALOAD, REGISTERS_SLOT);
+            code.pushInt(0);
+            code.localInstruction(BytecodeClassBuilder.LLOAD, INSTRUCTION_POINTER_SLOT);
+            code.instruction(BytecodeClassBuilder.LASTORE);
+            code.localInstruction(BytecodeClassBuilder.ALOAD, REGISTERS_SLOT);
+            code.pushInt(1);
+            code.localInstruction(BytecodeClassBuilder.LLOAD, RELATIVE_BASE_SLOT);
+            code.instruction(BytecodeClassBuilder.LASTORE);
+            code.instruction(BytecodeClassBuilder.RETURN);
+            return this.classBuilder.buildInstance(CompiledProgram.class, "run", "([J[I[Z[J)V", code, MAXIMUM_STACK_SIZE, LOCAL_COUNT);
+        }
+
+        // Whether an operand can be compiled at all. Anything else, such as an invalid mode, or a negative address, is left to the interpreter to fail on.
+        private boolean isCompilable(int parameterMode, long operand, boolean forWriting) {
+            switch (parameterMode) {
+                case 0:
+                    return operand >= 0 && operand <= Integer.MAX_VALUE && !(forWriting && operand < this.codeCells.length && this.codeCells[(int) operand]);
+                case 1:
+                    return !forWriting;
+                case 2:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        // Returns whether the code falls through to the next instruction.
+        private boolean compileInstruction(int address, int decodedInstruction) {
+            BytecodeClassBuilder.Code code = this.code;
+            int opCode = decodedInstruction & OPCODE_MASK;
+            int length = getInstructionLength(opCode);
+            boolean compilable = !isLeftToInterpreter(opCode);
+            for (int parameterNumber = 1; compilable && parameterNumber < length; parameterNumber++) {
+                boolean forWriting = parameterNumber == 3;
+                compilable = this.isCompilable(getParameterMode(decodedInstruction, parameterNumber), this.memory[address + parameterNumber], forWriting);
+            }
+            BytecodeClassBuilder.Label exitAtLabel = this.getExitAtLabel(address);
+            if (!compilable) {
+                code.branch(BytecodeClassBuilder.GOTO, exitAtLabel);
+                return false;
+            }
+            this.compileRead(decodedInstruction, address, 1, FIRST_VALUE_SLOT, exitAtLabel);
+            if (opCode == 9) {
+                code.localInstruction(BytecodeClassBuilder.LLOAD, RELATIVE_BASE_SLOT);
+                code.localInstruction(BytecodeClassBuilder.LLOAD, FIRST_VALUE_SLOT);
+                code.instruction(BytecodeClassBuilder.LADD);
+                code.localInstruction(BytecodeClassBuilder.LSTORE, RELATIVE_BASE_SLOT);
+                return true;
+            }
+            this.compileRead(decodedInstruction, address, 2, SECOND_VALUE_SLOT, exitAtLabel);
+            if (opCode == 5 || opCode == 6) {
+                BytecodeClassBuilder.Label notJumpingLabel = new BytecodeClassBuilder.Label();
+                code.localInstruction(BytecodeClassBuilder.LLOAD, FIRST_VALUE_SLOT);
+                code.pushLong(0);
+                code.instruction(BytecodeClassBuilder.LCMP);
+                code.branch(opCode == 5 ? BytecodeClassBuilder.IFEQ : BytecodeClassBuilder.IFNE, notJumpingLabel);
+                if (getParameterMode(decodedInstruction, 2) == 1) {
+                    this.goTo(this.memory[address + 2]);
+                }
+                else {
+                    code.localInstruction(BytecodeClassBuilder.LLOAD, SECOND_VALUE_SLOT);
+                    code.localInstruction(BytecodeClassBuilder.LSTORE, INSTRUCTION_POINTER_SLOT);
+                    code.branch(BytecodeClassBuilder.GOTO, this.dispatchLabel);
+                }
+                code.placeLabel(notJumpingLabel);
+                return true;
+            }
+            code.localInstruction(BytecodeClassBuilder.LLOAD, FIRST_VALUE_SLOT);
+            code.localInstruction(BytecodeClassBuilder.LLOAD, SECOND_VALUE_SLOT);
+            switch (opCode) {
+                case 1:
+                    code.instruction(BytecodeClassBuilder.LADD);
+                    break;
+                case 2:
+                    code.instruction(BytecodeClassBuilder.LMUL);
+                    break;
+                default:
+                    BytecodeClassBuilder.Label falseLabel = new BytecodeClassBuilder.Label();
+                    BytecodeClassBuilder.Label endLabel = new BytecodeClassBuilder.Label();
+                    code.instruction(BytecodeClassBuilder.LCMP);
+                    code.branch(opCode == 7 ? BytecodeClassBuilder.IFGE : BytecodeClassBuilder.IFNE, falseLabel);
+                    code.pushLong(1);
+                    code.branch(BytecodeClassBuilder.GOTO, endLabel);
+                    code.placeLabel(falseLabel);
+                    code.pushLong(0);
+                    code.placeLabel(endLabel);
+                    break;
+            }
+            code.localInstruction(BytecodeClassBuilder.LSTORE, FIRST_VALUE_SLOT);
+            this.compileWrite(decodedInstruction, address, FIRST_VALUE_SLOT, exitAtLabel);
+            return true;
+        }
+
+        // Leaves the address of a position or relative mode parameter in the address slot, exiting if it is outside the current memory, which only the interpreter can grow.
+        private void compileAddress(int parameterMode, long operand, BytecodeClassBuilder.Label exitAtLabel) {
+            BytecodeClassBuilder.Code code = this.code;
+            if (parameterMode == 0) {
+                code.pushLong(operand);
+            }
+            else {
+                code.localInstruction(BytecodeClassBuilder.LLOAD, RELATIVE_BASE_SLOT);
+                code.pushLong(operand);
+                code.instruction(BytecodeClassBuilder.LADD);
+            }
+            code.localInstruction(BytecodeClassBuilder.LSTORE, ADDRESS_SLOT);
+            code.localInstruction(BytecodeClassBuilder.LLOAD, ADDRESS_SLOT);
+            code.pushLong(0);
+            code.instruction(BytecodeClassBuilder.LCMP);
+            code.branch(BytecodeClassBuilder.IFLT, exitAtLabel);
+            code.localInstruction(BytecodeClassBuilder.LLOAD, ADDRESS_SLOT);
+            code.localInstruction(BytecodeClassBuilder.ALOAD, MEMORY_SLOT);
+            code.instruction(BytecodeClassBuilder.ARRAYLENGTH);
+            code.instruction(BytecodeClassBuilder.I2L);
+            code.instruction(BytecodeClassBuilder.LCMP);
+            code.branch(BytecodeClassBuilder.IFGE, exitAtLabel);
+        }
+
+        private void compileRead(int decodedInstruction, int address, int parameterNumber, int valueSlot, BytecodeClassBuilder.Label exitAtLabel) {
+            BytecodeClassBuilder.Code code = this.code;
+            int parameterMode = getParameterMode(decodedInstruction, parameterNumber);
+            long operand = this.memory[address + parameterNumber];
+            if (parameterMode == 1) {
+                code.pushLong(operand);
+            }
+            else {
+                this.compileAddress(parameterMode, operand, exitAtLabel);
+                code.localInstruction(BytecodeClassBuilder.ALOAD, MEMORY_SLOT);
+                code.localInstruction(BytecodeClassBuilder.LLOAD, ADDRESS_SLOT);
+                code.instruction(BytecodeClassBuilder.L2I);
+                code.instruction(BytecodeClassBuilder.LALOAD);
+            }
+            code.localInstruction(BytecodeClassBuilder.LSTORE, valueSlot);
+        }
+
+        private void compileWrite(int decodedInstruction, int address, int valueSlot, BytecodeClassBuilder.Label exitAtLabel) {
+            BytecodeClassBuilder.Code code = this.code;
+            int parameterMode = getParameterMode(decodedInstruction, 3);
+            this.compileAddress(parameterMode, this.memory[address + 3], exitAtLabel);
+            code.localInstruction(BytecodeClassBuilder.LLOAD, ADDRESS_SLOT);
+            code.instruction(BytecodeClassBuilder.L2I);
+            code.localInstruction(BytecodeClassBuilder.ISTORE, WRITE_ADDRESS_SLOT);
+            if (parameterMode == 2) {
+                // A position mode write over compiled code was already left to the interpreter.
+                BytecodeClassBuilder.Label notCodeLabel = new BytecodeClassBuilder.Label();
+                code.localInstruction(BytecodeClassBuilder.ILOAD, WRITE_ADDRESS_SLOT);
+                code.localInstruction(BytecodeClassBuilder.ALOAD, CODE_CELLS_SLOT);
+                code.instruction(BytecodeClassBuilder.ARRAYLENGTH);
+                code.branch(BytecodeClassBuilder.IF_ICMPGE, notCodeLabel);
+                code.localInstruction(BytecodeClassBuilder.ALOAD, CODE_CELLS_SLOT);
+                code.localInstruction(BytecodeClassBuilder.ILOAD, WRITE_ADDRESS_SLOT);
+                code.instruction(BytecodeClassBuilder.BALOAD);
+                code.branch(BytecodeClassBuilder.IFNE, exitAtLabel);
+                code.placeLabel(notCodeLabel);
+            }
+            code.localInstruction(BytecodeClassBuilder.ALOAD, MEMORY_SLOT);
+            code.localInstruction(BytecodeClassBuilder.ILOAD, WRITE_ADDRESS_SLOT);
+            code.localInstruction(BytecodeClassBuilder.LLOAD, valueSlot);
+            code.instruction(BytecodeClassBuilder.LASTORE);
+            code.localInstruction(BytecodeClassBuilder.ALOAD, DECODED_INSTRUCTIONS_SLOT);
+            code.localInstruction(BytecodeClassBuilder.ILOAD, WRITE_ADDRESS_SLOT);
+            code.pushInt(NOT_DECODED);
+            code.instruction(BytecodeClassBuilder.IASTORE);
+        }
     }
 
     public static final long[] readProgram(char[] inputCharacters) {
@@ -0,0 +1,291 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.function.LongConsumer;
+
+// Runs a set of Intcode computers whose outputs feed into each other's inputs, either taking turns on the calling thread or each on a thread of its own.
+// The network is idle once every computer that has not halted is waiting for input that nothing else can send it. The idle handler, if there is one, then gets the chance to send more input, and if it does not the run ends.
+public class IntcodeNetwork {
+    public static enum Outcome {
+        ALL_HALTED,
+        IDLE
+    }
+
+    public static interface IdleHandler {
+        // Called while no computer is running. Anything it sends to a computer with send starts the network running again.
+        void onIdle(IntcodeNetwork network);
+    }
+
+    private static final ThreadFactory DEFAULT_THREAD_FACTORY = runnable -> {
+        Thread thread = new Thread(runnable, "intcode-network-computer");
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private final IntcodeComputer[] computers;
+    private final LongConsumer[] outputConsumers;
+    private IdleHandler idleHandler;
+    // Only set while running concurrently, as the computers' input channels are then shared between threads.
+    private volatile ConcurrentRun concurrentRun;
+
+    public IntcodeNetwork(IntcodeComputer... computers) {
+        this.computers = computers.clone();
+        this.outputConsumers = new LongConsumer[computers.length];
+    }
+
+    public int getComputerCount() {
+        return this.computers.length;
+    }
+
+    public IntcodeComputer getComputer(int computerIndex) {
+        return this.computers[computerIndex];
+    }
+
+    // Sends every output of one computer to the input of another.
+    public void connect(int fromComputerIndex, int toComputerIndex) {
+        this.setOutputConsumer(fromComputerIndex, value -> this.send(toComputerIndex, value));
+    }
+
+    // Connects each computer to the next, and the last back to the first.
+    public void connectInLoop() {
+        for (int computerIndex = 0; computerIndex < this.computers.length; computerIndex++) {
+            this.connect(computerIndex, (computerIndex + 1) % this.computers.length);
+        }
+    }
+
+    // For computers whose outputs need routing, such as into packets. When running concurrently, the consumer is called on the sending computer's own thread, and should only pass values on with send.
+    // Outputs of computers with no consumer are recorded by the computer, to be read once the run ends.
+    public void setOutputConsumer(int computerIndex, LongConsumer outputConsumer) {
+        this.outputConsumers[computerIndex] = outputConsumer;
+    }
+
+    public void setIdleHandler(IdleHandler idleHandler) {
+        this.idleHandler = idleHandler;
+    }
+
+    // Safe to call from any computer's output consumer, and from the idle handler.
+    public void send(int computerIndex, long value) {
+        ConcurrentRun concurrentRun = this.concurrentRun;
+        if (concurrentRun == null) {
+            this.computers[computerIndex].getInputChannel().accept(value);
+        }
+        else {
+            concurrentRun.send(computerIndex, value);
+        }
+    }
+
+    private void applyOutputConsumers() {
+        for (int computerIndex = 0; computerIndex < this.computers.length; computerIndex++) {
+            if (this.outputConsumers[computerIndex] != null) {
+                this.computers[computerIndex].setOutputConsumer(this.outputConsumers[computerIndex]);
+            }
+        }
+    }
+
+    // Runs each computer in turn until it halts or needs input, which avoids any thread overhead, so suits networks where each computer does little work between inputs.
+    public Outcome runCooperatively() {
+        this.applyOutputConsumers();
+        while (true) {
+            boolean anyRan = false;
+            boolean allHalted = true;
+            for (IntcodeComputer computer : this.computers) {
+                IntcodeComputer.State state = computer.getState();
+                if (state == IntcodeComputer.State.HALTED) {
+                    continue;
+                }
+                if (state != IntcodeComputer.State.AWAITING_INPUT || computer.hasInput()) {
+                    computer.run();
+                    anyRan = true;
+                }
+                if (computer.getState() != IntcodeComputer.State.HALTED) {
+                    allHalted = false;
+                }
+            }
+            if (allHalted) {
+                return Outcome.ALL_HALTED;
+            }
+            if (!anyRan && !this.handleIdle()) {
+                return Outcome.IDLE;
+            }
+        }
+    }
+
+    // Returns whether any computer that has not halted has input to carry on with.
+    private boolean handleIdle() {
+        if (this.idleHandler == null) {
+            return false;
+        }
+        this.idleHandler.onIdle(this);
+        for (IntcodeComputer computer : this.computers) {
+            if (computer.getState() != IntcodeComputer.State.HALTED && computer.hasInput()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Outcome runConcurrently() {
+        return this.runConcurrently(DEFAULT_THREAD_FACTORY);
+    }
+
+    // Runs every computer on its own thread from the given factory, blocking each while it waits for input, so computers that do a lot of work between inputs can use every core.
+    // If a computer fails, the run ends with its exception, but any other computers still running are left to finish on their own threads.
+    public Outcome runConcurrently(ThreadFactory threadFactory) {
+        this.applyOutputConsumers();
+        ConcurrentRun concurrentRun = new ConcurrentRun(this);
+        for (IntcodeComputer computer : this.computers) {
+            computer.setInputSource(new ConcurrentInputSource(concurrentRun, computer.getInputChannel()));
+        }
+        this.concurrentRun = concurrentRun;
+        Thread[] threads = new Thread[this.computers.length];
+        try {
+            for (int computerIndex = 0; computerIndex < this.computers.length; computerIndex++) {
+                int threadComputerIndex = computerIndex;
+                threads[computerIndex] = threadFactory.newThread(() -> concurrentRun.runComputer(threadComputerIndex));
+                threads[computerIndex].start();
+            }
+            Outcome outcome = concurrentRun.awaitOutcome();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (IntcodeComputer computer : this.computers) {
+                computer.setInputSource(computer.getInputChannel());
+            }
+            return outcome;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the network", ex);
+        } finally {
+            this.concurrentRun = null;
+        }
+    }
+
+    // Guards every computer's input channel with its own lock, which also covers the counts used to tell when the network is idle.
+    private static final class ConcurrentRun {
+        private final IntcodeNetwork network;
+        private final boolean[] waiting;
+        private int waitingCount;
+        private int haltedCount;
+        private Outcome outcome;
+        private Throwable failure;
+
+        private ConcurrentRun(IntcodeNetwork network) {
+            this.network = network;
+            this.waiting = new boolean[network.computers.length];
+            this.waitingCount = 0;
+            this.haltedCount = 0;
+        }
+
+        private boolean isFinished() {
+            return this.outcome != null || this.failure != null;
+        }
+
+        private void runComputer(int computerIndex) {
+            IntcodeComputer computer = this.network.computers[computerIndex];
+            try {
+                while (true) {
+                    IntcodeComputer.State state = computer.getState();
+                    if (state == IntcodeComputer.State.HALTED) {
+                        this.computerHalted();
+                        return;
+                    }
+                    if (state == IntcodeComputer.State.AWAITING_INPUT && !this.awaitInput(computerIndex)) {
+                        return;
+                    }
+                    computer.run();
+                }
+            } catch (Throwable ex) {
+                this.fail(ex);
+            }
+        }
+
+        synchronized void send(int computerIndex, long value) {
+            this.network.computers[computerIndex].getInputChannel().accept(value);
+            if (this.waiting[computerIndex]) {
+                this.waiting[computerIndex] = false;
+                this.waitingCount--;
+                this.notifyAll();
+            }
+        }
+
+        // Returns false if the run ended instead.
+        private synchronized boolean awaitInput(int computerIndex) throws InterruptedException {
+            if (!this.network.computers[computerIndex].getInputChannel().hasInput()) {
+                this.waiting[computerIndex] = true;
+                this.waitingCount++;
+                this.checkIdle();
+                while (this.waiting[computerIndex] && !this.isFinished()) {
+                    this.wait();
+                }
+            }
+            return !this.isFinished();
+        }
+
+        private synchronized void computerHalted() {
+            this.haltedCount++;
+            this.checkIdle();
+        }
+
+        private void checkIdle() {
+            int computerCount = this.network.computers.length;
+            if (this.waitingCount + this.haltedCount < computerCount) {
+                return;
+            }
+            if (this.haltedCount < computerCount && this.network.idleHandler != null) {
+                this.network.idleHandler.onIdle(this.network);
+                if (this.waitingCount + this.haltedCount < computerCount) {
+                    return;
+                }
+            }
+            this.outcome = this.haltedCount == computerCount ? Outcome.ALL_HALTED : Outcome.IDLE;
+            this.notifyAll();
+        }
+
+        private synchronized void fail(Throwable failure) {
+            if (this.failure == null) {
+                this.failure = failure;
+            }
+            this.notifyAll();
+        }
+
+        private synchronized Outcome awaitOutcome() throws InterruptedException {
+            while (!this.isFinished()) {
+                this.wait();
+            }
+            if (this.failure instanceof RuntimeException) {
+                throw (RuntimeException) this.failure;
+            }
+            if (this.failure instanceof Error) {
+                throw (Error) this.failure;
+            }
+            if (this.failure != null) {
+                throw new IllegalStateException("An Intcode computer failed", this.failure);
+            }
+            return this.outcome;
+        }
+    }
+
+    private static final class ConcurrentInputSource implements IntcodeComputer.InputSource {
+        private final ConcurrentRun concurrentRun;
+        private final IntcodeComputer.Channel channel;
+
+        private ConcurrentInputSource(ConcurrentRun concurrentRun, IntcodeComputer.Channel channel) {
+            this.concurrentRun = concurrentRun;
+            this.channel = channel;
+        }
+
+        @Override
+        public boolean hasInput() {
+            synchronized (this.concurrentRun) {
+                return this.channel.hasInput();
+            }
+        }
+
+        @Override
+        public long getAsLong() {
+            synchronized (this.concurrentRun) {
+                return this.channel.getAsLong();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+// A version of AStarSolver for long costs, that keeps the scores of each node in primitive arrays rather than boxing every cost. The search itself is AStarPrimitiveSearch, which IntAStarSolver shares.
+public class LongAStarSolver {
+	private static final AStarSolver.OpenSetStrategy DEFAULT_OPEN_SET_STRATEGY = AStarPrimitiveSearch.DEFAULT_OPEN_SET_STRATEGY;
+	private static final LongFunction<Long> COST_BOXER = Long::valueOf;
+
+	private LongAStarSolver() {}
+
+	public static interface LongNodeAdapter<NodeKeyType> {
+		void getLinkedNodeKeys(NodeKeyType fromNodeKey, Consumer<NodeKeyType> linkedNodeKeyConsumer);
+		long getCostOfMovingBetweenLinkedNodes(NodeKeyType linkedFromNodeKey, NodeKeyType linkedToNodeKey);
+		long getCostEstimateOfMovingBetweenNodes(NodeKeyType fromNodeKey, NodeKeyType toNodeKey);
+		boolean isValidEndingNode(NodeKeyType nodeKey);
+	}
+
+	private static final class BoxedLongNodeAdapter<NodeKeyType> implements LongNodeAdapter<NodeKeyType> {
+		private final AStarSolver.NodeAdapter<NodeKeyType,Long> nodeAdapter;
+
+		private BoxedLongNodeAdapter(AStarSolver.NodeAdapter<NodeKeyType,Long> nodeAdapter) {
+			this.nodeAdapter = nodeAdapter;
+		}
+
+		@Override
+		public void getLinkedNodeKeys(NodeKeyType fromNodeKey, Consumer<NodeKeyType> linkedNodeKeyConsumer) {
+			this.nodeAdapter.getLinkedNodeKeys(fromNodeKey, linkedNodeKeyConsumer);
+		}
+
+		@Override
+		public long getCostOfMovingBetweenLinkedNodes(NodeKeyType linkedFromNodeKey, NodeKeyType linkedToNodeKey) {
+			return this.nodeAdapter.getCostOfMovingBetweenLinkedNodes(linkedFromNodeKey, linkedToNodeKey);
+		}
+
+		@Override
+		public long getCostEstimateOfMovingBetweenNodes(NodeKeyType fromNodeKey, NodeKeyType toNodeKey) {
+			return this.nodeAdapter.getCostEstimateOfMovingBetweenNodes(fromNodeKey, toNodeKey);
+		}
+
+		@Override
+		public boolean isValidEndingNode(NodeKeyType nodeKey) {
+			return this.nodeAdapter.isValidEndingNode(nodeKey);
+		}
+	}
+
+	// Accepts the same node adapters as AStarSolver, so existing callers only need to drop the cost adapter. Costs are unboxed as they are returned.
+	public static <NodeKeyType,ResultType> ResultType run(AStarSolver.NodeAdapter<NodeKeyType,Long> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey) {
+		return run(nodeAdapter, resultAdapter, fromNodeKey, toNodeKey, DEFAULT_OPEN_SET_STRATEGY);
+	}
+
+	public static <NodeKeyType,ResultType> ResultType run(AStarSolver.NodeAdapter<NodeKeyType,Long> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey, AStarSolver.OpenSetStrategy openSetStrategy) {
+		return AStarPrimitiveSearch.run(new BoxedLongNodeAdapter<>(nodeAdapter), nodeAdapter, COST_BOXER, resultAdapter, fromNodeKey, toNodeKey, openSetStrategy);
+	}
+
+	public static <NodeKeyType,ResultType> ResultType run(LongNodeAdapter<NodeKeyType> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey) {
+		return run(nodeAdapter, resultAdapter, fromNodeKey, toNodeKey, DEFAULT_OPEN_SET_STRATEGY);
+	}
+
+	public static <NodeKeyType,ResultType> ResultType run(LongNodeAdapter<NodeKeyType> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey, AStarSolver.OpenSetStrategy openSetStrategy) {
+		return AStarPrimitiveSearch.run(nodeAdapter, nodeAdapter, COST_BOXER, resultAdapter, fromNodeKey, toNodeKey, openSetStrategy);
+	}
+
+	// Finds the routes to all of the target nodes with one search, rather than one search per target. No cost estimates are used, so this is Dijkstra's algorithm, or a breadth first search where every move costs the same.
+	// The results are in the same order as the target node keys, with the result adapter's no solution result for any target that cannot be reached. isValidEndingNode is not used.
+	public static <NodeKeyType,ResultType> Map<NodeKeyType,ResultType> runToTargets(AStarSolver.NodeAdapter<NodeKeyType,Long> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, Collection<NodeKeyType> toNodeKeys) {
+		return runToTargets(nodeAdapter, resultAdapter, fromNodeKey, toNodeKeys, DEFAULT_OPEN_SET_STRATEGY);
+	}
+
+	public static <NodeKeyType,ResultType> Map<NodeKeyType,ResultType> runToTargets(AStarSolver.NodeAdapter<NodeKeyType,Long> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, Collection<NodeKeyType> toNodeKeys, AStarSolver.OpenSetStrategy openSetStrategy) {
+		return AStarPrimitiveSearch.runToTargets(new BoxedLongNodeAdapter<>(nodeAdapter), nodeAdapter, COST_BOXER, resultAdapter, fromNodeKey, toNodeKeys, openSetStrategy);
+	}
+
+	public static <NodeKeyType,ResultType> Map<NodeKeyType,ResultType> runToTargets(LongNodeAdapter<NodeKeyType> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, Collection<NodeKeyType> toNodeKeys) {
+		return runToTargets(nodeAdapter, resultAdapter, fromNodeKey, toNodeKeys, DEFAULT_OPEN_SET_STRATEGY);
+	}
+
+	public static <NodeKeyType,ResultType> Map<NodeKeyType,ResultType> runToTargets(LongNodeAdapter<NodeKeyType> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, Collection<NodeKeyType> toNodeKeys, AStarSolver.OpenSetStrategy openSetStrategy) {
+		return AStarPrimitiveSearch.runToTargets(nodeAdapter, nodeAdapter, COST_BOXER, resultAdapter, fromNodeKey, toNodeKeys, openSetStrategy);
+	}
+
+	// Searches from both ends at once until the two searches meet. The reverse search follows each node's links backwards, so this is only valid where every link can also be followed the other way, although the costs in each direction may differ.
+	// Only a single route is ever produced, and isValidEndingNode is not used.
+	public static <NodeKeyType,ResultType> ResultType runBidirectional(AStarSolver.NodeAdapter<NodeKeyType,Long> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey) {
+		return runBidirectional(nodeAdapter, resultAdapter, fromNodeKey, toNodeKey, DEFAULT_OPEN_SET_STRATEGY);
+	}
+
+	public static <NodeKeyType,ResultType> ResultType runBidirectional(AStarSolver.NodeAdapter<NodeKeyType,Long> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey, AStarSolver.OpenSetStrategy openSetStrategy) {
+		return AStarPrimitiveSearch.runBidirectional(new BoxedLongNodeAdapter<>(nodeAdapter), nodeAdapter, COST_BOXER, resultAdapter, fromNodeKey, toNodeKey, openSetStrategy);
+	}
+
+	public static <NodeKeyType,ResultType> ResultType runBidirectional(LongNodeAdapter<NodeKeyType> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey) {
+		return runBidirectional(nodeAdapter, resultAdapter, fromNodeKey, toNodeKey, DEFAULT_OPEN_SET_STRATEGY);
+	}
+
+	public static <NodeKeyType,ResultType> ResultType runBidirectional(LongNodeAdapter<NodeKeyType> nodeAdapter, AStarSolver.FullResultAdapter<NodeKeyType,Long,ResultType> resultAdapter, NodeKeyType fromNodeKey, NodeKeyType toNodeKey, AStarSolver.OpenSetStrategy openSetStrategy) {
+		return AStarPrimitiveSearch.runBidirectional(nodeAdapter, nodeAdapter, COST_BOXER, resultAdapter, fromNodeKey, toNodeKey, openSetStrategy);
+	}
+}
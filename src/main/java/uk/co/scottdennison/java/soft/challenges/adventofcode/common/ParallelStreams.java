@@ -0,0 +1,42 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.common;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// For the puzzles that spread independent pieces of work, such as the lines of the input, over the common fork join pool.
+public class ParallelStreams {
+	private ParallelStreams() {}
+
+	// Handing work to a pool with a single thread would only add overhead.
+	public static boolean isWorthwhile() {
+		return ForkJoinPool.getCommonPoolParallelism() > 1;
+	}
+
+	public static <T> Stream<T> parallelIfWorthwhile(Stream<T> stream) {
+		return isWorthwhile() ? stream.parallel() : stream;
+	}
+
+	public static IntStream parallelIfWorthwhile(IntStream stream) {
+		return isWorthwhile() ? stream.parallel() : stream;
+	}
+
+	// Adds up arrays of the given length element by element, such as the part A and part B answers worked out for each line of the input. Each part of a parallel stream adds into a single array of its own, rather than a new array being created for every addition.
+	public static Collector<long[],long[],long[]> summingElements(int length) {
+		return Collector.of(
+			() -> new long[length],
+			ParallelStreams::addInto,
+			(leftSums, rightSums) -> {
+				addInto(leftSums, rightSums);
+				return leftSums;
+			}
+		);
+	}
+
+	private static void addInto(long[] sums, long[] values) {
+		for (int index = 0; index < sums.length; index++) {
+			sums[index] += values[index];
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.framework;
+
+import java.io.PrintWriter;
+import java.nio.CharBuffer;
+
+public interface ICharSequencePuzzle extends IPuzzle {
+	// The runner may pass a read-only view directly over the input file, so the input must not be retained beyond the call.
+	IPuzzleResults runPuzzle(CharSequence inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter);
+
+	@Override
+	default IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
+		return this.runPuzzle(CharBuffer.wrap(inputCharacters), configProvider, partBPotentiallyUnsolvable, printWriter);
+	}
+}
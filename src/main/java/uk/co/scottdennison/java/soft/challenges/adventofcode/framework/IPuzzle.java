@@ -3,5 +3,6 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.framework;
 import java.io.PrintWriter;
 
 public interface IPuzzle {
+	// The input characters may be shared with other runs of the same data set, so must not be modified.
 	IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter);
 }
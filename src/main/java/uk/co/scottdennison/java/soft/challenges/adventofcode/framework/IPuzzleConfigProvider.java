@@ -1,5 +1,6 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.framework;
 
 public interface IPuzzleConfigProvider {
+	// The returned characters may be shared with other runs of the same data set, so must not be modified.
 	char[] getPuzzleConfigChars(String configName);
 }
@@ -0,0 +1,21 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.framework;
+
+import java.io.PrintWriter;
+
+public interface ITwoPhasePuzzle<ParsedInputType> extends IPuzzle {
+	// The parsed input is shared by both parts, so solving a part must not modify it.
+	ParsedInputType parseInput(char[] inputCharacters, IPuzzleConfigProvider configProvider, PrintWriter printWriter);
+
+	IPuzzlePartResults solvePartA(ParsedInputType parsedInput, IPuzzleConfigProvider configProvider, PrintWriter printWriter);
+
+	IPuzzlePartResults solvePartB(ParsedInputType parsedInput, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter);
+
+	@Override
+	default IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
+		ParsedInputType parsedInput = this.parseInput(inputCharacters, configProvider, printWriter);
+		return new MultiPartPuzzleResults<>(
+			this.solvePartA(parsedInput, configProvider, printWriter),
+			this.solvePartB(parsedInput, configProvider, partBPotentiallyUnsolvable, printWriter)
+		);
+	}
+}
@@ -1,20 +1,20 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2015;
 
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.ICharSequencePuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
 
 import java.io.PrintWriter;
 
-public final class Day01 implements IPuzzle {
+public final class Day01 implements ICharSequencePuzzle {
 	@Override
-	public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
+	public IPuzzleResults runPuzzle(CharSequence inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
 		int floor = 0;
 		Integer basementEnteredPosition = null;
-		int inputCharacterCount = inputCharacters.length;
+		int inputCharacterCount = inputCharacters.length();
 		for (int inputCharacterIndex = 0; inputCharacterIndex < inputCharacterCount; inputCharacterIndex++) {
-			switch (inputCharacters[inputCharacterIndex]) {
+			switch (inputCharacters.charAt(inputCharacterIndex)) {
 				case '(':
 					floor++;
 					break;
@@ -1,36 +1,78 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2015;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzlePartResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzlePartResults;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.ITwoPhasePuzzle;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class Day02 implements IPuzzle {
+public class Day02 implements ITwoPhasePuzzle<List<Day02.Present>> {
 	private static final Pattern PATTERN = Pattern.compile("^([0-9]+)x([0-9]+)x([0-9]+)$");
 
+	public static class Present {
+		private final int length;
+		private final int width;
+		private final int height;
+
+		public Present(int length, int width, int height) {
+			this.length = length;
+			this.width = width;
+			this.height = height;
+		}
+
+		public int getLength() {
+			return this.length;
+		}
+
+		public int getWidth() {
+			return this.width;
+		}
+
+		public int getHeight() {
+			return this.height;
+		}
+	}
+
 	@Override
-	public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
-		int squareFeetOfPaper = 0;
-		int feetOfRibbon = 0;
+	public List<Present> parseInput(char[] inputCharacters, IPuzzleConfigProvider configProvider, PrintWriter printWriter) {
+		List<Present> presents = new ArrayList<>();
 		for (String inputLine : LineReader.strings(inputCharacters)) {
 			Matcher matcher = PATTERN.matcher(inputLine);
 			if (!matcher.matches()) {
 				throw new IllegalStateException("Unparseable line");
 			}
-			int length = Integer.parseInt(matcher.group(1));
-			int width = Integer.parseInt(matcher.group(2));
-			int height = Integer.parseInt(matcher.group(3));
-			int area1 = length * width;
-			int area2 = width * height;
-			int area3 = height * length;
+			presents.add(new Present(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3))));
+		}
+		return presents;
+	}
+
+	@Override
+	public IPuzzlePartResults solvePartA(List<Present> presents, IPuzzleConfigProvider configProvider, PrintWriter printWriter) {
+		int squareFeetOfPaper = 0;
+		for (Present present : presents) {
+			int area1 = present.getLength() * present.getWidth();
+			int area2 = present.getWidth() * present.getHeight();
+			int area3 = present.getHeight() * present.getLength();
 			squareFeetOfPaper += (2 * area1) + (2 * area2) + (2 * area3) + Math.min(Math.min(area1, area2), area3);
+		}
+		return new BasicPuzzlePartResults<>(squareFeetOfPaper);
+	}
+
+	@Override
+	public IPuzzlePartResults solvePartB(List<Present> presents, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
+		int feetOfRibbon = 0;
+		for (Present present : presents) {
+			int length = present.getLength();
+			int width = present.getWidth();
+			int height = present.getHeight();
 			feetOfRibbon += (length * width * height) + (2 * length) + (2 * width) + (2 * height) - (2 * Math.max(length, Math.max(width, height)));
 		}
-		return new BasicPuzzleResults<>(squareFeetOfPaper, feetOfRibbon);
+		return new BasicPuzzlePartResults<>(feetOfRibbon);
 	}
 }
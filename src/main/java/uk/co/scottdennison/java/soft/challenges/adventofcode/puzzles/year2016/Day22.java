@@ -2,6 +2,7 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2016;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AStarSolver;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.IntAStarSolver;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
@@ -167,7 +168,7 @@ public class Day22 implements IPuzzle {
         Integer one = 1;
         Deque<AStarSolver.PointNodeAdapter.Point> steps = new LinkedList<>(
             Arrays.asList(
-                AStarSolver.run(
+                IntAStarSolver.run(
                     new AStarSolver.PointNodeAdapter<>(
                         (linkedFromPoint, linkedToPoint) -> fileSystemClassificationGrid[linkedToPoint.getY()][linkedToPoint.getX()] == FileSystemClassification.STANDARD,
                         AStarSolver.PointNodeAdapter.UnchangingActualMoveCostAdapter.One.Of.INTEGER,
@@ -177,7 +178,6 @@ public class Day22 implements IPuzzle {
                         0,
                         maxX
                     ),
-                    AStarSolver.CostAdapter.CommonTypes.Of.Integer.INSTANCE,
                     new AStarSolver.ThrowingResultAdapter<>(new AStarSolver.SingleRouteResultAdapter<>(AStarSolver.PointNodeAdapter.Point.class, AStarSolver.SingleRouteResultAdapter.MultiplePossibleRoutesBehaviour.PICK_ARTIBTARILY)),
                     new AStarSolver.PointNodeAdapter.Point(sourceY, sourceX),
                     new AStarSolver.PointNodeAdapter.Point(targetY, targetX)
@@ -2,13 +2,16 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2016;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AStarSolver;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AllPairsShortestPaths;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -52,8 +55,6 @@ public class Day24 implements IPuzzle {
 				throw new IllegalStateException("Non contiguous numbers.");
 			}
 		}
-		Integer one = 1;
-		int[][] distances = new int[maxNumber+1][maxNumber+1];
 		AStarSolver.PointNodeAdapter<Integer> aStarPointNodeAdapter = new AStarSolver.PointNodeAdapter<>(
 			(linkedFromPoint, linkedToPoint) -> grid[linkedToPoint.getY()][linkedToPoint.getX()] != '#',
 			AStarSolver.PointNodeAdapter.UnchangingActualMoveCostAdapter.One.Of.INTEGER,
@@ -63,27 +64,12 @@ public class Day24 implements IPuzzle {
 			0,
 			maxX
 		);
-		AStarSolver.FullResultAdapter<AStarSolver.PointNodeAdapter.Point,Integer,Integer> aStarResultAdapter = new AStarSolver.ThrowingResultAdapter<>(new AStarSolver.CostOnlyResultAdapter<>());
-		for (int numberFrom=0; numberFrom<=maxNumber; numberFrom++) {
-			Point fromPoint = numberLocations.get(numberFrom);
-			int fromY = fromPoint.getY();
-			int fromX = fromPoint.getX();
-			distances[numberFrom][numberFrom] = 0;
-			for (int numberTo=numberFrom+1; numberTo<=maxNumber; numberTo++) {
-				Point toPoint = numberLocations.get(numberTo);
-				int toY = toPoint.getY();
-				int toX = toPoint.getX();
-				int stepCount = AStarSolver.run(
-					aStarPointNodeAdapter,
-					AStarSolver.CostAdapter.CommonTypes.Of.Integer.INSTANCE,
-					aStarResultAdapter,
-					new AStarSolver.PointNodeAdapter.Point(fromY, fromX),
-					new AStarSolver.PointNodeAdapter.Point(toY, toX)
-				);
-				distances[numberFrom][numberTo] = stepCount;
-				distances[numberTo][numberFrom] = stepCount;
-			}
+		List<AStarSolver.PointNodeAdapter.Point> aStarPoints = new ArrayList<>();
+		for (int number=0; number<=maxNumber; number++) {
+			Point point = numberLocations.get(number);
+			aStarPoints.add(new AStarSolver.PointNodeAdapter.Point(point.getY(), point.getX()));
 		}
+		int[][] distances = AllPairsShortestPaths.calculateWithSearches(aStarPointNodeAdapter, aStarPoints).requireAllReachable().toArrays();
 		return new BasicPuzzleResults<>(
 			recurse(distances,new boolean[maxNumber+1],0,Integer.MAX_VALUE,0,0,maxNumber, false),
 			recurse(distances,new boolean[maxNumber+1],0,Integer.MAX_VALUE,0,0,maxNumber, true)
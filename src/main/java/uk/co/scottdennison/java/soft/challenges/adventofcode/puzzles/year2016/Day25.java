@@ -1,95 +1,65 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2016;
 
 import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AssembunnyComputer;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.ParallelStreams;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
 
 import java.io.PrintWriter;
+import java.util.OptionalInt;
+import java.util.function.LongPredicate;
+import java.util.stream.IntStream;
 
 public class Day25 implements IPuzzle {
 	private static final int REGISTER_COUNT = 4;
 	private static final int INPUT_REGISTER_INDEX = 0;
 	private static final int CUTOFF_INSTRUCTION_COUNT = 2500000;
-	private static final int TARGET_OUTPUT_COUNT = 128;
+	private static final int INPUT_VALUES_PER_BATCH = 64;
 
-	private static class State {
-		private boolean run;
-		private int instructionsExecuted;
-		private boolean firstOutput;
+	// Accepts outputs for as long as they alternate between 0 and 1.
+	private static class ClockSignalFilter implements LongPredicate {
+		private boolean firstOutput = true;
 		private long expectedOutput;
-		private int outputCount;
-		private boolean success;
 
-		public void reset() {
-			run = true;
-			instructionsExecuted = 0;
-			firstOutput = true;
-			outputCount = 0;
-			success = true;
-		}
-
-		public boolean isRun() {
-			return this.run;
-		}
-
-		public boolean isSuccess() {
-			return this.success;
-		}
-
-		public void incrementInstructionCount() {
-			if (++this.instructionsExecuted >= CUTOFF_INSTRUCTION_COUNT) {
-				this.success = false;
-				this.run = false;
-			}
-		}
-
-		public void handleOutput(long output) {
+		@Override
+		public boolean test(long output) {
 			if (this.firstOutput) {
 				if (output != 0 && output != 1) {
-					this.success = false;
-					this.run = false;
-					return;
+					return false;
 				}
 				this.firstOutput = false;
 			} else if (output != this.expectedOutput) {
-				this.success = false;
-				this.run = false;
-				return;
+				return false;
 			}
 			this.expectedOutput = 1 - output;
-			if (++this.outputCount >= TARGET_OUTPUT_COUNT) {
-				this.run = false;
-			}
+			return true;
 		}
 	}
 
+	private static boolean isClockSignal(AssembunnyComputer.InstructionPair[] instructionPairs, int inputValue) {
+		AssembunnyComputer.State computerState = new AssembunnyComputer.State(instructionPairs, REGISTER_COUNT);
+		computerState.setRegisterValue(INPUT_REGISTER_INDEX, inputValue);
+		ClockSignalFilter clockSignalFilter = new ClockSignalFilter();
+		AssembunnyComputer.PeriodicOutput periodicOutput = computerState.runUntilOutputRepeats(clockSignalFilter, CUTOFF_INSTRUCTION_COUNT);
+		// Every output up to the end of the first repeat has already alternated, so they alternate forever if the start of the repeat also follows on from its end.
+		return periodicOutput != null && clockSignalFilter.test(periodicOutput.getRepeatingOutputs()[0]);
+	}
+
 	@Override
 	public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
 		AssembunnyComputer.InstructionPair[] instructionPairs = AssembunnyComputer.parseProgram(inputCharacters, REGISTER_COUNT);
-		State problemState = new State();
-		int inputValue = 0;
-		while (true) {
-			problemState.reset();
-			AssembunnyComputer.State computerState = new AssembunnyComputer.State(instructionPairs, REGISTER_COUNT);
-			computerState.setRegisterValue(INPUT_REGISTER_INDEX, inputValue);
-			computerState.setOutputHandler(problemState::handleOutput);
-			while (problemState.isRun()) {
-				int pc = computerState.getPC();
-				if (!computerState.isValidInstructionIndex(pc)) {
-					break;
-				}
-				computerState.getInstruction(pc).run(computerState);
-				problemState.incrementInstructionCount();
-			}
-			if (problemState.isSuccess()) {
+		for (int batchStartInputValue = 0; ; batchStartInputValue += INPUT_VALUES_PER_BATCH) {
+			IntStream inputValues = ParallelStreams.parallelIfWorthwhile(IntStream.range(batchStartInputValue, batchStartInputValue + INPUT_VALUES_PER_BATCH));
+			// Even in parallel, findFirst gives the lowest input value that works, and stops trying higher ones once it has it.
+			OptionalInt clockSignalInputValue = inputValues.filter(inputValue -> isClockSignal(instructionPairs, inputValue)).findFirst();
+			if (clockSignalInputValue.isPresent()) {
 				return new BasicPuzzleResults<>(
-					inputValue,
+					clockSignalInputValue.getAsInt(),
 					"Transmit the Signal"
 				);
 			}
-			inputValue++;
 		}
 	}
 }
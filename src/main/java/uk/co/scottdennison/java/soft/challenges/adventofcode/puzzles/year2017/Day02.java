@@ -1,30 +1,32 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2017;
 
+import uk.co.scottdennison.java.libs.text.input.LineFields;
 import uk.co.scottdennison.java.libs.text.input.LineReader;
+import uk.co.scottdennison.java.libs.text.input.LineView;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
 
 import java.io.PrintWriter;
-import java.util.regex.Pattern;
 
 public class Day02 implements IPuzzle {
-	private static final Pattern SPACE_PATTERN = Pattern.compile("\\s+");
-
 	@Override
 	public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
 		int checksum1 = 0;
 		int checksum2 = 0;
-		for (String inputLine : LineReader.strings(inputCharacters)) {
+		LineFields values = new LineFields();
+		int[] intValues = new int[0];
+		for (LineView inputLine : LineReader.lineViews(inputCharacters)) {
 			int minimumValue = Integer.MAX_VALUE;
 			int maximumValue = Integer.MIN_VALUE;
-			String[] values = SPACE_PATTERN.split(inputLine);
-			int valueCount = values.length;
-			int[] intValues = new int[valueCount];
+			int valueCount = inputLine.splitOnWhitespace(values);
+			if (intValues.length < valueCount) {
+				intValues = new int[valueCount];
+			}
 			int cleanDivisionResult = -1;
 			for (int newIndex = 0; newIndex < valueCount; newIndex++) {
-				int newIntValue = Integer.parseInt(values[newIndex]);
+				int newIntValue = values.parseInt(newIndex);
 				intValues[newIndex] = newIntValue;
 				if (!partBPotentiallyUnsolvable) {
 					for (int oldIndex = 0; oldIndex < newIndex; oldIndex++) {
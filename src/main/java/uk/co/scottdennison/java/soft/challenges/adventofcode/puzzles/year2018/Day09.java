@@ -1,17 +1,35 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2018;
 
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzlePartResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzlePartResults;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.ITwoPhasePuzzle;
 
 import java.io.PrintWriter;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class Day09 implements IPuzzle {
+public class Day09 implements ITwoPhasePuzzle<Day09.GameSettings> {
     private static final Pattern PATTERN_INPUT = Pattern.compile("^(?<playerCount>[1-9][0-9]*) players; last marble is worth (?<lastMarbleValue>[1-9][0-9]*) points$");
 
+    public static class GameSettings {
+        private final int playerCount;
+        private final int lastMarbleValue;
+
+        private GameSettings(int playerCount, int lastMarbleValue) {
+            this.playerCount = playerCount;
+            this.lastMarbleValue = lastMarbleValue;
+        }
+
+        public int getPlayerCount() {
+            return this.playerCount;
+        }
+
+        public int getLastMarbleValue() {
+            return this.lastMarbleValue;
+        }
+    }
+
     private static class Node {
         int value;
         Node previousNode;
@@ -56,16 +74,21 @@ public class Day09 implements IPuzzle {
     }
 
     @Override
-    public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
+    public GameSettings parseInput(char[] inputCharacters, IPuzzleConfigProvider configProvider, PrintWriter printWriter) {
         Matcher matcher = PATTERN_INPUT.matcher(new String(inputCharacters).trim());
         if (!matcher.matches()) {
             throw new IllegalStateException("Could not parse input.");
         }
-        int playerCount = Integer.parseInt(matcher.group("playerCount"));
-        int lastMarbleValue = Integer.parseInt(matcher.group("lastMarbleValue"));
-        return new BasicPuzzleResults<>(
-            run(playerCount, lastMarbleValue),
-            run(playerCount, lastMarbleValue*100) // This does rerun the game for part A again, but part A's runtime is insignifcant.
-        );
+        return new GameSettings(Integer.parseInt(matcher.group("playerCount")), Integer.parseInt(matcher.group("lastMarbleValue")));
+    }
+
+    @Override
+    public IPuzzlePartResults solvePartA(GameSettings gameSettings, IPuzzleConfigProvider configProvider, PrintWriter printWriter) {
+        return new BasicPuzzlePartResults<>(run(gameSettings.getPlayerCount(), gameSettings.getLastMarbleValue()));
+    }
+
+    @Override
+    public IPuzzlePartResults solvePartB(GameSettings gameSettings, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
+        return new BasicPuzzlePartResults<>(run(gameSettings.getPlayerCount(), gameSettings.getLastMarbleValue()*100));
     }
 }
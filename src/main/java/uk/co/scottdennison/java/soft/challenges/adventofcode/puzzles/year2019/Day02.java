@@ -7,17 +7,17 @@ import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleCo
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
 
 import java.io.PrintWriter;
-import java.util.Arrays;
 
 public class Day02 implements IPuzzle {
     @Override
     public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
-        long[] memory = IntcodeComputer.readProgram(inputCharacters);
-        long part1Result = runProgram(memory,12,2);
+        // Each run forks this. Writing the noun makes the fork take its own copies of both the memory and the decoded instructions, so every noun and verb pair still costs those two copies, but the verb and the run itself then write to the fork's copies.
+        IntcodeComputer initialIntcodeComputer = new IntcodeComputer(IntcodeComputer.readProgram(inputCharacters));
+        long part1Result = runProgram(initialIntcodeComputer,12,2);
         Long part2Result = null;
         for (long noun=0; noun<=99; noun++) {
             for (long verb=0; verb<=99; verb++) {
-                if (runProgram(memory,noun,verb) == 19690720L) {
+                if (runProgram(initialIntcodeComputer,noun,verb) == 19690720L) {
                     if (part2Result != null) {
                         throw new IllegalStateException("Multiple results");
                     }
@@ -31,11 +31,10 @@ public class Day02 implements IPuzzle {
         );
     }
 
-    private static long runProgram(long[] initialMemory, long noun, long verb) {
-        long[] memory = Arrays.copyOf(initialMemory, initialMemory.length);
-        memory[1] = noun;
-        memory[2] = verb;
-        IntcodeComputer intcodeComputer = new IntcodeComputer(memory);
+    private static long runProgram(IntcodeComputer initialIntcodeComputer, long noun, long verb) {
+        IntcodeComputer intcodeComputer = initialIntcodeComputer.fork();
+        intcodeComputer.setMemory(1, noun);
+        intcodeComputer.setMemory(2, verb);
         intcodeComputer.runFully();
         return intcodeComputer.getMemory(0);
     }
@@ -1,6 +1,7 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2019;
 
 import uk.co.scottdennison.java.soft.challenges.adventofcode.common.IntcodeComputer;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.IntcodeNetwork;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
@@ -18,7 +19,27 @@ public class Day07 implements IPuzzle {
     private static final int PART_B_MAX_PHASE_SETTING = 9;
     private static final int PART_B_THRUSTER_COUNT = 5;
 
-    private static long recursePhasesPartA(long[] program, int depth, boolean[] usedPhaseSettings, long input) {
+    private static void runUntilInputNeeded(IntcodeComputer intcodeComputer) {
+        if (intcodeComputer.getState() != IntcodeComputer.State.HALTED) {
+            intcodeComputer.run();
+        }
+    }
+
+    // Runs the program up to where it needs its input signal for each phase setting, so that each amplifier can be forked from there rather than re-running the program from the start.
+    private static IntcodeComputer[] createPhaseSettingIntcodeComputers(long[] program, int minPhaseSetting, int maxPhaseSetting) {
+        IntcodeComputer initialIntcodeComputer = new IntcodeComputer(program);
+        runUntilInputNeeded(initialIntcodeComputer);
+        IntcodeComputer[] phaseSettingIntcodeComputers = new IntcodeComputer[maxPhaseSetting+1];
+        for (int phaseSetting=minPhaseSetting; phaseSetting<=maxPhaseSetting; phaseSetting++) {
+            IntcodeComputer intcodeComputer = initialIntcodeComputer.fork();
+            intcodeComputer.addInput((long)phaseSetting);
+            runUntilInputNeeded(intcodeComputer);
+            phaseSettingIntcodeComputers[phaseSetting] = intcodeComputer;
+        }
+        return phaseSettingIntcodeComputers;
+    }
+
+    private static long recursePhasesPartA(IntcodeComputer[] phaseSettingIntcodeComputers, int depth, boolean[] usedPhaseSettings, long input) {
         if (depth >= PART_A_THRUSTER_COUNT) {
             return input;
         }
@@ -28,13 +49,14 @@ public class Day07 implements IPuzzle {
             for (int phaseSetting=PART_A_MIN_PHASE_SETTING; phaseSetting<=PART_A_MAX_PHASE_SETTING; phaseSetting++) {
                 if (!usedPhaseSettings[phaseSetting]) {
                     usedPhaseSettings[phaseSetting] = true;
-                    IntcodeComputer intcodeComputer = new IntcodeComputer(program);
-                    intcodeComputer.addInputs((long)phaseSetting, input);
-                    intcodeComputer.runFully();
+                    IntcodeComputer intcodeComputer = phaseSettingIntcodeComputers[phaseSetting].fork();
+                    intcodeComputer.addInput(input);
+                    intcodeComputer.lockInputs();
+                    runUntilInputNeeded(intcodeComputer);
                     if (intcodeComputer.getOutputCount() != 1) {
                         throw new IllegalStateException("Unexpected amount of outputs");
                     }
-                    maxThrusterSignal = Math.max(maxThrusterSignal, recursePhasesPartA(program, nextDepth, usedPhaseSettings, intcodeComputer.getOutput(0)));
+                    maxThrusterSignal = Math.max(maxThrusterSignal, recursePhasesPartA(phaseSettingIntcodeComputers, nextDepth, usedPhaseSettings, intcodeComputer.getOutput(0)));
                     usedPhaseSettings[phaseSetting] = false;
                 }
             }
@@ -42,35 +64,24 @@ public class Day07 implements IPuzzle {
         }
     }
 
-    private static long recursePhasesPartB(long[] program, int depth, boolean[] usedPhaseSettings, int[] chosenPhaseSettings) {
+    private static long recursePhasesPartB(IntcodeComputer[] phaseSettingIntcodeComputers, int depth, boolean[] usedPhaseSettings, int[] chosenPhaseSettings) {
         if (depth >= PART_B_THRUSTER_COUNT) {
             IntcodeComputer[] intcodeComputers = new IntcodeComputer[PART_B_THRUSTER_COUNT];
             for (int index=0; index<PART_B_THRUSTER_COUNT; index++) {
-                IntcodeComputer intcodeComputer = new IntcodeComputer(program);
-                intcodeComputer.addInput((long)chosenPhaseSettings[index]);
-                intcodeComputers[index] = intcodeComputer;
+                intcodeComputers[index] = phaseSettingIntcodeComputers[chosenPhaseSettings[index]].fork();
             }
-            long input = 0;
-            int index = 0;
-            boolean resultPending = true;
-            while (true) {
-                IntcodeComputer intcodeComputer = intcodeComputers[index];
-                intcodeComputer.addInput(input);
-                int oldOutputCount = intcodeComputer.getOutputCount();
-                intcodeComputer.run();
-                int newOutputCount = intcodeComputer.getOutputCount();
-                if ((oldOutputCount + 1) != newOutputCount) {
-                    throw new IllegalStateException("Expected a single new output.");
-                }
-                input = intcodeComputer.getOutput(oldOutputCount);
-                if (++index == PART_B_THRUSTER_COUNT) {
-                    index = 0;
-                    if (intcodeComputer.getState() == IntcodeComputer.State.HALTED) {
-                        break;
-                    }
-                }
+            // Each amplifier does very little work per signal, so taking turns on this thread beats a thread each.
+            IntcodeNetwork intcodeNetwork = new IntcodeNetwork(intcodeComputers);
+            intcodeNetwork.connectInLoop();
+            intcodeNetwork.send(0, 0L);
+            if (intcodeNetwork.runCooperatively() != IntcodeNetwork.Outcome.ALL_HALTED) {
+                throw new IllegalStateException("The amplifiers stopped without all halting.");
             }
-            return input;
+            IntcodeComputer.Channel finalOutputChannel = intcodeComputers[0].getInputChannel();
+            if (finalOutputChannel.size() != 1) {
+                throw new IllegalStateException("Expected a single final output.");
+            }
+            return finalOutputChannel.getAsLong();
         }
         else {
             int nextDepth = depth+1;
@@ -79,7 +90,7 @@ public class Day07 implements IPuzzle {
                 if (!usedPhaseSettings[phaseSetting]) {
                     usedPhaseSettings[phaseSetting] = true;
                     chosenPhaseSettings[depth] = phaseSetting;
-                    maxThrusterSignal = Math.max(maxThrusterSignal, recursePhasesPartB(program, nextDepth, usedPhaseSettings, chosenPhaseSettings));
+                    maxThrusterSignal = Math.max(maxThrusterSignal, recursePhasesPartB(phaseSettingIntcodeComputers, nextDepth, usedPhaseSettings, chosenPhaseSettings));
                     usedPhaseSettings[phaseSetting] = false;
                 }
             }
@@ -99,8 +110,8 @@ public class Day07 implements IPuzzle {
     public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
         long[] program = IntcodeComputer.readProgram(inputCharacters);
         return new BasicPuzzleResults<>(
-            runPart(() -> recursePhasesPartA(program,0, new boolean[PART_A_MAX_PHASE_SETTING+1], 0)),
-            runPart(() -> recursePhasesPartB(program, 0, new boolean[PART_B_MAX_PHASE_SETTING+1], new int[PART_B_THRUSTER_COUNT]))
+            runPart(() -> recursePhasesPartA(createPhaseSettingIntcodeComputers(program, PART_A_MIN_PHASE_SETTING, PART_A_MAX_PHASE_SETTING),0, new boolean[PART_A_MAX_PHASE_SETTING+1], 0)),
+            runPart(() -> recursePhasesPartB(createPhaseSettingIntcodeComputers(program, PART_B_MIN_PHASE_SETTING, PART_B_MAX_PHASE_SETTING), 0, new boolean[PART_B_MAX_PHASE_SETTING+1], new int[PART_B_THRUSTER_COUNT]))
         );
     }
 }
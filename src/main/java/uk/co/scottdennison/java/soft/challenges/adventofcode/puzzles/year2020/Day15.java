@@ -1,29 +1,43 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2020;
 
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzlePartResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzlePartResults;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.ITwoPhasePuzzle;
 
 import java.io.PrintWriter;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.regex.Pattern;
 
-public class Day15 implements IPuzzle {
+public class Day15 implements ITwoPhasePuzzle<int[]> {
 	private static final int PART_A_TARGET_MOVE_COUNT = 2020;
 	private static final int PART_B_TARGET_MOVE_COUNT = 30000000;
 
 	@Override
-	public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
-		int[] targetMoveCountsUnordered = {PART_A_TARGET_MOVE_COUNT, PART_B_TARGET_MOVE_COUNT};
-		int[] targetMoveCountsOrdered = Arrays.stream(targetMoveCountsUnordered).distinct().sorted().toArray();
-		int[] inputNumbers = Arrays.stream(Pattern.compile(",").split(new String(inputCharacters).trim())).mapToInt(Integer::parseInt).toArray();
-		if (inputNumbers.length > targetMoveCountsOrdered[0]) {
+	public int[] parseInput(char[] inputCharacters, IPuzzleConfigProvider configProvider, PrintWriter printWriter) {
+		return Arrays.stream(Pattern.compile(",").split(new String(inputCharacters).trim())).mapToInt(Integer::parseInt).toArray();
+	}
+
+	@Override
+	public IPuzzlePartResults solvePartA(int[] inputNumbers, IPuzzleConfigProvider configProvider, PrintWriter printWriter) {
+		return new BasicPuzzlePartResults<>(run(inputNumbers, PART_A_TARGET_MOVE_COUNT));
+	}
+
+	@Override
+	public IPuzzlePartResults solvePartB(int[] inputNumbers, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
+		return new BasicPuzzlePartResults<>(run(inputNumbers, PART_B_TARGET_MOVE_COUNT));
+	}
+
+	private static int run(int[] inputNumbers, int targetMoveCount) {
+		if (inputNumbers.length > targetMoveCount) {
 			throw new IllegalStateException("Target move count is more than the amount of input numbers!");
 		}
-		int[] numbersCalledWhen = new int[targetMoveCountsOrdered[targetMoveCountsOrdered.length - 1]];
+		// Every number spoken after the starting numbers is a gap between two turns, so is less than the target move count, but the starting numbers themselves can be larger.
+		int maxStartingNumber = 0;
+		for (int inputNumber : inputNumbers) {
+			maxStartingNumber = Math.max(maxStartingNumber, inputNumber);
+		}
+		int[] numbersCalledWhen = new int[Math.max(targetMoveCount, maxStartingNumber + 1)];
 		int seedNumberCount = inputNumbers.length - 1;
 		for (int inputNumberIndex = 0; inputNumberIndex < seedNumberCount; inputNumberIndex++) {
 			int inputNumber = inputNumbers[inputNumberIndex];
@@ -34,24 +48,17 @@ public class Day15 implements IPuzzle {
 		}
 		int lastNumber = inputNumbers[seedNumberCount];
 		int numberSpokenCount = inputNumbers.length;
-		Map<Integer, Integer> results = new HashMap<>();
-		for (int targetMoveCount : targetMoveCountsOrdered) {
-			while (numberSpokenCount < targetMoveCount) {
-				int lastNumberCalledWhen = numbersCalledWhen[lastNumber] - 1;
-				numbersCalledWhen[lastNumber] = numberSpokenCount + 1;
-				if (lastNumberCalledWhen == -1) {
-					lastNumber = 0;
-				}
-				else {
-					lastNumber = numberSpokenCount - lastNumberCalledWhen;
-				}
-				numberSpokenCount++;
+		while (numberSpokenCount < targetMoveCount) {
+			int lastNumberCalledWhen = numbersCalledWhen[lastNumber] - 1;
+			numbersCalledWhen[lastNumber] = numberSpokenCount + 1;
+			if (lastNumberCalledWhen == -1) {
+				lastNumber = 0;
+			}
+			else {
+				lastNumber = numberSpokenCount - lastNumberCalledWhen;
 			}
-			results.put(targetMoveCount, lastNumber);
+			numberSpokenCount++;
 		}
-		return new BasicPuzzleResults<>(
-			results.get(PART_A_TARGET_MOVE_COUNT),
-			results.get(PART_B_TARGET_MOVE_COUNT)
-		);
+		return lastNumber;
 	}
 }
@@ -1,14 +1,14 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2020;
 
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzlePartResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
-import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzlePartResults;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.ITwoPhasePuzzle;
 
 import java.io.PrintWriter;
 import java.util.Arrays;
 
-public class Day23 implements IPuzzle {
+public class Day23 implements ITwoPhasePuzzle<int[]> {
     private static class Cup {
         private Cup nextCup;
         private final int label;
@@ -34,8 +34,7 @@ public class Day23 implements IPuzzle {
     private static final int CUPS_TO_MOVE_COUNT = 3;
 
     @Override
-    public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
-        int partAMoveCount = Integer.parseInt(new String(configProvider.getPuzzleConfigChars("part_a_move_count")).trim());
+    public int[] parseInput(char[] inputCharacters, IPuzzleConfigProvider configProvider, PrintWriter printWriter) {
         char[] trimmedInputCharacters = new String(inputCharacters).trim().toCharArray();
         int partACupCount = trimmedInputCharacters.length;
         int[] partACupLabels = new int[partACupCount];
@@ -54,6 +53,13 @@ public class Day23 implements IPuzzle {
                 throw new IllegalStateException("Expected contiguously numbered cup labels starting at 1");
             }
         }
+        return partACupLabels;
+    }
+
+    @Override
+    public IPuzzlePartResults solvePartA(int[] partACupLabels, IPuzzleConfigProvider configProvider, PrintWriter printWriter) {
+        int partAMoveCount = Integer.parseInt(new String(configProvider.getPuzzleConfigChars("part_a_move_count")).trim());
+        int partACupCount = partACupLabels.length;
         Cup partAOneCup = run(partACupLabels,partAMoveCount);
         Cup partAInterestCup = partAOneCup;
         int partAOutputCharacterCount = partACupCount-1;
@@ -62,26 +68,25 @@ public class Day23 implements IPuzzle {
             partAInterestCup = partAInterestCup.nextCup;
             partAOutputCharacters[partAOutputCharacterIndex] = (char)(partAInterestCup.getLabel()+'0');
         }
-        String partAOutputString = new String(partAOutputCharacters);
-        Long partBOutputValue;
+        return new BasicPuzzlePartResults<>(new String(partAOutputCharacters));
+    }
+
+    @Override
+    public IPuzzlePartResults solvePartB(int[] partACupLabels, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
         if (partBPotentiallyUnsolvable) {
-            partBOutputValue = null;
-        } else {
-            int partBMoveCount = Integer.parseInt(new String(configProvider.getPuzzleConfigChars("part_b_move_count")).trim());
-            int[] partBCupLabels = new int[PART_B_CUP_COUNT];
-            System.arraycopy(partACupLabels,0,partBCupLabels,0,partACupCount);
-            for (int cupIndex=partACupCount; cupIndex<PART_B_CUP_COUNT; cupIndex++) {
-                partBCupLabels[cupIndex] = cupIndex+1;
-            }
-            Cup partBOneCup = run(partBCupLabels,partBMoveCount);
-            Cup partBOneCupOffset1 = partBOneCup.getNextCup();
-            Cup partBOneCupOffset2 = partBOneCupOffset1.getNextCup();
-            partBOutputValue = Math.multiplyExact((long)partBOneCupOffset1.getLabel(),(long)partBOneCupOffset2.getLabel());
+            return new BasicPuzzlePartResults<>(null);
+        }
+        int partBMoveCount = Integer.parseInt(new String(configProvider.getPuzzleConfigChars("part_b_move_count")).trim());
+        int partACupCount = partACupLabels.length;
+        int[] partBCupLabels = new int[PART_B_CUP_COUNT];
+        System.arraycopy(partACupLabels,0,partBCupLabels,0,partACupCount);
+        for (int cupIndex=partACupCount; cupIndex<PART_B_CUP_COUNT; cupIndex++) {
+            partBCupLabels[cupIndex] = cupIndex+1;
         }
-        return new BasicPuzzleResults<>(
-            partAOutputString,
-            partBOutputValue
-        );
+        Cup partBOneCup = run(partBCupLabels,partBMoveCount);
+        Cup partBOneCupOffset1 = partBOneCup.getNextCup();
+        Cup partBOneCupOffset2 = partBOneCupOffset1.getNextCup();
+        return new BasicPuzzlePartResults<>(Math.multiplyExact((long)partBOneCupOffset1.getLabel(),(long)partBOneCupOffset2.getLabel()));
     }
 
     private static Cup run(int[] cupLabels, int moveCount) {
@@ -1,18 +1,16 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2021;
 
+import uk.co.scottdennison.java.libs.text.input.LineFields;
 import uk.co.scottdennison.java.libs.text.input.LineReader;
+import uk.co.scottdennison.java.libs.text.input.LineView;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
 
 import java.io.PrintWriter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class Day02 implements IPuzzle {
-	private static final Pattern PATTERN = Pattern.compile("^(?<direction>[a-z]+) (?<value>[0-9]+)$");
-
 	@Override
 	public IPuzzleResults runPuzzle(
 		char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter
@@ -22,28 +20,27 @@ public class Day02 implements IPuzzle {
 		int horizonalPositionB = 0;
 		int depthB = 0;
 		int aimB = 0;
-		for (String line : LineReader.strings(inputCharacters)) {
-			Matcher matcher = PATTERN.matcher(line);
-			if (!matcher.matches()) {
-				throw new IllegalStateException("Unable to match pattern");
+		LineFields fields = new LineFields();
+		for (LineView line : LineReader.lineViews(inputCharacters)) {
+			if (line.split(' ', fields) != 2) {
+				throw new IllegalStateException("Unable to parse line");
+			}
+			int value = fields.parseInt(1);
+			if (fields.fieldEquals(0, "down")) {
+				depthA += value;
+				aimB += value;
+			}
+			else if (fields.fieldEquals(0, "up")) {
+				depthA -= value;
+				aimB -= value;
+			}
+			else if (fields.fieldEquals(0, "forward")) {
+				horizonalPositionA += value;
+				horizonalPositionB += value;
+				depthB += aimB*value;
 			}
-			int value = Integer.parseInt(matcher.group("value"));
-			switch(matcher.group("direction")) {
-				case "down":
-					depthA += value;
-					aimB += value;
-					break;
-				case "up":
-					depthA -= value;
-					aimB -= value;
-					break;
-				case "forward":
-					horizonalPositionA += value;
-					horizonalPositionB += value;
-					depthB += aimB*value;
-					break;
-				default:
-					throw new IllegalStateException("Unexpected direction");
+			else {
+				throw new IllegalStateException("Unexpected direction");
 			}
 		}
 		return new BasicPuzzleResults<>(
@@ -2,6 +2,7 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2021;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AStarSolver;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.IntAStarSolver;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
@@ -52,7 +53,7 @@ public class Day15 implements IPuzzle {
     }
 
     private int runAStar(Integer[][] risk, int height, int width) {
-        return AStarSolver.run(
+        return IntAStarSolver.run(
             new AStarSolver.PointNodeAdapter<>(
                 AStarSolver.PointNodeAdapter.AlwaysTrueCanMoveAdapter.INSTANCE,
                 (linkedFromPoint, linkedToPoint) -> risk[linkedToPoint.getY()][linkedToPoint.getX()],
@@ -62,10 +63,10 @@ public class Day15 implements IPuzzle {
                 0,
                 width-1
             ),
-            AStarSolver.CostAdapter.CommonTypes.Of.Integer.INSTANCE,
             new AStarSolver.ThrowingResultAdapter<>(new AStarSolver.CostOnlyResultAdapter<>()),
             new AStarSolver.PointNodeAdapter.Point(0,0),
-            new AStarSolver.PointNodeAdapter.Point(height-1,width-1)
+            new AStarSolver.PointNodeAdapter.Point(height-1,width-1),
+            AStarSolver.OpenSetStrategy.BUCKET_QUEUE
         );
     }
 }
@@ -0,0 +1,44 @@
+package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2022.day16;
+
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AStarSolver;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AllPairsShortestPaths;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Every attempt at day 16 needs the number of minutes to walk between each pair of the valves it cares about. Each attempt has its own Valve class, so the tunnels of each valve are looked up by name.
+final class Day16Distances {
+    private Day16Distances() {
+    }
+
+    static int[][] calculate(final Collection<String> allValveNames, final Function<String, Set<String>> connectedTunnelsLookup, final List<String> valveNamesOfInterest) {
+        return AllPairsShortestPaths.calculate(
+            new AStarSolver.NodeAdapter<String, Integer>() {
+                @Override
+                public void getLinkedNodeKeys(final String fromNodeKey, final Consumer<String> linkedNodeKeyConsumer) {
+                    connectedTunnelsLookup.apply(fromNodeKey).forEach(linkedNodeKeyConsumer);
+                }
+
+                @Override
+                public Integer getCostOfMovingBetweenLinkedNodes(final String linkedFromNodeKey, final String linkedToNodeKey) {
+                    return 1;
+                }
+
+                @Override
+                public Integer getCostEstimateOfMovingBetweenNodes(final String fromNodeKey, final String toNodeKey) {
+                    return 0;
+                }
+
+                @Override
+                public boolean isValidEndingNode(final String nodeKey) {
+                    return true;
+                }
+            },
+            allValveNames,
+            valveNamesOfInterest
+        ).requireAllReachable().toArrays();
+    }
+}
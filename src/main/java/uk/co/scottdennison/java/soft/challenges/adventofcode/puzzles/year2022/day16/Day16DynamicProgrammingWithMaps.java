@@ -7,6 +7,7 @@ import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleCo
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
 
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
@@ -17,6 +18,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class Day16DynamicProgrammingWithMaps implements IPuzzle {
@@ -109,7 +111,6 @@ public class Day16DynamicProgrammingWithMaps implements IPuzzle {
     @Override
     public IPuzzleResults runPuzzle(final char[] inputCharacters, final IPuzzleConfigProvider configProvider, final boolean partBPotentiallyUnsolvable, final PrintWriter printWriter) {
         final Map<String, Valve> allValves = parseValves(inputCharacters);
-        final Map<String, Map<String, Integer>> allValvesDistancesMap = createDistancesMap(allValves);
         final Valve startingValve = allValves.get(STARTING_VALVE_NAME);
         if (startingValve == null) {
             throw new IllegalStateException("Starting valve does not exist");
@@ -119,15 +120,11 @@ public class Day16DynamicProgrammingWithMaps implements IPuzzle {
         if (valvesOfInterestCount > Integer.SIZE) {
             throw new IllegalStateException("Too many valves of interest");
         }
-        final int[][] distanceBetweenValves = new int[valvesOfInterestCount][valvesOfInterestCount];
+        final int[][] distanceBetweenValves = Day16Distances.calculate(allValves.keySet(), valveName -> allValves.get(valveName).getConnectedTunnels(), Arrays.stream(valvesOfInterest).map(Valve::getName).collect(Collectors.toList()));
         final int[] flowRates = new int[valvesOfInterestCount];
         for (int valveIndex1=0; valveIndex1<valvesOfInterestCount; valveIndex1++) {
             final Valve valve1 = valvesOfInterest[valveIndex1];
             flowRates[valveIndex1] = valve1.getFlowRate();
-            for (int valveIndex2=0; valveIndex2<valvesOfInterestCount; valveIndex2++) {
-                final Valve valve2 = valvesOfInterest[valveIndex2];
-                distanceBetweenValves[valveIndex1][valveIndex2] = allValvesDistancesMap.get(valve1.getName()).get(valve2.getName());
-            }
         }
         final boolean considerStartingValve = startingValve.getFlowRate()>0;
         return new BasicPuzzleResults<>(
@@ -159,31 +156,6 @@ public class Day16DynamicProgrammingWithMaps implements IPuzzle {
         return valves;
     }
 
-    private static Map<String, Map<String, Integer>> createDistancesMap(final Map<String, Valve> valves) {
-        final Map<String,Map<String,Integer>> allDistances = new HashMap<>();
-        for (final String valveName : valves.keySet()) {
-            Set<String> pendingVisitValveNames = new HashSet<>();
-            final Map<String,Integer> distancesForThisValve = new HashMap<>();
-            int distance = 0;
-            pendingVisitValveNames.add(valveName);
-            while (!pendingVisitValveNames.isEmpty()) {
-                final Set<String> newPendingVisitValveNames = new HashSet<>();
-                for (final String pendingVisitValveName : pendingVisitValveNames) {
-                    distancesForThisValve.put(pendingVisitValveName,distance);
-                    for (final String linkedValveName : valves.get(pendingVisitValveName).getConnectedTunnels()) {
-                        if (!distancesForThisValve.containsKey(linkedValveName) && !pendingVisitValveNames.contains(linkedValveName)) {
-                            newPendingVisitValveNames.add(linkedValveName);
-                        }
-                    }
-                }
-                pendingVisitValveNames = newPendingVisitValveNames;
-                distance++;
-            }
-            allDistances.put(valveName,distancesForThisValve);
-        }
-        return allDistances;
-    }
-
     private static int solve(final int[][] distanceBetweenValves, final int[] flowRates, final int startIndex, final boolean considerStartingValve, final int availableTime, int maximumActorCount) {
         return
             calculateBestPressureRelieved(
@@ -1,6 +1,7 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2023;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.ParallelStreams;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
@@ -17,41 +18,42 @@ public class Day12 implements IPuzzle {
 
 	private static final int REPTITIONS = 5;
 
-	@Override
-	public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
-		long partASum = 0;
-		long partBSum = 0;
-		int lineNumber = 0;
-		for (String inputLine : LineReader.strings(inputCharacters)) {
-			Matcher matcher = PATTERN_LINE.matcher(inputLine);
-			if (!matcher.matches()) {
-				throw new IllegalStateException("Could not parse line");
-			}
-			lineNumber++;
+	// Returns the part A and part B arrangement counts for one row, which need nothing from any other row.
+	private static long[] countArrangements(String inputLine) {
+		Matcher matcher = PATTERN_LINE.matcher(inputLine);
+		if (!matcher.matches()) {
+			throw new IllegalStateException("Could not parse line");
+		}
 
-			int[] unexpandedGroups = PATTERN_COMMA.splitAsStream(matcher.group("groups")).mapToInt(Integer::parseInt).toArray();
-			int unexpandedGroupsCount = unexpandedGroups.length;
+		int[] unexpandedGroups = PATTERN_COMMA.splitAsStream(matcher.group("groups")).mapToInt(Integer::parseInt).toArray();
+		int unexpandedGroupsCount = unexpandedGroups.length;
 
-			char[] unexpandedSprings = matcher.group("springs").toCharArray();
-			int unexpandedSpringsCount = unexpandedSprings.length;
+		char[] unexpandedSprings = matcher.group("springs").toCharArray();
+		int unexpandedSpringsCount = unexpandedSprings.length;
 
-			int[] expandedGroups = new int[unexpandedGroupsCount*REPTITIONS];
-			char[] expandedSprings = new char[unexpandedSpringsCount*REPTITIONS+REPTITIONS-1];
+		int[] expandedGroups = new int[unexpandedGroupsCount*REPTITIONS];
+		char[] expandedSprings = new char[unexpandedSpringsCount*REPTITIONS+REPTITIONS-1];
 
-			for (int reptitionIndex=0; reptitionIndex<REPTITIONS; reptitionIndex++) {
-				if (reptitionIndex > 0) {
-					expandedSprings[reptitionIndex*(unexpandedSpringsCount+1)-1] = '?';
-				}
-				System.arraycopy(unexpandedGroups,0,expandedGroups,reptitionIndex*unexpandedGroupsCount,unexpandedGroupsCount);
-				System.arraycopy(unexpandedSprings,0,expandedSprings,reptitionIndex*(unexpandedSpringsCount+1),unexpandedSpringsCount);
+		for (int reptitionIndex=0; reptitionIndex<REPTITIONS; reptitionIndex++) {
+			if (reptitionIndex > 0) {
+				expandedSprings[reptitionIndex*(unexpandedSpringsCount+1)-1] = '?';
 			}
-
-			partASum += recurse(unexpandedSprings, unexpandedGroups);
-			partBSum += recurse(expandedSprings, expandedGroups);
+			System.arraycopy(unexpandedGroups,0,expandedGroups,reptitionIndex*unexpandedGroupsCount,unexpandedGroupsCount);
+			System.arraycopy(unexpandedSprings,0,expandedSprings,reptitionIndex*(unexpandedSpringsCount+1),unexpandedSpringsCount);
 		}
+
+		return new long[] {
+			recurse(unexpandedSprings, unexpandedGroups),
+			recurse(expandedSprings, expandedGroups)
+		};
+	}
+
+	@Override
+	public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
+		long[] sums = ParallelStreams.parallelIfWorthwhile(LineReader.stringsStream(inputCharacters)).map(Day12::countArrangements).collect(ParallelStreams.summingElements(2));
 		return new BasicPuzzleResults<>(
-			partASum,
-			partBSum
+			sums[0],
+			sums[1]
 		);
 	}
 
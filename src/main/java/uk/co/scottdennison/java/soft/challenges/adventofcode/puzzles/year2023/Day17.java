@@ -2,6 +2,7 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2023;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AStarSolver;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.IntAStarSolver;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
@@ -129,7 +130,7 @@ public class Day17 implements IPuzzle {
     }
 
     private static int solve(Integer[][] costsGrid, int height, int width, int minimumTurnOrStopStraightLineDistance, int maximumStraightLineDistance) {
-        return AStarSolver.run(
+        return IntAStarSolver.run(
             new AStarSolver.NodeAdapter<NodeKey,Integer>() {
                 @Override
                 public void getLinkedNodeKeys(NodeKey fromNodeKey, Consumer<NodeKey> linkedNodeKeyConsumer) {
@@ -181,10 +182,10 @@ public class Day17 implements IPuzzle {
                     return nodeKey.getStraightLineDistance() >= minimumTurnOrStopStraightLineDistance;
                 }
             },
-            AStarSolver.CostAdapter.CommonTypes.Of.Integer.INSTANCE,
             new AStarSolver.ThrowingResultAdapter<>(new AStarSolver.CostOnlyResultAdapter<>()),
             new NodeKey(0, 0, null, 0),
-            new NodeKey(height-1, width-1, null, 0)
+            new NodeKey(height-1, width-1, null, 0),
+            AStarSolver.OpenSetStrategy.BUCKET_QUEUE
         );
     }
 }
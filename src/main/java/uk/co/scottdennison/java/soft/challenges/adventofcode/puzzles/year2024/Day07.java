@@ -1,6 +1,7 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2024;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.ParallelStreams;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
@@ -46,34 +47,37 @@ public class Day07 implements IPuzzle {
         return false;
     }
 
+    // Returns what the equation adds to the part A and part B sums, which does not depend on any other equation.
+    private static long[] calibrate(String inputLine) {
+        String[] lineParts = inputLine.split(":");
+        if (lineParts.length != 2) {
+            throw new IllegalStateException("Could not parse input line");
+        }
+        long target = Long.parseLong(lineParts[0]);
+        String[] operandStrings = lineParts[1].trim().split(" ");
+        int operandCount = operandStrings.length;
+        long[] operands = new long[operandCount];
+        for (int operandIndex = 0; operandIndex < operandCount; operandIndex++) {
+            operands[operandIndex] = Long.parseLong(operandStrings[operandIndex].trim());
+        }
+        int lastOperandIndex = operandCount - 1;
+        if (recurse(operands[0], target, operands, lastOperandIndex, false)) {
+            return new long[] {target, target};
+        }
+        else if (recurse(operands[0], target, operands, lastOperandIndex, true)) {
+            return new long[] {0, target};
+        }
+        else {
+            return new long[] {0, 0};
+        }
+    }
+
     @Override
     public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
-        long partASum = 0;
-        long partBSum = 0;
-        for (String inputLine : LineReader.strings(inputCharacters)) {
-            String[] lineParts = inputLine.split(":");
-            if (lineParts.length != 2) {
-                throw new IllegalStateException("Could not parse input line");
-            }
-            long target = Long.parseLong(lineParts[0]);
-            String[] operandStrings = lineParts[1].trim().split(" ");
-            int operandCount = operandStrings.length;
-            long[] operands = new long[operandCount];
-            for (int operandIndex = 0; operandIndex < operandCount; operandIndex++) {
-                operands[operandIndex] = Long.parseLong(operandStrings[operandIndex].trim());
-            }
-            int lastOperandIndex = operandCount - 1;
-            if (recurse(operands[0], target, operands, lastOperandIndex, false)) {
-                partASum += target;
-                partBSum += target;
-            }
-            else if (recurse(operands[0], target, operands, lastOperandIndex, true)) {
-                partBSum += target;
-            }
-        }
+        long[] sums = ParallelStreams.parallelIfWorthwhile(LineReader.stringsStream(inputCharacters)).map(Day07::calibrate).collect(ParallelStreams.summingElements(2));
         return new BasicPuzzleResults<>(
-            partASum,
-            partBSum
+            sums[0],
+            sums[1]
         );
     }
 }
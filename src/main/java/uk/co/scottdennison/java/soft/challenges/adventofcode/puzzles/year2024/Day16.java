@@ -2,6 +2,7 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2024;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AStarSolver;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.IntAStarSolver;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
@@ -160,7 +161,7 @@ public class Day16 implements IPuzzle {
             nextDirection[directionOrdinal] = directions[(directionOrdinal + 1) % directionCount];
             previousDirection[directionOrdinal] = directions[(directionOrdinal - 1 + directionCount) % directionCount];
         }
-        AStarSolver.CostIncludingResultAdapter.CostAdaptedResult<Integer,Map<Coordinate,Set<Coordinate>>> result = AStarSolver.run(
+        AStarSolver.CostIncludingResultAdapter.CostAdaptedResult<Integer,Map<Coordinate,Set<Coordinate>>> result = IntAStarSolver.run(
             new AStarSolver.NodeAdapter<DirectionalCoordinate, Integer>() {
                 @Override
                 public void getLinkedNodeKeys(DirectionalCoordinate fromNodeKey, Consumer<DirectionalCoordinate> linkedNodeKeyConsumer) {
@@ -191,7 +192,6 @@ public class Day16 implements IPuzzle {
                     return nodeKey.getCoordinate().equals(end);
                 }
             },
-            AStarSolver.CostAdapter.CommonTypes.Of.Integer.INSTANCE,
             new AStarSolver.ThrowingResultAdapter<>(new AStarSolver.CostIncludingResultAdapter<>(new AStarSolver.LinkagesRouteResultAdapter<>(DirectionalCoordinate::getCoordinate))),
             new DirectionalCoordinate(start, Direction.EAST),
             new DirectionalCoordinate(end, null)
@@ -2,6 +2,7 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2024;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AStarSolver;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.IntAStarSolver;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
@@ -39,7 +40,7 @@ public class Day18 implements IPuzzle {
     private static final Pattern PATTERN_LINE = Pattern.compile("^(?<x>[0-9]+),(?<y>[0-9]+)$");
 
     private static <ResultType> ResultType runAStar(boolean[][] corruptedSquares, int maxCoordinateNumber, AStarSolver.FullResultAdapter<AStarSolver.PointNodeAdapter.Point,Integer,ResultType> resultAdapter) {
-        return AStarSolver.run(
+        return IntAStarSolver.run(
             new AStarSolver.PointNodeAdapter<Integer>(
                 new AStarSolver.PointNodeAdapter.CanMoveAdapter() {
                     @Override
@@ -54,7 +55,6 @@ public class Day18 implements IPuzzle {
                 0,
                 maxCoordinateNumber
             ),
-            AStarSolver.CostAdapter.CommonTypes.Of.Integer.INSTANCE,
             resultAdapter,
             new AStarSolver.PointNodeAdapter.Point(0,0),
             new AStarSolver.PointNodeAdapter.Point(maxCoordinateNumber,maxCoordinateNumber)
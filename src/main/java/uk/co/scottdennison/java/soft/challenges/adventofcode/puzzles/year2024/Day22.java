@@ -1,6 +1,7 @@
 package uk.co.scottdennison.java.soft.challenges.adventofcode.puzzles.year2024;
 
 import uk.co.scottdennison.java.libs.text.input.LineReader;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.ParallelStreams;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.BasicPuzzleResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
@@ -11,19 +12,24 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class Day22 implements IPuzzle {
     private static final int _19_TO_POWER_OF_4 = 130321; // Where 19 is the number of possible values -9 to 9
 
-    @Override
-    public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
-        long secretNumberTotal = 0;
-        String[] inputLines = LineReader.stringsArray(inputCharacters, true);
-        int sellerCount = inputLines.length;
-        int[] priceDifferenceKeyToBananas = new int[_19_TO_POWER_OF_4];
-        int[] lastSellerSeenWithPriceDifferenceKey = new int[_19_TO_POWER_OF_4];
-        for (int sellerNumber=1; sellerNumber<=sellerCount; sellerNumber++) {
-            long secretNumber = Long.parseLong(inputLines[sellerNumber - 1]);
+    // Each chunk of sellers gets its own totals, which are only added together at the end.
+    private static final class SellerTotals {
+        private long secretNumberTotal = 0;
+        private final int[] priceDifferenceKeyToBananas = new int[_19_TO_POWER_OF_4];
+        private final int[] lastSellerSeenWithPriceDifferenceKey = new int[_19_TO_POWER_OF_4];
+        private int sellerCount = 0;
+
+        private void addSeller(String inputLine) {
+            int sellerNumber = ++this.sellerCount;
+            int[] priceDifferenceKeyToBananas = this.priceDifferenceKeyToBananas;
+            int[] lastSellerSeenWithPriceDifferenceKey = this.lastSellerSeenWithPriceDifferenceKey;
+            long secretNumber = Long.parseLong(inputLine);
             int lastPrice = (int)(secretNumber % 10);
             int priceDifferenceKey = 0;
             for (int iteration=1; iteration<=2000; iteration++) {
@@ -38,17 +44,41 @@ public class Day22 implements IPuzzle {
                 }
                 lastPrice = price;
             }
-            secretNumberTotal += secretNumber;
+            this.secretNumberTotal += secretNumber;
+        }
+
+        private SellerTotals addAll(SellerTotals otherSellerTotals) {
+            this.secretNumberTotal += otherSellerTotals.secretNumberTotal;
+            for (int priceDifferenceKey=0; priceDifferenceKey<_19_TO_POWER_OF_4; priceDifferenceKey++) {
+                this.priceDifferenceKeyToBananas[priceDifferenceKey] += otherSellerTotals.priceDifferenceKeyToBananas[priceDifferenceKey];
+            }
+            return this;
         }
+    }
+
+    @Override
+    public IPuzzleResults runPuzzle(char[] inputCharacters, IPuzzleConfigProvider configProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter) {
+        String[] inputLines = LineReader.stringsArray(inputCharacters, true);
+        int sellerCount = inputLines.length;
+        // Split into one chunk per common pool thread rather than letting a parallel stream split as far as it likes, as every chunk needs its own pair of 19^4 entry tables.
+        int chunkCount = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), sellerCount));
+        SellerTotals sellerTotals = ParallelStreams.parallelIfWorthwhile(IntStream.range(0, chunkCount)).mapToObj(chunkIndex -> {
+            SellerTotals chunkSellerTotals = new SellerTotals();
+            int endSellerIndex = (int)(((long) sellerCount * (chunkIndex + 1)) / chunkCount);
+            for (int sellerIndex=(int)(((long) sellerCount * chunkIndex) / chunkCount); sellerIndex<endSellerIndex; sellerIndex++) {
+                chunkSellerTotals.addSeller(inputLines[sellerIndex]);
+            }
+            return chunkSellerTotals;
+        }).reduce(SellerTotals::addAll).get();
         int maxBananas = 0;
         for (int priceDifferenceKey=0; priceDifferenceKey<_19_TO_POWER_OF_4; priceDifferenceKey++) {
-            int bananas = priceDifferenceKeyToBananas[priceDifferenceKey];
+            int bananas = sellerTotals.priceDifferenceKeyToBananas[priceDifferenceKey];
             if (bananas > maxBananas) {
                 maxBananas = bananas;
             }
         }
         return new BasicPuzzleResults<>(
-            secretNumberTotal,
+            sellerTotals.secretNumberTotal,
             maxBananas
         );
     }
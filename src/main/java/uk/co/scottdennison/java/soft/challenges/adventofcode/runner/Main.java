@@ -3,34 +3,66 @@ package uk.co.scottdennison.java.soft.challenges.adventofcode.runner;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.kohsuke.args4j.Option;
+import uk.co.scottdennison.java.libs.text.input.AsciiByteBufferCharSequence;
 import uk.co.scottdennison.java.libs.text.output.DisplayWriter;
 import uk.co.scottdennison.java.libs.text.output.table.DisplayTextualTableBuilder;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.common.AStarStatistics;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.ICharSequencePuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzle;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleConfigProvider;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzlePartResults;
 import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.IPuzzleResults;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.ITwoPhasePuzzle;
+import uk.co.scottdennison.java.soft.challenges.adventofcode.framework.MultiPartPuzzleResults;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.Console;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.NumberFormat;
+import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -44,6 +76,23 @@ public class Main {
 	private static final int MAX_DAY_PRE_REDUCED_PUZZLES = 25;
 	private static final int MAX_DAY_POST_REDUCED_PUZZLES = 12;
 
+	private static final int MEMORY_MAP_THRESHOLD_BYTES = 1024 * 1024;
+	private static final int DEFAULT_FILE_CACHE_SIZE_MEBIBYTES = 256;
+	private static final String DEFAULT_HISTORY_FILE = "data/timing_history.csv";
+
+	private static final FileContentCache FILE_CONTENT_CACHE = new FileContentCache(mebibytesToCharacters(DEFAULT_FILE_CACHE_SIZE_MEBIBYTES));
+
+	private static final String COMMON_POOL_THREAD_FACTORY_PROPERTY = "java.util.concurrent.ForkJoinPool.common.threadFactory";
+
+	private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+	private static final List<GarbageCollectorMXBean> GARBAGE_COLLECTOR_MX_BEANS = ManagementFactory.getGarbageCollectorMXBeans();
+
+	private static final ExecutorService PART_EXECUTOR_SERVICE = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "puzzle-part-runner");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 	public static class CommandLineBean {
 		@Option(name = "-y", aliases = "--year", usage = "only run puzzles from a specified year")
 		private List<Integer> years;
@@ -54,8 +103,47 @@ public class Main {
 		@Option(name = "-u", aliases = "--user", usage = "only run puzzle data sets for user u")
 		private List<Integer> users;
 
-		@Option(name = "-j", aliases = "--pre-run-for-jit", usage = "run each data set twice, discarding the first time, in a bid to pre-JIT the code")
-		private boolean preRunForJIT;
+		@Option(name = "-w", aliases = "--warmup", usage = "run each data set n times before measuring, discarding the results, in a bid to pre-JIT the code")
+		private int warmupIterations = 0;
+
+		@Option(name = "-i", aliases = "--iterations", usage = "measure each data set n times, reporting statistics over the timings and checking every run gives the same answers")
+		private int measuredIterations = 1;
+
+		@Option(name = "-P", aliases = "--concurrent-parts", usage = "solve part A and part B of two-phase puzzles concurrently once their input has been parsed")
+		private boolean concurrentParts;
+
+		@Option(name = "-p", aliases = "--parallel", usage = "run up to n data sets at once, printing the output of each puzzle in order as it completes")
+		private int parallelism = 1;
+
+		@Option(name = "-a", aliases = "--memory-stats", usage = "show the bytes allocated, and the number and total pause time of garbage collections, while running each data set")
+		private boolean memoryStatistics;
+
+		@Option(name = "-s", aliases = "--search-stats", usage = "show the nodes expanded, generated and improved, the peak open set and known node counts, and the time spent in node adapters, of the A* searches run by each data set")
+		private boolean searchStatistics;
+
+		@Option(name = "-m", aliases = "--file-cache-size", usage = "maximum size in MiB of the input, output and config file contents cached between runs of the same data set")
+		private int fileCacheSizeMebibytes = DEFAULT_FILE_CACHE_SIZE_MEBIBYTES;
+
+		@Option(name = "-o", aliases = "--output-file", usage = "file to write the results of every data set run to, in the format given by --output-format")
+		private String outputFile;
+
+		@Option(name = "-f", aliases = "--output-format", usage = "format of the results written to the --output-file")
+		private ResultsOutput.Format outputFormat = ResultsOutput.Format.JSON;
+
+		@Option(name = "-H", aliases = "--history-file", usage = "file to append the timings of each data set run to, which also turns on recording them")
+		private String historyFile;
+
+		@Option(name = "-n", aliases = "--no-history", usage = "do not append the timings of this run to the history file, even if --history-file or --compare-baseline is given")
+		private boolean noHistory;
+
+		@Option(name = "-c", aliases = "--compare-baseline", usage = "flag any data set whose time regressed against the median of its previous timings in the history file, and record the timings of this run there too")
+		private boolean compareBaseline;
+
+		@Option(name = "-t", aliases = "--regression-threshold", usage = "percentage slower than the baseline median that counts as a regression")
+		private double regressionThresholdPercentage = 20.0D;
+
+		@Option(name = "-b", aliases = "--baseline-runs", usage = "number of most recent previous timings of each data set that form the baseline")
+		private int baselineRuns = 5;
 
 		private Set<Integer> processSetList(List<Integer> values) {
 			if (values == null) {
@@ -76,8 +164,318 @@ public class Main {
 			return this.processSetList(this.users);
 		}
 
-		public boolean isPreRunForJIT() {
-			return this.preRunForJIT;
+		public int getWarmupIterations() {
+			return this.warmupIterations;
+		}
+
+		public int getMeasuredIterations() {
+			return this.measuredIterations;
+		}
+
+		public boolean isConcurrentParts() {
+			return this.concurrentParts;
+		}
+
+		public boolean isMemoryStatistics() {
+			return this.memoryStatistics;
+		}
+
+		public boolean isSearchStatistics() {
+			return this.searchStatistics;
+		}
+
+		public int getParallelism() {
+			return this.parallelism;
+		}
+
+		public int getFileCacheSizeMebibytes() {
+			return this.fileCacheSizeMebibytes;
+		}
+
+		public Path getOutputFile() {
+			return this.outputFile == null ? null : Paths.get(this.outputFile);
+		}
+
+		public ResultsOutput.Format getOutputFormat() {
+			return this.outputFormat;
+		}
+
+		public Path getHistoryFile() {
+			return Paths.get(this.historyFile == null ? DEFAULT_HISTORY_FILE : this.historyFile);
+		}
+
+		// Timings are only recorded when asked for, so that a plain run leaves nothing behind.
+		public boolean isRecordHistory() {
+			return (this.historyFile != null || this.compareBaseline) && !this.noHistory;
+		}
+
+		public boolean isCompareBaseline() {
+			return this.compareBaseline;
+		}
+
+		public double getRegressionThresholdPercentage() {
+			return this.regressionThresholdPercentage;
+		}
+
+		public int getBaselineRuns() {
+			return this.baselineRuns;
+		}
+	}
+
+	private static class RunSettings {
+		private final int warmupIterations;
+		private final int measuredIterations;
+		private final boolean concurrentParts;
+		private final boolean searchStatistics;
+		private final boolean concurrentDataSets;
+
+		public RunSettings(int warmupIterations, int measuredIterations, boolean concurrentParts, boolean searchStatistics, boolean concurrentDataSets) {
+			this.warmupIterations = warmupIterations;
+			this.measuredIterations = measuredIterations;
+			this.concurrentParts = concurrentParts;
+			this.searchStatistics = searchStatistics;
+			this.concurrentDataSets = concurrentDataSets;
+		}
+
+		public int getWarmupIterations() {
+			return this.warmupIterations;
+		}
+
+		public int getMeasuredIterations() {
+			return this.measuredIterations;
+		}
+
+		public boolean isConcurrentParts() {
+			return this.concurrentParts;
+		}
+
+		public boolean isSearchStatistics() {
+			return this.searchStatistics;
+		}
+
+		public boolean isConcurrentDataSets() {
+			return this.concurrentDataSets;
+		}
+	}
+
+	private static class PhaseNanoseconds {
+		private long parseNanoseconds;
+		private long partANanoseconds;
+		private long partBNanoseconds;
+		private long helperThreadCpuNanoseconds;
+		// Not a phase timing, but like the CPU time it has to be measured on the thread that solved part B.
+		private long helperThreadAllocatedBytes;
+
+		public long getParseNanoseconds() {
+			return this.parseNanoseconds;
+		}
+
+		public long getPartANanoseconds() {
+			return this.partANanoseconds;
+		}
+
+		public long getPartBNanoseconds() {
+			return this.partBNanoseconds;
+		}
+
+		public long getHelperThreadCpuNanoseconds() {
+			return this.helperThreadCpuNanoseconds;
+		}
+
+		public long getHelperThreadAllocatedBytes() {
+			return this.helperThreadAllocatedBytes;
+		}
+	}
+
+	// Work a puzzle hands to the common fork-join pool, such as a parallel stream, runs on the pool's worker threads rather than on the thread timing the puzzle, so those threads are measured as well.
+	private static class CommonPoolUsage {
+		private final boolean concurrentDataSets;
+		private final long[] startUsage;
+		private long cpuNanoseconds;
+		private long allocatedBytes;
+
+		private CommonPoolUsage(boolean concurrentDataSets, long[] startUsage) {
+			this.concurrentDataSets = concurrentDataSets;
+			this.startUsage = startUsage;
+		}
+
+		public static CommonPoolUsage start(boolean concurrentDataSets) {
+			return new CommonPoolUsage(concurrentDataSets, CommonPoolWorkerThreadFactory.measureWorkerThreads());
+		}
+
+		public void finish() {
+			long[] finishUsage = CommonPoolWorkerThreadFactory.measureWorkerThreads();
+			this.cpuNanoseconds = finishUsage[0] - this.startUsage[0];
+			this.allocatedBytes = finishUsage[1] - this.startUsage[1];
+		}
+
+		// The pool is shared by the whole JVM, so when other data sets are being run at the same time, any work it did cannot be attributed to this run.
+		public boolean isAttributable() {
+			return !this.concurrentDataSets || (this.cpuNanoseconds == 0 && this.allocatedBytes == 0);
+		}
+
+		public long getCpuNanoseconds() {
+			return this.cpuNanoseconds;
+		}
+
+		public long getAllocatedBytes() {
+			return this.allocatedBytes;
+		}
+	}
+
+	// Installed as the common pool's thread factory when the runner starts, so that measuring the pool only has to look at the pool's own worker threads.
+	// If the pool was created before then, or with a different factory, no worker threads are known and the pool's work is not counted.
+	public static class CommonPoolWorkerThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory {
+		private static final Object LOCK = new Object();
+		private static final Set<Thread> WORKER_THREADS = new HashSet<>();
+		private static long finishedWorkerThreadsCpuNanoseconds = 0L;
+		private static long finishedWorkerThreadsAllocatedBytes = 0L;
+
+		@Override
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+			return new WorkerThread(pool);
+		}
+
+		// Returns the total CPU time and allocated bytes of every worker thread the pool has had, including those that have since finished.
+		static long[] measureWorkerThreads() {
+			synchronized (LOCK) {
+				long cpuNanoseconds = finishedWorkerThreadsCpuNanoseconds;
+				long allocatedBytes = finishedWorkerThreadsAllocatedBytes;
+				for (Thread workerThread : WORKER_THREADS) {
+					long threadId = workerThread.getId();
+					cpuNanoseconds += Math.max(0L, getThreadCpuTime(threadId));
+					// When allocations cannot be measured the run reports none anyway, so the worker threads just count as allocating nothing.
+					allocatedBytes += Math.max(0L, getThreadAllocatedBytes(threadId));
+				}
+				return new long[] {cpuNanoseconds, allocatedBytes};
+			}
+		}
+
+		private static class WorkerThread extends ForkJoinWorkerThread {
+			public WorkerThread(ForkJoinPool pool) {
+				super(pool);
+			}
+
+			@Override
+			protected void onStart() {
+				super.onStart();
+				synchronized (LOCK) {
+					WORKER_THREADS.add(this);
+				}
+			}
+
+			@Override
+			protected void onTermination(Throwable exception) {
+				// Once the thread has finished its usage can no longer be read, so it is added to the totals for finished threads while it still can be.
+				synchronized (LOCK) {
+					finishedWorkerThreadsCpuNanoseconds += getCurrentThreadCpuTime();
+					finishedWorkerThreadsAllocatedBytes += Math.max(0L, getCurrentThreadAllocatedBytes());
+					WORKER_THREADS.remove(this);
+				}
+				super.onTermination(exception);
+			}
+		}
+	}
+
+	private static class MemoryUsage {
+		private final long allocatedBytes;
+		private final long garbageCollectionCount;
+		private final long garbageCollectionMilliseconds;
+
+		public MemoryUsage(long allocatedBytes, long garbageCollectionCount, long garbageCollectionMilliseconds) {
+			this.allocatedBytes = allocatedBytes;
+			this.garbageCollectionCount = garbageCollectionCount;
+			this.garbageCollectionMilliseconds = garbageCollectionMilliseconds;
+		}
+
+		public boolean hasAllocatedBytes() {
+			return this.allocatedBytes >= 0;
+		}
+
+		public long getAllocatedBytes() {
+			return this.allocatedBytes;
+		}
+
+		public boolean hasGarbageCollections() {
+			return this.garbageCollectionCount >= 0;
+		}
+
+		public long getGarbageCollectionCount() {
+			return this.garbageCollectionCount;
+		}
+
+		public long getGarbageCollectionMilliseconds() {
+			return this.garbageCollectionMilliseconds;
+		}
+	}
+
+	private static class TimingStatistics {
+		private final long minimumNanoseconds;
+		private final long medianNanoseconds;
+		private final long percentile90Nanoseconds;
+		private final long maximumNanoseconds;
+		private final double standardDeviationNanoseconds;
+
+		private TimingStatistics(long minimumNanoseconds, long medianNanoseconds, long percentile90Nanoseconds, long maximumNanoseconds, double standardDeviationNanoseconds) {
+			this.minimumNanoseconds = minimumNanoseconds;
+			this.medianNanoseconds = medianNanoseconds;
+			this.percentile90Nanoseconds = percentile90Nanoseconds;
+			this.maximumNanoseconds = maximumNanoseconds;
+			this.standardDeviationNanoseconds = standardDeviationNanoseconds;
+		}
+
+		public static TimingStatistics create(long[] nanoseconds) {
+			long[] sortedNanoseconds = nanoseconds.clone();
+			Arrays.sort(sortedNanoseconds);
+			int count = sortedNanoseconds.length;
+			double mean = 0.0D;
+			for (long value : sortedNanoseconds) {
+				mean += value;
+			}
+			mean /= count;
+			double sumOfSquaredDifferences = 0.0D;
+			for (long value : sortedNanoseconds) {
+				double difference = value - mean;
+				sumOfSquaredDifferences += difference * difference;
+			}
+			return new TimingStatistics(
+				sortedNanoseconds[0],
+				median(sortedNanoseconds),
+				// Nearest-rank percentile, so that it is always one of the measured values.
+				sortedNanoseconds[(int) Math.ceil(count * 0.9D) - 1],
+				sortedNanoseconds[count - 1],
+				count > 1 ? Math.sqrt(sumOfSquaredDifferences / (count - 1)) : 0.0D
+			);
+		}
+
+		public static long median(long[] sortedValues) {
+			int middleIndex = sortedValues.length / 2;
+			if ((sortedValues.length % 2) == 0) {
+				return (sortedValues[middleIndex - 1] + sortedValues[middleIndex]) / 2;
+			}
+			else {
+				return sortedValues[middleIndex];
+			}
+		}
+
+		public long getMinimumNanoseconds() {
+			return this.minimumNanoseconds;
+		}
+
+		public long getMedianNanoseconds() {
+			return this.medianNanoseconds;
+		}
+
+		public long getPercentile90Nanoseconds() {
+			return this.percentile90Nanoseconds;
+		}
+
+		public long getMaximumNanoseconds() {
+			return this.maximumNanoseconds;
+		}
+
+		public double getStandardDeviationNanoseconds() {
+			return this.standardDeviationNanoseconds;
 		}
 	}
 
@@ -85,15 +483,25 @@ public class Main {
 		private final String dataSetName;
 		private final boolean exceptionOccured;
 		private final long nanoseconds;
+		private final long cpuNanoseconds;
+		private final PhaseNanoseconds phaseNanoseconds;
 		private final PuzzleRunPartResults partAResults;
 		private final PuzzleRunPartResults partBResults;
+		private final TimingStatistics timingStatistics;
+		private final MemoryUsage memoryUsage;
+		private final AStarStatistics searchStatistics;
 
-		private PuzzleRunResults(String dataSetName, long nanoseconds, boolean exceptionOccured, PuzzleRunPartResults partAResults, PuzzleRunPartResults partBResults) {
+		private PuzzleRunResults(String dataSetName, long nanoseconds, long cpuNanoseconds, PhaseNanoseconds phaseNanoseconds, boolean exceptionOccured, PuzzleRunPartResults partAResults, PuzzleRunPartResults partBResults, TimingStatistics timingStatistics, MemoryUsage memoryUsage, AStarStatistics searchStatistics) {
 			this.dataSetName = dataSetName;
 			this.nanoseconds = nanoseconds;
+			this.cpuNanoseconds = cpuNanoseconds;
+			this.phaseNanoseconds = phaseNanoseconds;
 			this.exceptionOccured = exceptionOccured;
 			this.partAResults = partAResults;
 			this.partBResults = partBResults;
+			this.timingStatistics = timingStatistics;
+			this.memoryUsage = memoryUsage;
+			this.searchStatistics = searchStatistics;
 		}
 
 		public String getDataSetName() {
@@ -104,6 +512,22 @@ public class Main {
 			return this.nanoseconds;
 		}
 
+		public boolean hasCpuNanoseconds() {
+			return this.cpuNanoseconds >= 0;
+		}
+
+		public long getCpuNanoseconds() {
+			return this.cpuNanoseconds;
+		}
+
+		public boolean hasPhaseNanoseconds() {
+			return this.phaseNanoseconds != null;
+		}
+
+		public PhaseNanoseconds getPhaseNanoseconds() {
+			return this.phaseNanoseconds;
+		}
+
 		public boolean isExceptionOccured() {
 			return this.exceptionOccured;
 		}
@@ -116,12 +540,75 @@ public class Main {
 			return this.partBResults;
 		}
 
-		private static PuzzleRunResults createForResults(String dataSetName, long nanoseconds, PuzzleRunPartResults partAResults, PuzzleRunPartResults partBResults) {
-			return new PuzzleRunResults(dataSetName, nanoseconds, false, partAResults, partBResults);
+		public boolean hasTimingStatistics() {
+			return this.timingStatistics != null;
 		}
 
-		private static PuzzleRunResults createForException(String dataSetName, long nanoseconds) {
-			return new PuzzleRunResults(dataSetName, nanoseconds, true, null, null);
+		public TimingStatistics getTimingStatistics() {
+			return this.timingStatistics;
+		}
+
+		public MemoryUsage getMemoryUsage() {
+			return this.memoryUsage;
+		}
+
+		public boolean hasSearchStatistics() {
+			return this.searchStatistics != null;
+		}
+
+		public AStarStatistics getSearchStatistics() {
+			return this.searchStatistics;
+		}
+
+		private static PuzzleRunResults createForResults(String dataSetName, long nanoseconds, long cpuNanoseconds, PhaseNanoseconds phaseNanoseconds, MemoryUsage memoryUsage, AStarStatistics searchStatistics, PuzzleRunPartResults partAResults, PuzzleRunPartResults partBResults) {
+			return new PuzzleRunResults(dataSetName, nanoseconds, cpuNanoseconds, phaseNanoseconds, false, partAResults, partBResults, null, memoryUsage, searchStatistics);
+		}
+
+		private static PuzzleRunResults createForException(String dataSetName, long nanoseconds, long cpuNanoseconds, MemoryUsage memoryUsage, AStarStatistics searchStatistics) {
+			return new PuzzleRunResults(dataSetName, nanoseconds, cpuNanoseconds, null, true, null, null, null, memoryUsage, searchStatistics);
+		}
+
+		private static PuzzleRunResults createForIterations(List<PuzzleRunResults> iterationResults) {
+			int iterationCount = iterationResults.size();
+			PuzzleRunResults lastIterationResults = iterationResults.get(iterationCount - 1);
+			if (iterationCount == 1 || lastIterationResults.isExceptionOccured()) {
+				return lastIterationResults;
+			}
+			long[] nanoseconds = new long[iterationCount];
+			long[] cpuNanoseconds = new long[iterationCount];
+			boolean cpuNanosecondsAvailable = true;
+			for (int iterationIndex = 0; iterationIndex < iterationCount; iterationIndex++) {
+				nanoseconds[iterationIndex] = iterationResults.get(iterationIndex).getNanoseconds();
+				cpuNanoseconds[iterationIndex] = iterationResults.get(iterationIndex).getCpuNanoseconds();
+				cpuNanosecondsAvailable &= iterationResults.get(iterationIndex).hasCpuNanoseconds();
+			}
+			TimingStatistics timingStatistics = TimingStatistics.create(nanoseconds);
+			Arrays.sort(cpuNanoseconds);
+			// The phase timings, memory usage and search statistics are taken from a single run rather than being aggregated, so that they still add up; use the run at the middle of the ranking.
+			PuzzleRunResults medianIterationResults = iterationResults.stream().sorted(Comparator.comparingLong(PuzzleRunResults::getNanoseconds)).skip((iterationCount - 1) / 2).findFirst().get();
+			PuzzleRunResults firstIterationResults = iterationResults.get(0);
+			return new PuzzleRunResults(
+				firstIterationResults.getDataSetName(),
+				timingStatistics.getMedianNanoseconds(),
+				cpuNanosecondsAvailable ? TimingStatistics.median(cpuNanoseconds) : -1L,
+				medianIterationResults.getPhaseNanoseconds(),
+				false,
+				checkConsistentAcrossIterations(iterationResults, PuzzleRunResults::getPartAResults),
+				checkConsistentAcrossIterations(iterationResults, PuzzleRunResults::getPartBResults),
+				timingStatistics,
+				medianIterationResults.getMemoryUsage(),
+				medianIterationResults.getSearchStatistics()
+			);
+		}
+
+		private static PuzzleRunPartResults checkConsistentAcrossIterations(List<PuzzleRunResults> iterationResults, Function<PuzzleRunResults,PuzzleRunPartResults> partResultsGetter) {
+			PuzzleRunPartResults firstPartResults = partResultsGetter.apply(iterationResults.get(0));
+			for (PuzzleRunResults iterationResultsEntry : iterationResults) {
+				if (!Objects.equals(partResultsGetter.apply(iterationResultsEntry).getActualResult(), firstPartResults.getActualResult())) {
+					return firstPartResults.asInconsistent();
+				}
+			}
+			return firstPartResults;
 		}
 	}
 
@@ -129,7 +616,8 @@ public class Main {
 		public enum State {
 			SUCCESS ("\u001B[32m"),
 			UNKNOWN ("\u001B[33m"),
-			FAILURE ("\u001B[31m");
+			FAILURE ("\u001B[31m"),
+			INCONSISTENT ("\u001B[35m");
 
 			private final String ansiString;
 
@@ -162,6 +650,17 @@ public class Main {
 			}
 		}
 
+		private PuzzleRunPartResults(String expectedResult, String actualResult, State state) {
+			this.expectedResult = expectedResult;
+			this.actualResult = actualResult;
+			this.state = state;
+		}
+
+		// Used when repeated runs of the same data set gave differing answers, which would otherwise be hidden by only showing the first answer.
+		public PuzzleRunPartResults asInconsistent() {
+			return new PuzzleRunPartResults(this.expectedResult, this.actualResult, State.INCONSISTENT);
+		}
+
 		public boolean hasExpectedResult() {
 			return this.expectedResult != null;
 		}
@@ -179,29 +678,40 @@ public class Main {
 		}
 	}
 
-	private static class PuzzleConfigProvider implements IPuzzleConfigProvider {
+	static class PuzzleConfigProvider implements IPuzzleConfigProvider {
 		private final Path dataSetPath;
 		private final Path dataPath;
 		private long timeSpentLoadingConfig;
+		private long cpuTimeSpentLoadingConfig;
 
 		public PuzzleConfigProvider(Path dataSetPath, Path dataPath) {
 			this.dataSetPath = dataSetPath;
 			this.dataPath = dataPath;
 			this.timeSpentLoadingConfig = 0L;
+			this.cpuTimeSpentLoadingConfig = 0L;
 		}
 
 		@Override
 		public char[] getPuzzleConfigChars(String configName) {
 			long startTime = System.nanoTime();
+			long startCpuTime = getCurrentThreadCpuTime();
 			String configFileName = "config_" + configName + ".txt";
+			Path filePath = FILE_CONTENT_CACHE.resolveConfigPath(dataSetPath.resolve(configFileName), () -> this.findConfigPath(configFileName));
+			// Shared with the cache rather than copied, so puzzles must treat it as read-only.
+			char[] result = FILE_CONTENT_CACHE.get(filePath, () -> readFile(filePath));
+			long endTime = System.nanoTime();
+			long endCpuTime = getCurrentThreadCpuTime();
+			timeSpentLoadingConfig += (endTime-startTime);
+			cpuTimeSpentLoadingConfig += (endCpuTime-startCpuTime);
+			return result;
+		}
+
+		private Path findConfigPath(String configFileName) {
 			Path directoryPath = dataSetPath;
 			while (true) {
 				Path filePath = directoryPath.resolve(configFileName);
 				if (Files.isRegularFile(filePath)) {
-					char[] result = readFile(filePath);
-					long endTime = System.nanoTime();
-					timeSpentLoadingConfig += (endTime-startTime);
-					return result;
+					return filePath;
 				}
 				if (directoryPath.equals(dataPath)) {
 					throw new IllegalStateException("No such config found.");
@@ -213,9 +723,468 @@ public class Main {
 		public long getTimeSpentLoadingConfig() {
 			return timeSpentLoadingConfig;
 		}
+
+		public long getCpuTimeSpentLoadingConfig() {
+			return cpuTimeSpentLoadingConfig;
+		}
+
+		public PuzzleConfigProvider createSibling() {
+			return new PuzzleConfigProvider(this.dataSetPath, this.dataPath);
+		}
+	}
+
+	private static class FileContentCache {
+		// Marks a file that is allowed to be missing, so that its absence does not need to be checked for again.
+		private static final char[] MISSING_CONTENTS = new char[0];
+
+		private final Map<Path,char[]> contents;
+		private final Map<Path,Path> resolvedConfigPaths;
+		private long maximumCachedCharacters;
+		private long cachedCharacters;
+
+		public FileContentCache(long maximumCachedCharacters) {
+			this.contents = new LinkedHashMap<>(16, 0.75F, true);
+			this.resolvedConfigPaths = new HashMap<>();
+			this.maximumCachedCharacters = maximumCachedCharacters;
+			this.cachedCharacters = 0L;
+		}
+
+		public synchronized void setMaximumCachedCharacters(long maximumCachedCharacters) {
+			this.maximumCachedCharacters = maximumCachedCharacters;
+			this.evict();
+		}
+
+		public char[] get(Path path, Supplier<char[]> loader) {
+			Path normalizedPath = path.toAbsolutePath().normalize();
+			synchronized (this) {
+				char[] cachedContents = this.contents.get(normalizedPath);
+				if (cachedContents != null) {
+					return cachedContents == MISSING_CONTENTS ? null : cachedContents;
+				}
+			}
+			// Load outside of the lock so that other threads can read different files at the same time. Two threads racing to load the same file will both read it, which is harmless.
+			char[] loadedContents = loader.get();
+			synchronized (this) {
+				char[] contentsToCache = loadedContents == null ? MISSING_CONTENTS : loadedContents;
+				char[] previousContents = this.contents.put(normalizedPath, contentsToCache);
+				if (previousContents != null) {
+					this.cachedCharacters -= previousContents.length;
+				}
+				this.cachedCharacters += contentsToCache.length;
+				this.evict();
+			}
+			return loadedContents;
+		}
+
+		public Path resolveConfigPath(Path unresolvedPath, Supplier<Path> resolver) {
+			Path normalizedPath = unresolvedPath.toAbsolutePath().normalize();
+			synchronized (this) {
+				Path resolvedPath = this.resolvedConfigPaths.get(normalizedPath);
+				if (resolvedPath != null) {
+					return resolvedPath;
+				}
+			}
+			Path resolvedPath = resolver.get();
+			synchronized (this) {
+				this.resolvedConfigPaths.put(normalizedPath, resolvedPath);
+			}
+			return resolvedPath;
+		}
+
+		private void evict() {
+			Iterator<char[]> contentsIterator = this.contents.values().iterator();
+			while (this.cachedCharacters > this.maximumCachedCharacters && contentsIterator.hasNext()) {
+				this.cachedCharacters -= contentsIterator.next().length;
+				contentsIterator.remove();
+			}
+		}
+	}
+
+	static class DataSet {
+		private final String name;
+		private final Path dataPath;
+		private final Path dataSetPath;
+
+		public DataSet(String name, Path dataPath, Path dataSetPath) {
+			this.name = name;
+			this.dataPath = dataPath;
+			this.dataSetPath = dataSetPath;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Path getDataPath() {
+			return this.dataPath;
+		}
+
+		public Path getDataSetPath() {
+			return this.dataSetPath;
+		}
+	}
+
+	private static class TimingHistory implements Closeable {
+		private static final String HEADER = "run_timestamp,year,day,data_set,exception_occured,nanoseconds,cpu_nanoseconds,allocated_bytes,gc_count,gc_milliseconds";
+		private static final int FIELD_COUNT = 10;
+
+		private final String runTimestamp;
+		private final Map<String,List<Long>> baselineNanoseconds;
+		private final double regressionThresholdPercentage;
+		private final BufferedWriter historyWriter;
+		private int regressionCount;
+
+		private TimingHistory(String runTimestamp, Map<String,List<Long>> baselineNanoseconds, double regressionThresholdPercentage, BufferedWriter historyWriter) {
+			this.runTimestamp = runTimestamp;
+			this.baselineNanoseconds = baselineNanoseconds;
+			this.regressionThresholdPercentage = regressionThresholdPercentage;
+			this.historyWriter = historyWriter;
+			this.regressionCount = 0;
+		}
+
+		public static TimingHistory open(Path historyPath, boolean record, boolean compareBaseline, int baselineRuns, double regressionThresholdPercentage) {
+			Map<String,List<Long>> baselineNanoseconds = null;
+			boolean historyExists = Files.isRegularFile(historyPath);
+			if (historyExists && (record || compareBaseline)) {
+				checkHistoryFormat(historyPath);
+			}
+			if (compareBaseline) {
+				baselineNanoseconds = new HashMap<>();
+				if (historyExists) {
+					for (String line : PATTERN_NEWLINE.split(new String(readFile(historyPath)))) {
+						if (line.isEmpty() || line.equals(HEADER)) {
+							continue;
+						}
+						String[] fields = line.split(",", -1);
+						if (fields.length != FIELD_COUNT) {
+							throw new IllegalStateException("Unparseable history line " + line);
+						}
+						if (!Boolean.parseBoolean(fields[4])) {
+							List<Long> previousNanoseconds = baselineNanoseconds.computeIfAbsent(createKey(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), fields[3]), __ -> new ArrayList<>());
+							previousNanoseconds.add(Long.parseLong(fields[5]));
+							if (previousNanoseconds.size() > baselineRuns) {
+								previousNanoseconds.remove(0);
+							}
+						}
+					}
+				}
+			}
+			BufferedWriter historyWriter = null;
+			if (record) {
+				try {
+					Path historyParentPath = historyPath.toAbsolutePath().getParent();
+					Files.createDirectories(historyParentPath);
+					historyWriter = Files.newBufferedWriter(historyPath, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+					if (!historyExists || Files.size(historyPath) == 0) {
+						historyWriter.write(HEADER);
+						historyWriter.newLine();
+					}
+				} catch (IOException ex) {
+					throw new IllegalStateException("Unable to open history file " + historyPath, ex);
+				}
+			}
+			return new TimingHistory(Instant.now().toString(), baselineNanoseconds, regressionThresholdPercentage, historyWriter);
+		}
+
+		// History files written before the memory usage columns were added are not upgraded, so rather than being misread or appended to with rows of a different width, they are rejected.
+		private static void checkHistoryFormat(Path historyPath) {
+			String firstLine;
+			try (BufferedReader historyReader = Files.newBufferedReader(historyPath, StandardCharsets.UTF_8)) {
+				firstLine = historyReader.readLine();
+			} catch (IOException ex) {
+				throw new IllegalStateException("Unable to read history file " + historyPath, ex);
+			}
+			if (firstLine != null && !firstLine.equals(HEADER)) {
+				throw new IllegalStateException("Unsupported history format in " + historyPath + "; expected the header " + HEADER + " but found " + firstLine + ". Move the file aside or choose another with --history-file.");
+			}
+		}
+
+		private static String createKey(int year, int day, String dataSetName) {
+			return year + "," + day + "," + dataSetName;
+		}
+
+		public void process(PrintWriter consoleWriter, PuzzleRunner puzzleRunner, List<PuzzleRunResults> puzzleRunResults) {
+			NumberFormat numberFormat = NumberFormat.getNumberInstance();
+			for (PuzzleRunResults puzzleRunResultsEntry : puzzleRunResults) {
+				String key = createKey(puzzleRunner.getYear(), puzzleRunner.getDay(), puzzleRunResultsEntry.getDataSetName());
+				if (this.historyWriter != null) {
+					try {
+						MemoryUsage memoryUsage = puzzleRunResultsEntry.getMemoryUsage();
+						this.historyWriter.write(String.format("%s,%s,%b,%d,%s,%s,%s,%s", this.runTimestamp, key, puzzleRunResultsEntry.isExceptionOccured(), puzzleRunResultsEntry.getNanoseconds(), puzzleRunResultsEntry.hasCpuNanoseconds() ? Long.toString(puzzleRunResultsEntry.getCpuNanoseconds()) : "", memoryUsage.hasAllocatedBytes() ? Long.toString(memoryUsage.getAllocatedBytes()) : "", memoryUsage.hasGarbageCollections() ? Long.toString(memoryUsage.getGarbageCollectionCount()) : "", memoryUsage.hasGarbageCollections() ? Long.toString(memoryUsage.getGarbageCollectionMilliseconds()) : ""));
+						this.historyWriter.newLine();
+					} catch (IOException ex) {
+						throw new IllegalStateException("Unable to write to history file", ex);
+					}
+				}
+				if (this.baselineNanoseconds != null && !puzzleRunResultsEntry.isExceptionOccured()) {
+					List<Long> previousNanoseconds = this.baselineNanoseconds.get(key);
+					if (previousNanoseconds != null) {
+						long baselineMedianNanoseconds = median(previousNanoseconds);
+						if (baselineMedianNanoseconds == 0) {
+							// Timings below the timer's resolution can give a baseline of zero, which no percentage change can be worked out against.
+							consoleWriter.format("\tNot compared: %s took %sns against a baseline median of 0ns (n/a)%n", puzzleRunResultsEntry.getDataSetName(), numberFormat.format(puzzleRunResultsEntry.getNanoseconds()));
+							continue;
+						}
+						double changePercentage = ((puzzleRunResultsEntry.getNanoseconds() - baselineMedianNanoseconds) * 100.0D) / baselineMedianNanoseconds;
+						if (changePercentage > this.regressionThresholdPercentage) {
+							consoleWriter.format("\tRegression: %s took %sns against a baseline median of %sns (+%.1f%%)%n", puzzleRunResultsEntry.getDataSetName(), numberFormat.format(puzzleRunResultsEntry.getNanoseconds()), numberFormat.format(baselineMedianNanoseconds), changePercentage);
+							this.regressionCount++;
+						}
+					}
+				}
+			}
+			if (this.historyWriter != null) {
+				try {
+					this.historyWriter.flush();
+				} catch (IOException ex) {
+					throw new IllegalStateException("Unable to write to history file", ex);
+				}
+			}
+			consoleWriter.flush();
+		}
+
+		private static long median(List<Long> values) {
+			return TimingStatistics.median(values.stream().mapToLong(Long::longValue).sorted().toArray());
+		}
+
+		public int getRegressionCount() {
+			return this.regressionCount;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.historyWriter != null) {
+				this.historyWriter.close();
+			}
+		}
+	}
+
+	static class ResultsOutput implements Closeable {
+		enum Format {
+			JSON,
+			CSV
+		}
+
+		private static final String[] FIELD_NAMES = {
+			"year",
+			"day",
+			"data_set",
+			"state",
+			"nanoseconds",
+			"cpu_nanoseconds",
+			"min_nanoseconds",
+			"p90_nanoseconds",
+			"max_nanoseconds",
+			"stddev_nanoseconds",
+			"parse_nanoseconds",
+			"part_a_nanoseconds",
+			"part_b_nanoseconds",
+			"allocated_bytes",
+			"gc_count",
+			"gc_milliseconds",
+			"part_a_state",
+			"part_a_expected_answer",
+			"part_a_actual_answer",
+			"part_b_state",
+			"part_b_expected_answer",
+			"part_b_actual_answer"
+		};
+
+		private final Format format;
+		private final BufferedWriter outputWriter;
+		private boolean firstRecord;
+
+		private ResultsOutput(Format format, BufferedWriter outputWriter) {
+			this.format = format;
+			this.outputWriter = outputWriter;
+			this.firstRecord = true;
+		}
+
+		public static ResultsOutput open(Path outputPath, Format format) {
+			try {
+				Path outputParentPath = outputPath.toAbsolutePath().getParent();
+				Files.createDirectories(outputParentPath);
+				BufferedWriter outputWriter = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8);
+				switch (format) {
+					case JSON:
+						outputWriter.write('[');
+						break;
+					case CSV:
+						outputWriter.write(String.join(",", FIELD_NAMES));
+						outputWriter.newLine();
+						break;
+					default:
+						throw new IllegalStateException("Unexpected format " + format);
+				}
+				return new ResultsOutput(format, outputWriter);
+			} catch (IOException ex) {
+				throw new IllegalStateException("Unable to open output file " + outputPath, ex);
+			}
+		}
+
+		// Called as each puzzle completes, and flushed straight away, so that the results of a whole run never need to be held in memory.
+		public void write(PuzzleRunner puzzleRunner, List<PuzzleRunResults> puzzleRunResults) {
+			try {
+				for (PuzzleRunResults puzzleRunResultsEntry : puzzleRunResults) {
+					Object[] fieldValues = createFieldValues(puzzleRunner, puzzleRunResultsEntry);
+					switch (this.format) {
+						case JSON:
+							this.writeJsonRecord(fieldValues);
+							break;
+						case CSV:
+							this.writeCsvRecord(fieldValues);
+							break;
+						default:
+							throw new IllegalStateException("Unexpected format " + this.format);
+					}
+					this.firstRecord = false;
+				}
+				this.outputWriter.flush();
+			} catch (IOException ex) {
+				throw new IllegalStateException("Unable to write to output file", ex);
+			}
+		}
+
+		private static Object[] createFieldValues(PuzzleRunner puzzleRunner, PuzzleRunResults puzzleRunResults) {
+			TimingStatistics timingStatistics = puzzleRunResults.getTimingStatistics();
+			PhaseNanoseconds phaseNanoseconds = puzzleRunResults.getPhaseNanoseconds();
+			MemoryUsage memoryUsage = puzzleRunResults.getMemoryUsage();
+			PuzzleRunPartResults partAResults = puzzleRunResults.getPartAResults();
+			PuzzleRunPartResults partBResults = puzzleRunResults.getPartBResults();
+			return new Object[] {
+				puzzleRunner.getYear(),
+				puzzleRunner.getDay(),
+				puzzleRunResults.getDataSetName(),
+				puzzleRunResults.isExceptionOccured() ? "EXCEPTION" : "OK",
+				puzzleRunResults.getNanoseconds(),
+				THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && puzzleRunResults.hasCpuNanoseconds() ? puzzleRunResults.getCpuNanoseconds() : null,
+				timingStatistics == null ? null : timingStatistics.getMinimumNanoseconds(),
+				timingStatistics == null ? null : timingStatistics.getPercentile90Nanoseconds(),
+				timingStatistics == null ? null : timingStatistics.getMaximumNanoseconds(),
+				timingStatistics == null ? null : Math.round(timingStatistics.getStandardDeviationNanoseconds()),
+				phaseNanoseconds == null ? null : phaseNanoseconds.getParseNanoseconds(),
+				phaseNanoseconds == null ? null : phaseNanoseconds.getPartANanoseconds(),
+				phaseNanoseconds == null ? null : phaseNanoseconds.getPartBNanoseconds(),
+				memoryUsage.hasAllocatedBytes() ? memoryUsage.getAllocatedBytes() : null,
+				memoryUsage.hasGarbageCollections() ? memoryUsage.getGarbageCollectionCount() : null,
+				memoryUsage.hasGarbageCollections() ? memoryUsage.getGarbageCollectionMilliseconds() : null,
+				partAResults == null ? null : partAResults.getState().name(),
+				partAResults == null ? null : partAResults.getExpectedResult(),
+				partAResults == null ? null : partAResults.getActualResult(),
+				partBResults == null ? null : partBResults.getState().name(),
+				partBResults == null ? null : partBResults.getExpectedResult(),
+				partBResults == null ? null : partBResults.getActualResult()
+			};
+		}
+
+		private void writeJsonRecord(Object[] fieldValues) throws IOException {
+			if (!this.firstRecord) {
+				this.outputWriter.write(',');
+			}
+			this.outputWriter.newLine();
+			this.outputWriter.write("\t{");
+			for (int fieldIndex = 0; fieldIndex < FIELD_NAMES.length; fieldIndex++) {
+				if (fieldIndex > 0) {
+					this.outputWriter.write(',');
+				}
+				this.writeJsonString(FIELD_NAMES[fieldIndex]);
+				this.outputWriter.write(':');
+				Object fieldValue = fieldValues[fieldIndex];
+				if (fieldValue instanceof String) {
+					this.writeJsonString((String) fieldValue);
+				}
+				else {
+					this.outputWriter.write(String.valueOf(fieldValue));
+				}
+			}
+			this.outputWriter.write('}');
+		}
+
+		private void writeJsonString(String value) throws IOException {
+			this.outputWriter.write('"');
+			for (int index = 0; index < value.length(); index++) {
+				char character = value.charAt(index);
+				switch (character) {
+					case '"':
+						this.outputWriter.write("\\\"");
+						break;
+					case '\\':
+						this.outputWriter.write("\\\\");
+						break;
+					case '\n':
+						this.outputWriter.write("\\n");
+						break;
+					case '\r':
+						this.outputWriter.write("\\r");
+						break;
+					case '\t':
+						this.outputWriter.write("\\t");
+						break;
+					default:
+						if (character < 0x20) {
+							this.outputWriter.write(String.format("\\u%04x", (int) character));
+						}
+						else {
+							this.outputWriter.write(character);
+						}
+				}
+			}
+			this.outputWriter.write('"');
+		}
+
+		private void writeCsvRecord(Object[] fieldValues) throws IOException {
+			for (int fieldIndex = 0; fieldIndex < fieldValues.length; fieldIndex++) {
+				if (fieldIndex > 0) {
+					this.outputWriter.write(',');
+				}
+				Object fieldValue = fieldValues[fieldIndex];
+				if (fieldValue != null) {
+					String fieldString = fieldValue.toString();
+					if (fieldString.indexOf(',') >= 0 || fieldString.indexOf('"') >= 0 || fieldString.indexOf('\n') >= 0 || fieldString.indexOf('\r') >= 0) {
+						this.outputWriter.write('"');
+						this.outputWriter.write(fieldString.replace("\"", "\"\""));
+						this.outputWriter.write('"');
+					}
+					else {
+						this.outputWriter.write(fieldString);
+					}
+				}
+			}
+			this.outputWriter.newLine();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (this.format == Format.JSON) {
+				if (!this.firstRecord) {
+					this.outputWriter.newLine();
+				}
+				this.outputWriter.write(']');
+				this.outputWriter.newLine();
+			}
+			this.outputWriter.close();
+		}
+	}
+
+	private static class BufferedPuzzleRunResults {
+		private final String output;
+		private final PuzzleRunResults puzzleRunResults;
+
+		public BufferedPuzzleRunResults(String output, PuzzleRunResults puzzleRunResults) {
+			this.output = output;
+			this.puzzleRunResults = puzzleRunResults;
+		}
+
+		public String getOutput() {
+			return this.output;
+		}
+
+		public PuzzleRunResults getPuzzleRunResults() {
+			return this.puzzleRunResults;
+		}
 	}
 
-	private static class PuzzleRunner {
+	static class PuzzleRunner {
 		private final int year;
 		private final int day;
 		private final Class<? extends IPuzzle> puzzleClazz;
@@ -228,29 +1197,105 @@ public class Main {
 			this.createPuzzleInstance();
 		}
 
-		public void run(PrintWriter consoleWriter, boolean restrictedCharacterSet, Set<Integer> userFilter, boolean preRunForJIT) {
-			Path dataPath = Paths.get(String.format("data/year%04d/day%02d/io", this.year, this.day));
-			consoleWriter.format("Running year %d day %d%n", this.year, this.day);
+		public int getYear() {
+			return this.year;
+		}
+
+		public int getDay() {
+			return this.day;
+		}
+
+		public List<PuzzleRunResults> run(PrintWriter consoleWriter, boolean restrictedCharacterSet, boolean showMemoryUsage, Set<Integer> userFilter, RunSettings runSettings) {
+			Path dataPath = this.getDataPath();
+			this.printHeader(consoleWriter);
 			List<PuzzleRunResults> puzzleRunResults = new ArrayList<>();
 			if (userFilter.isEmpty()) {
-				puzzleRunResults.addAll(runWithDataSets(consoleWriter, dataPath, "Example", "Examples", "examples", preRunForJIT, null));
+				puzzleRunResults.addAll(runWithDataSets(consoleWriter, findDataSets(dataPath, "Example", "examples", null), "Examples", runSettings));
+			}
+			puzzleRunResults.addAll(runWithDataSets(consoleWriter, findDataSets(dataPath, "User", "users", userFilter.stream().map(x -> x.toString()).collect(Collectors.toSet())), "Users", runSettings));
+			this.printResults(consoleWriter, restrictedCharacterSet, showMemoryUsage, puzzleRunResults);
+			return puzzleRunResults;
+		}
+
+		public List<DataSet> findDataSets(Set<Integer> userFilter) {
+			Path dataPath = this.getDataPath();
+			List<DataSet> dataSets = new ArrayList<>();
+			if (userFilter.isEmpty()) {
+				dataSets.addAll(findDataSets(dataPath, "Example", "examples", null));
 			}
-			puzzleRunResults.addAll(runWithDataSets(consoleWriter, dataPath, "User", "Users", "users", preRunForJIT, userFilter.stream().map(x -> x.toString()).collect(Collectors.toSet())));
+			dataSets.addAll(findDataSets(dataPath, "User", "users", userFilter.stream().map(x -> x.toString()).collect(Collectors.toSet())));
+			return dataSets;
+		}
+
+		public void printHeader(PrintWriter consoleWriter) {
+			consoleWriter.format("Running year %d day %d%n", this.year, this.day);
+		}
+
+		public void printResults(PrintWriter consoleWriter, boolean restrictedCharacterSet, boolean showMemoryUsage, List<PuzzleRunResults> puzzleRunResults) {
 			DisplayTextualTableBuilder displayTextualTableBuilder = new DisplayTextualTableBuilder();
 			displayTextualTableBuilder.setDefaultHorizontalAlignment(DisplayTextualTableBuilder.HorizontalAlignment.CENTER_BLOCK);
 			displayTextualTableBuilder.setDefaultVerticalAlignment(DisplayTextualTableBuilder.VerticalAlignment.MIDDLE);
 			NumberFormat numberFormat = NumberFormat.getNumberInstance();
 			Map<PuzzleRunPartResults.State,Integer> stateCounts = new EnumMap<>(PuzzleRunPartResults.State.class);
 			boolean exceptionOccuredAtLeastOnce = false;
+			boolean phaseNanosecondsAvailableAtLeastOnce = false;
+			boolean timingStatisticsAvailableAtLeastOnce = false;
+			boolean searchStatisticsAvailableAtLeastOnce = false;
 			for (PuzzleRunResults puzzleRunResultsEntry : puzzleRunResults) {
 				if (puzzleRunResultsEntry.isExceptionOccured()) {
 					exceptionOccuredAtLeastOnce = true;
 				}
+				if (puzzleRunResultsEntry.hasTimingStatistics()) {
+					timingStatisticsAvailableAtLeastOnce = true;
+				}
+				if (puzzleRunResultsEntry.hasPhaseNanoseconds()) {
+					phaseNanosecondsAvailableAtLeastOnce = true;
+				}
+				if (puzzleRunResultsEntry.hasSearchStatistics()) {
+					searchStatisticsAvailableAtLeastOnce = true;
+				}
 			}
 			for (PuzzleRunResults puzzleRunResultsEntry : puzzleRunResults) {
 				displayTextualTableBuilder.addRow(true);
 				displayTextualTableBuilder.addEntry("Data Set", puzzleRunResultsEntry.getDataSetName(), DisplayTextualTableBuilder.HorizontalAlignment.LEFT);
-				displayTextualTableBuilder.addEntry("Time taken (ns)", numberFormat.format(puzzleRunResultsEntry.getNanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+				if (timingStatisticsAvailableAtLeastOnce) {
+					// A data set that threw an exception stops being measured, so only has the time of its failing run.
+					TimingStatistics timingStatistics = puzzleRunResultsEntry.getTimingStatistics();
+					displayTextualTableBuilder.addEntry("Min time (ns)", timingStatistics == null ? "" : numberFormat.format(timingStatistics.getMinimumNanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Median time (ns)", numberFormat.format(puzzleRunResultsEntry.getNanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("P90 time (ns)", timingStatistics == null ? "" : numberFormat.format(timingStatistics.getPercentile90Nanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Max time (ns)", timingStatistics == null ? "" : numberFormat.format(timingStatistics.getMaximumNanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Std dev (ns)", timingStatistics == null ? "" : numberFormat.format(Math.round(timingStatistics.getStandardDeviationNanoseconds())), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+				}
+				else {
+					displayTextualTableBuilder.addEntry("Time taken (ns)", numberFormat.format(puzzleRunResultsEntry.getNanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+				}
+				if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+					displayTextualTableBuilder.addEntry(timingStatisticsAvailableAtLeastOnce ? "Median CPU time (ns)" : "CPU time (ns)", puzzleRunResultsEntry.hasCpuNanoseconds() ? numberFormat.format(puzzleRunResultsEntry.getCpuNanoseconds()) : "", DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+				}
+				if (phaseNanosecondsAvailableAtLeastOnce) {
+					// Puzzles that do not implement ITwoPhasePuzzle can only be timed as a whole, so their phase columns are left blank.
+					PhaseNanoseconds phaseNanoseconds = puzzleRunResultsEntry.getPhaseNanoseconds();
+					displayTextualTableBuilder.addEntry("Parse time (ns)", phaseNanoseconds == null ? "" : numberFormat.format(phaseNanoseconds.getParseNanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Part A time (ns)", phaseNanoseconds == null ? "" : numberFormat.format(phaseNanoseconds.getPartANanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Part B time (ns)", phaseNanoseconds == null ? "" : numberFormat.format(phaseNanoseconds.getPartBNanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+				}
+				if (showMemoryUsage) {
+					MemoryUsage memoryUsage = puzzleRunResultsEntry.getMemoryUsage();
+					displayTextualTableBuilder.addEntry("Allocated (bytes)", memoryUsage.hasAllocatedBytes() ? numberFormat.format(memoryUsage.getAllocatedBytes()) : "", DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("GC count", memoryUsage.hasGarbageCollections() ? numberFormat.format(memoryUsage.getGarbageCollectionCount()) : "", DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("GC pause (ms)", memoryUsage.hasGarbageCollections() ? numberFormat.format(memoryUsage.getGarbageCollectionMilliseconds()) : "", DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+				}
+				if (searchStatisticsAvailableAtLeastOnce) {
+					AStarStatistics searchStatistics = puzzleRunResultsEntry.getSearchStatistics();
+					displayTextualTableBuilder.addEntry("Searches", searchStatistics == null ? "" : numberFormat.format(searchStatistics.getSearchCount()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Expanded", searchStatistics == null ? "" : numberFormat.format(searchStatistics.getExpandedNodeCount()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Generated", searchStatistics == null ? "" : numberFormat.format(searchStatistics.getGeneratedNodeCount()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Improved", searchStatistics == null ? "" : numberFormat.format(searchStatistics.getImprovedNodeCount()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Peak open set", searchStatistics == null ? "" : numberFormat.format(searchStatistics.getPeakOpenSetSize()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Peak known", searchStatistics == null ? "" : numberFormat.format(searchStatistics.getPeakKnownNodeCount()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+					displayTextualTableBuilder.addEntry("Node adapter time (ns)", searchStatistics == null ? "" : numberFormat.format(searchStatistics.getNodeAdapterNanoseconds()), DisplayTextualTableBuilder.HorizontalAlignment.RIGHT);
+				}
 				if (puzzleRunResultsEntry.isExceptionOccured()) {
 					displayTextualTableBuilder.addEntry("State","EXCEPTION");
 				}
@@ -292,9 +1337,13 @@ public class Main {
 			stateCounts.put(state, stateCounts.getOrDefault(state,0) + 1);
 		}
 
-		private List<PuzzleRunResults> runWithDataSets(PrintWriter consoleWriter, Path dataPath, String dataSetsNameSingular, String dataSetsNamePlural, String dataSetsFolderName, boolean preRunForJIT, Set<String> filters) {
+		private Path getDataPath() {
+			return Paths.get(String.format("data/year%04d/day%02d/io", this.year, this.day));
+		}
+
+		private static List<DataSet> findDataSets(Path dataPath, String dataSetsNameSingular, String dataSetsFolderName, Set<String> filters) {
 			Path dataSetsPath = dataPath.resolve(dataSetsFolderName);
-			List<Path> dataSetPaths = new ArrayList<>();
+			List<DataSet> dataSets = new ArrayList<>();
 			Set<String> caseInsensitiveFilters;
 			boolean noFilter = filters == null || filters.isEmpty();
 			if (noFilter) {
@@ -306,33 +1355,83 @@ public class Main {
 			}
 			try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(dataSetsPath, Files::isDirectory)) {
 				for (Path path : directoryStream) {
-					if (noFilter || caseInsensitiveFilters.contains(path.getFileName().toString())) {
-						dataSetPaths.add(path);
+					String dataSetFolderName = path.getFileName().toString();
+					if (noFilter || caseInsensitiveFilters.contains(dataSetFolderName)) {
+						dataSets.add(new DataSet(dataSetsNameSingular + " " + dataSetFolderName, dataPath, path));
 					}
 				}
 			} catch (IOException ex) {
 				throw new IllegalStateException("Unable to iterate directory " + dataSetsPath, ex);
 			}
-			if (preRunForJIT) {
-				consoleWriter.format("\tPre-running " + dataSetsNamePlural + " data sets for JIT to make any optimizations, discarding results%n");
+			return dataSets;
+		}
+
+		private List<PuzzleRunResults> runWithDataSets(PrintWriter consoleWriter, List<DataSet> dataSets, String dataSetsNamePlural, RunSettings runSettings) {
+			int warmupIterations = runSettings.getWarmupIterations();
+			if (warmupIterations > 0) {
+				consoleWriter.format("\tWarming up " + dataSetsNamePlural + " data sets %d time(s) for JIT to make any optimizations, discarding results%n", warmupIterations);
 				consoleWriter.flush();
-				for (Path dataSetPath : dataSetPaths) {
-					runWithDataSet(consoleWriter, dataPath, dataSetPath, dataSetsNameSingular + " " + dataSetPath.getFileName().toString());
+				for (int warmupIteration = 0; warmupIteration < warmupIterations; warmupIteration++) {
+					for (DataSet dataSet : dataSets) {
+						runWithDataSet(createDiscardingWriter(), dataSet, runSettings, false);
+					}
 				}
 			}
-			consoleWriter.format("\tRunning " + dataSetsNamePlural + " data sets to gather results%n");
+			consoleWriter.format("\tRunning " + dataSetsNamePlural + " data sets %d time(s) to gather results%n", runSettings.getMeasuredIterations());
 			consoleWriter.flush();
 			List<PuzzleRunResults> puzzleRunResults = new ArrayList<>();
-			for (Path dataSetPath : dataSetPaths) {
-				puzzleRunResults.add(runWithDataSet(consoleWriter, dataPath, dataSetPath, dataSetsNameSingular + " " + dataSetPath.getFileName().toString()));
+			for (DataSet dataSet : dataSets) {
+				puzzleRunResults.add(runWithDataSetIterations(consoleWriter, dataSet, runSettings, true));
 			}
 			return puzzleRunResults;
 		}
 
-		private PuzzleRunResults runWithDataSet(PrintWriter consoleWriter, Path dataPath, Path dataSetPath, String dataSetName) {
+		public BufferedPuzzleRunResults runWithDataSetBuffered(DataSet dataSet, RunSettings runSettings) {
+			StringWriter bufferWriter = new StringWriter();
+			PrintWriter bufferPrintWriter = new PrintWriter(bufferWriter);
+			int warmupIterations = runSettings.getWarmupIterations();
+			if (warmupIterations > 0) {
+				bufferPrintWriter.format("\t\tWarming up with data set %s %d time(s) for JIT to make any optimizations, discarding results%n", dataSet.getName(), warmupIterations);
+				for (int warmupIteration = 0; warmupIteration < warmupIterations; warmupIteration++) {
+					runWithDataSet(createDiscardingWriter(), dataSet, runSettings, false);
+				}
+			}
+			// Other jobs are running concurrently, so a System.gc() here would pause them mid-measurement.
+			PuzzleRunResults puzzleRunResults = runWithDataSetIterations(bufferPrintWriter, dataSet, runSettings, false);
+			bufferPrintWriter.flush();
+			return new BufferedPuzzleRunResults(bufferWriter.toString(), puzzleRunResults);
+		}
+
+		private PuzzleRunResults runWithDataSetIterations(PrintWriter consoleWriter, DataSet dataSet, RunSettings runSettings, boolean hintGarbageCollection) {
+			int measuredIterations = runSettings.getMeasuredIterations();
+			List<PuzzleRunResults> iterationResults = new ArrayList<>(measuredIterations);
+			for (int measuredIteration = 0; measuredIteration < measuredIterations; measuredIteration++) {
+				// Only the output of the first run is shown, as the output of every run should be the same. Any garbage left by one run is collected during later runs, and shows up in the spread of their timings.
+				PuzzleRunResults puzzleRunResults = runWithDataSet(measuredIteration == 0 ? consoleWriter : createDiscardingWriter(), dataSet, runSettings, hintGarbageCollection && measuredIteration == 0);
+				iterationResults.add(puzzleRunResults);
+				if (puzzleRunResults.isExceptionOccured()) {
+					break;
+				}
+			}
+			return PuzzleRunResults.createForIterations(iterationResults);
+		}
+
+		private static PrintWriter createDiscardingWriter() {
+			return new PrintWriter(Writer.nullWriter());
+		}
+
+		private PuzzleRunResults runWithDataSet(PrintWriter consoleWriter, DataSet dataSet, RunSettings runSettings, boolean hintGarbageCollection) {
+			Path dataPath = dataSet.getDataPath();
+			Path dataSetPath = dataSet.getDataSetPath();
+			String dataSetName = dataSet.getName();
 			consoleWriter.format("\t\tRunning with data set %s%n", dataSetName);
 			consoleWriter.flush();
-			char[] inputCharacters = readDataSetFile(dataSetPath, "input.txt", false);
+			IPuzzle puzzle = this.createPuzzleInstance();
+			// Two-phase puzzles always parse from a char array, so only a plain ICharSequencePuzzle can be handed a view over the input file.
+			boolean useInputView = puzzle instanceof ICharSequencePuzzle && !(puzzle instanceof ITwoPhasePuzzle);
+			// Shared with the cache rather than copied, so that a large input is only held once, and puzzles must treat it as read-only.
+			char[] inputCharacters = useInputView ? null : readDataSetFile(dataSetPath, "input.txt", false);
+			CharSequence inputCharSequence = useInputView ? readDataSetFileCharSequence(dataSetPath, "input.txt") : null;
 			char[] outputACharacters = readDataSetFile(dataSetPath, "output_a.txt", true);
 			char[] outputBCharacters = readDataSetFile(dataSetPath, "output_b.txt", true);
 			PrintWriter displayPrinterWriter = new PrintWriter(new DisplayWriter(consoleWriter, "----------------------------------------", "\t\t", false));
@@ -340,33 +1439,171 @@ public class Main {
 			PuzzleConfigProvider puzzleConfigProvider = new PuzzleConfigProvider(dataSetPath,dataPath);
 			long startTime = -1;
 			long finishTime = -1;
+			long startCpuTime = -1;
+			long finishCpuTime = -1;
+			long startAllocatedBytes = -1;
+			long startGarbageCollectionCount = -1;
+			long startGarbageCollectionMilliseconds = -1;
+			long finishAllocatedBytes = -1;
 			boolean exceptionOccured = false;
+			PhaseNanoseconds phaseNanoseconds = puzzle instanceof ITwoPhasePuzzle ? new PhaseNanoseconds() : null;
+			AStarStatistics searchStatistics = runSettings.isSearchStatistics() ? new AStarStatistics() : null;
 			IPuzzleResults puzzleResults;
-			// Try and hint to the JVM to clean up any garbage from any previous puzzle runs.
-			System.gc();
+			if (hintGarbageCollection) {
+				// Try and hint to the JVM to clean up any garbage from any previous puzzle runs.
+				System.gc();
+			}
+			CommonPoolUsage commonPoolUsage = CommonPoolUsage.start(runSettings.isConcurrentDataSets());
+			if (searchStatistics != null) {
+				AStarStatistics.setCurrent(searchStatistics);
+			}
 			try {
+				startGarbageCollectionCount = getGarbageCollectionCount();
+				startGarbageCollectionMilliseconds = getGarbageCollectionMilliseconds();
+				startAllocatedBytes = getCurrentThreadAllocatedBytes();
 				startTime = System.nanoTime();
-				puzzleResults = this.createPuzzleInstance().runPuzzle(inputCharacters, puzzleConfigProvider, partBPotentiallyUnsolvable, displayPrinterWriter);
+				startCpuTime = getCurrentThreadCpuTime();
+				if (useInputView) {
+					puzzleResults = ((ICharSequencePuzzle) puzzle).runPuzzle(inputCharSequence, puzzleConfigProvider, partBPotentiallyUnsolvable, displayPrinterWriter);
+				}
+				else if (phaseNanoseconds == null) {
+					puzzleResults = puzzle.runPuzzle(inputCharacters, puzzleConfigProvider, partBPotentiallyUnsolvable, displayPrinterWriter);
+				}
+				else if (runSettings.isConcurrentParts()) {
+					puzzleResults = runTwoPhasePuzzleWithConcurrentParts((ITwoPhasePuzzle<?>) puzzle, inputCharacters, puzzleConfigProvider, partBPotentiallyUnsolvable, displayPrinterWriter, phaseNanoseconds);
+				}
+				else {
+					puzzleResults = runTwoPhasePuzzle((ITwoPhasePuzzle<?>) puzzle, inputCharacters, puzzleConfigProvider, partBPotentiallyUnsolvable, displayPrinterWriter, phaseNanoseconds);
+				}
+				finishCpuTime = getCurrentThreadCpuTime();
 				finishTime = System.nanoTime();
+				finishAllocatedBytes = getCurrentThreadAllocatedBytes();
+				commonPoolUsage.finish();
 				return PuzzleRunResults.createForResults(
 					dataSetName,
 					finishTime - startTime - puzzleConfigProvider.getTimeSpentLoadingConfig(),
+					measureCpuNanoseconds(startCpuTime, finishCpuTime, puzzleConfigProvider, commonPoolUsage, phaseNanoseconds == null ? 0L : phaseNanoseconds.getHelperThreadCpuNanoseconds()),
+					phaseNanoseconds,
+					measureMemoryUsage(startAllocatedBytes, finishAllocatedBytes, startGarbageCollectionCount, startGarbageCollectionMilliseconds, runSettings.isConcurrentDataSets(), commonPoolUsage, phaseNanoseconds == null ? 0L : phaseNanoseconds.getHelperThreadAllocatedBytes()),
+					searchStatistics,
 					createPartResults(outputACharacters, puzzleResults == null ? null : puzzleResults.getPartAAnswerString()),
 					createPartResults(outputBCharacters, puzzleResults == null ? null : puzzleResults.getPartBAnswerString())
 				);
 			} catch (Exception ex) {
+				finishCpuTime = getCurrentThreadCpuTime();
 				finishTime = System.nanoTime();
+				finishAllocatedBytes = getCurrentThreadAllocatedBytes();
+				commonPoolUsage.finish();
 				displayPrinterWriter.println();
 				ex.printStackTrace(displayPrinterWriter);
 				return PuzzleRunResults.createForException(
 					dataSetName,
-					finishTime - startTime - puzzleConfigProvider.getTimeSpentLoadingConfig()
+					finishTime - startTime - puzzleConfigProvider.getTimeSpentLoadingConfig(),
+					measureCpuNanoseconds(startCpuTime, finishCpuTime, puzzleConfigProvider, commonPoolUsage, 0L),
+					measureMemoryUsage(startAllocatedBytes, finishAllocatedBytes, startGarbageCollectionCount, startGarbageCollectionMilliseconds, runSettings.isConcurrentDataSets(), commonPoolUsage, 0L),
+					searchStatistics
 				);
 			} finally {
+				if (searchStatistics != null) {
+					AStarStatistics.setCurrent(null);
+				}
 				displayPrinterWriter.close();
 			}
 		}
 
+		// Returns -1 if work done on the common pool during the run could not be attributed to it.
+		private static long measureCpuNanoseconds(long startCpuTime, long finishCpuTime, PuzzleConfigProvider puzzleConfigProvider, CommonPoolUsage commonPoolUsage, long helperThreadCpuNanoseconds) {
+			if (!commonPoolUsage.isAttributable()) {
+				return -1L;
+			}
+			return finishCpuTime - startCpuTime - puzzleConfigProvider.getCpuTimeSpentLoadingConfig() + helperThreadCpuNanoseconds + commonPoolUsage.getCpuNanoseconds();
+		}
+
+		// Garbage collections are counted across the whole JVM, so cannot be attributed to any one run while other data sets are being run at the same time.
+		private static MemoryUsage measureMemoryUsage(long startAllocatedBytes, long finishAllocatedBytes, long startGarbageCollectionCount, long startGarbageCollectionMilliseconds, boolean concurrentDataSets, CommonPoolUsage commonPoolUsage, long helperThreadAllocatedBytes) {
+			return new MemoryUsage(
+				startAllocatedBytes < 0 || finishAllocatedBytes < 0 || !commonPoolUsage.isAttributable() ? -1L : finishAllocatedBytes - startAllocatedBytes + helperThreadAllocatedBytes + commonPoolUsage.getAllocatedBytes(),
+				concurrentDataSets ? -1L : getGarbageCollectionCount() - startGarbageCollectionCount,
+				concurrentDataSets ? -1L : getGarbageCollectionMilliseconds() - startGarbageCollectionMilliseconds
+			);
+		}
+
+		private static <ParsedInputType> IPuzzleResults runTwoPhasePuzzle(ITwoPhasePuzzle<ParsedInputType> puzzle, char[] inputCharacters, PuzzleConfigProvider puzzleConfigProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter, PhaseNanoseconds phaseNanoseconds) {
+			long parseStartTime = System.nanoTime();
+			long parseStartConfigTime = puzzleConfigProvider.getTimeSpentLoadingConfig();
+			ParsedInputType parsedInput = puzzle.parseInput(inputCharacters, puzzleConfigProvider, printWriter);
+			long partAStartTime = System.nanoTime();
+			long partAStartConfigTime = puzzleConfigProvider.getTimeSpentLoadingConfig();
+			IPuzzlePartResults partAResults = puzzle.solvePartA(parsedInput, puzzleConfigProvider, printWriter);
+			long partBStartTime = System.nanoTime();
+			long partBStartConfigTime = puzzleConfigProvider.getTimeSpentLoadingConfig();
+			IPuzzlePartResults partBResults = puzzle.solvePartB(parsedInput, puzzleConfigProvider, partBPotentiallyUnsolvable, printWriter);
+			long finishTime = System.nanoTime();
+			long finishConfigTime = puzzleConfigProvider.getTimeSpentLoadingConfig();
+			phaseNanoseconds.parseNanoseconds = partAStartTime - parseStartTime - (partAStartConfigTime - parseStartConfigTime);
+			phaseNanoseconds.partANanoseconds = partBStartTime - partAStartTime - (partBStartConfigTime - partAStartConfigTime);
+			phaseNanoseconds.partBNanoseconds = finishTime - partBStartTime - (finishConfigTime - partBStartConfigTime);
+			return new MultiPartPuzzleResults<>(partAResults, partBResults);
+		}
+
+		private static <ParsedInputType> IPuzzleResults runTwoPhasePuzzleWithConcurrentParts(ITwoPhasePuzzle<ParsedInputType> puzzle, char[] inputCharacters, PuzzleConfigProvider puzzleConfigProvider, boolean partBPotentiallyUnsolvable, PrintWriter printWriter, PhaseNanoseconds phaseNanoseconds) throws Exception {
+			long parseStartTime = System.nanoTime();
+			long parseStartConfigTime = puzzleConfigProvider.getTimeSpentLoadingConfig();
+			ParsedInputType parsedInput = puzzle.parseInput(inputCharacters, puzzleConfigProvider, printWriter);
+			long partsStartTime = System.nanoTime();
+			long partsStartConfigTime = puzzleConfigProvider.getTimeSpentLoadingConfig();
+			phaseNanoseconds.parseNanoseconds = partsStartTime - parseStartTime - (partsStartConfigTime - parseStartConfigTime);
+			// Part B gets its own config provider so that the config loading time of each part can still be excluded from that part's timing.
+			PuzzleConfigProvider partBPuzzleConfigProvider = puzzleConfigProvider.createSibling();
+			// Part B also writes to a buffer of its own, which is only added after part A's output once part B has finished, so the output of the two parts never interleaves.
+			StringWriter partBOutputWriter = new StringWriter();
+			PrintWriter partBPrintWriter = new PrintWriter(partBOutputWriter);
+			AStarStatistics searchStatistics = AStarStatistics.getCurrent();
+			Future<IPuzzlePartResults> partBFuture = PART_EXECUTOR_SERVICE.submit(() -> {
+				if (searchStatistics != null) {
+					AStarStatistics.setCurrent(searchStatistics);
+				}
+				try {
+					long partBStartAllocatedBytes = getCurrentThreadAllocatedBytes();
+					long partBStartCpuTime = getCurrentThreadCpuTime();
+					IPuzzlePartResults partBResults = puzzle.solvePartB(parsedInput, partBPuzzleConfigProvider, partBPotentiallyUnsolvable, partBPrintWriter);
+					phaseNanoseconds.partBNanoseconds = System.nanoTime() - partsStartTime - partBPuzzleConfigProvider.getTimeSpentLoadingConfig();
+					phaseNanoseconds.helperThreadCpuNanoseconds = getCurrentThreadCpuTime() - partBStartCpuTime - partBPuzzleConfigProvider.getCpuTimeSpentLoadingConfig();
+					phaseNanoseconds.helperThreadAllocatedBytes = partBStartAllocatedBytes < 0 ? 0L : getCurrentThreadAllocatedBytes() - partBStartAllocatedBytes;
+					return partBResults;
+				} finally {
+					if (searchStatistics != null) {
+						AStarStatistics.setCurrent(null);
+					}
+				}
+			});
+			IPuzzlePartResults partAResults;
+			try {
+				partAResults = puzzle.solvePartA(parsedInput, puzzleConfigProvider, printWriter);
+			} catch (Exception ex) {
+				partBFuture.cancel(true);
+				throw ex;
+			}
+			phaseNanoseconds.partANanoseconds = System.nanoTime() - partsStartTime - (puzzleConfigProvider.getTimeSpentLoadingConfig() - partsStartConfigTime);
+			IPuzzlePartResults partBResults;
+			try {
+				partBResults = partBFuture.get();
+			} catch (ExecutionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof Exception) {
+					throw (Exception) cause;
+				}
+				else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw ex;
+			} finally {
+				partBPrintWriter.flush();
+				printWriter.write(partBOutputWriter.toString());
+			}
+			return new MultiPartPuzzleResults<>(partAResults, partBResults);
+		}
+
 		private static PuzzleRunPartResults createPartResults(char[] expectedResult, String actualResult) {
 			String expectedResultTrimmedString;
 			String actualResultTrimmedString;
@@ -389,7 +1626,7 @@ public class Main {
 			return PATTERN_NEWLINE.matcher(input).replaceAll("\n");
 		}
 
-		private IPuzzle createPuzzleInstance() {
+		public IPuzzle createPuzzleInstance() {
 			try {
 				return this.puzzleClazz.newInstance();
 			} catch (IllegalAccessException | InstantiationException ex) {
@@ -398,7 +1635,73 @@ public class Main {
 		}
 	}
 
-	private static char[] readDataSetFile(Path dataSetPath, String fileName, boolean allowMissing) {
+	private static long mebibytesToCharacters(int mebibytes) {
+		return (mebibytes * 1024L * 1024L) / Character.BYTES;
+	}
+
+	// Returns -1 if the JVM cannot measure the memory allocated by a thread.
+	private static long getCurrentThreadAllocatedBytes() {
+		if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean extendedThreadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+			if (extendedThreadMXBean.isThreadAllocatedMemorySupported() && extendedThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+				return extendedThreadMXBean.getCurrentThreadAllocatedBytes();
+			}
+		}
+		return -1L;
+	}
+
+	private static long getGarbageCollectionCount() {
+		long garbageCollectionCount = 0L;
+		for (GarbageCollectorMXBean garbageCollectorMXBean : GARBAGE_COLLECTOR_MX_BEANS) {
+			garbageCollectionCount += Math.max(0L, garbageCollectorMXBean.getCollectionCount());
+		}
+		return garbageCollectionCount;
+	}
+
+	private static long getGarbageCollectionMilliseconds() {
+		long garbageCollectionMilliseconds = 0L;
+		for (GarbageCollectorMXBean garbageCollectorMXBean : GARBAGE_COLLECTOR_MX_BEANS) {
+			garbageCollectionMilliseconds += Math.max(0L, garbageCollectorMXBean.getCollectionTime());
+		}
+		return garbageCollectionMilliseconds;
+	}
+
+	// Returns -1 if the JVM cannot measure the memory allocated by a thread, or the thread has finished.
+	private static long getThreadAllocatedBytes(long threadId) {
+		if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean extendedThreadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+			if (extendedThreadMXBean.isThreadAllocatedMemorySupported() && extendedThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+				return extendedThreadMXBean.getThreadAllocatedBytes(threadId);
+			}
+		}
+		return -1L;
+	}
+
+	// Returns -1 if the thread has finished.
+	private static long getThreadCpuTime(long threadId) {
+		if (THREAD_MX_BEAN.isThreadCpuTimeSupported() && THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+			return THREAD_MX_BEAN.getThreadCpuTime(threadId);
+		}
+		else {
+			return 0L;
+		}
+	}
+
+	private static long getCurrentThreadCpuTime() {
+		if (THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()) {
+			return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+		}
+		else {
+			return 0L;
+		}
+	}
+
+	// The returned array is shared with the cache, so must not be modified.
+	static char[] readDataSetFile(Path dataSetPath, String fileName, boolean allowMissing) {
+		return FILE_CONTENT_CACHE.get(dataSetPath.resolve(fileName), () -> readDataSetFileUncached(dataSetPath, fileName, allowMissing));
+	}
+
+	private static char[] readDataSetFileUncached(Path dataSetPath, String fileName, boolean allowMissing) {
 		Path path = dataSetPath.resolve(fileName);
 		if (Files.isRegularFile(path)) {
 			return readFile(path);
@@ -415,15 +1718,55 @@ public class Main {
 		throw new IllegalStateException("Could not read file " + path + (allowMissing ? " or an equivalent .missing file" : ""));
 	}
 
-	private static char[] readFile(Path path) {
-		byte[] fileBytes;
-		try {
-			fileBytes = Files.readAllBytes(path);
+	private static CharSequence readDataSetFileCharSequence(Path dataSetPath, String fileName) {
+		Path path = dataSetPath.resolve(fileName);
+		if (Files.isRegularFile(path)) {
+			return readFileCharSequence(path);
+		}
+		throw new IllegalStateException("Could not read file " + path);
+	}
+
+	private static ByteBuffer readFileBytes(Path path) {
+		try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long fileSize = fileChannel.size();
+			if (fileSize > Integer.MAX_VALUE) {
+				throw new IllegalStateException("File " + path + " is too large to read");
+			}
+			if (fileSize >= MEMORY_MAP_THRESHOLD_BYTES) {
+				// The mapping remains valid after the channel is closed, and is released once the buffer is garbage collected.
+				return fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+			}
+			ByteBuffer byteBuffer = ByteBuffer.allocate((int) fileSize);
+			while (byteBuffer.hasRemaining()) {
+				if (fileChannel.read(byteBuffer) < 0) {
+					break;
+				}
+			}
+			byteBuffer.flip();
+			return byteBuffer;
 		} catch (IOException ex) {
-			throw new IllegalStateException("Unable to read file bytes");
+			throw new IllegalStateException("Unable to read file bytes", ex);
+		}
+	}
+
+	private static CharSequence readFileCharSequence(Path path) {
+		ByteBuffer fileBytes = readFileBytes(path);
+		if (AsciiByteBufferCharSequence.isAscii(fileBytes)) {
+			return AsciiByteBufferCharSequence.create(fileBytes);
+		}
+		else {
+			return StandardCharsets.UTF_8.decode(fileBytes).asReadOnlyBuffer();
 		}
-		CharBuffer charBuffer = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(fileBytes));
-		if (charBuffer.hasArray() && !charBuffer.isReadOnly()) {
+	}
+
+	private static char[] readFile(Path path) {
+		ByteBuffer fileBytes = readFileBytes(path);
+		if (AsciiByteBufferCharSequence.isAscii(fileBytes)) {
+			// Nearly every input is plain ASCII, which can be widened directly without the overhead of the charset decoder.
+			return AsciiByteBufferCharSequence.create(fileBytes).toCharArray();
+		}
+		CharBuffer charBuffer = StandardCharsets.UTF_8.decode(fileBytes);
+		if (charBuffer.hasArray() && !charBuffer.isReadOnly() && charBuffer.arrayOffset() == 0 && charBuffer.position() == 0 && charBuffer.remaining() == charBuffer.array().length) {
 			return charBuffer.array();
 		}
 		else {
@@ -434,6 +1777,10 @@ public class Main {
 	}
 
 	public static void main(String[] args) {
+		// This has to happen before anything first uses the common pool, and a factory given on the command line is left alone.
+		if (System.getProperty(COMMON_POOL_THREAD_FACTORY_PROPERTY) == null) {
+			System.setProperty(COMMON_POOL_THREAD_FACTORY_PROPERTY, CommonPoolWorkerThreadFactory.class.getName());
+		}
 		CommandLineBean commandLineBean = new CommandLineBean();
 		CmdLineParser cmdLineParser = new CmdLineParser(commandLineBean);
 		try {
@@ -443,10 +1790,38 @@ public class Main {
 			cmdLineParser.printUsage(System.err);
 			return;
 		}
-		runPuzzles(commandLineBean.getYears(), commandLineBean.getDays(), commandLineBean.getUsers(), commandLineBean.isPreRunForJIT());
+		if (commandLineBean.getParallelism() < 1) {
+			System.err.println("Parallelism must be at least 1");
+			cmdLineParser.printUsage(System.err);
+			return;
+		}
+		if (commandLineBean.getWarmupIterations() < 0) {
+			System.err.println("Warmup iterations must not be negative");
+			cmdLineParser.printUsage(System.err);
+			return;
+		}
+		if (commandLineBean.getMeasuredIterations() < 1) {
+			System.err.println("Iterations must be at least 1");
+			cmdLineParser.printUsage(System.err);
+			return;
+		}
+		if (commandLineBean.getBaselineRuns() < 1) {
+			System.err.println("Baseline runs must be at least 1");
+			cmdLineParser.printUsage(System.err);
+			return;
+		}
+		if (commandLineBean.getFileCacheSizeMebibytes() < 0) {
+			System.err.println("File cache size must not be negative");
+			cmdLineParser.printUsage(System.err);
+			return;
+		}
+		FILE_CONTENT_CACHE.setMaximumCachedCharacters(mebibytesToCharacters(commandLineBean.getFileCacheSizeMebibytes()));
+		if (!runPuzzles(commandLineBean)) {
+			System.exit(1);
+		}
 	}
 
-	private static void runPuzzles(Set<Integer> yearFilter, Set<Integer> dayFilter, Set<Integer> userFilter, boolean preRunForJIT) {
+	static List<PuzzleRunner> findPuzzleRunners(Set<Integer> yearFilter, Set<Integer> dayFilter) {
 		List<PuzzleRunner> puzzleRunners = new ArrayList<>();
 		String mainClassName = Main.class.getName();
 		String mainPackageName = mainClassName.substring(0, mainClassName.lastIndexOf('.'));
@@ -474,9 +1849,18 @@ public class Main {
 				}
 			}
 		}
+		return puzzleRunners;
+	}
+
+	private static boolean runPuzzles(CommandLineBean commandLineBean) {
+		Set<Integer> userFilter = commandLineBean.getUsers();
+		RunSettings runSettings = new RunSettings(commandLineBean.getWarmupIterations(), commandLineBean.getMeasuredIterations(), commandLineBean.isConcurrentParts(), commandLineBean.isSearchStatistics(), commandLineBean.getParallelism() > 1);
+		int parallelism = commandLineBean.getParallelism();
+		List<PuzzleRunner> puzzleRunners = findPuzzleRunners(commandLineBean.getYears(), commandLineBean.getDays());
 		int puzzleRunnerCount = puzzleRunners.size();
 		if (puzzleRunnerCount == 0) {
 			System.err.println("No matching puzzles found.");
+			return true;
 		}
 		else {
 			PrintWriter consoleOutWriter;
@@ -490,9 +1874,91 @@ public class Main {
 				consoleOutWriter = console.writer();
 				restrictedCharacterSet = false;
 			}
+			Path outputFile = commandLineBean.getOutputFile();
+			try (
+				TimingHistory timingHistory = TimingHistory.open(commandLineBean.getHistoryFile(), commandLineBean.isRecordHistory(), commandLineBean.isCompareBaseline(), commandLineBean.getBaselineRuns(), commandLineBean.getRegressionThresholdPercentage());
+				ResultsOutput resultsOutput = outputFile == null ? null : ResultsOutput.open(outputFile, commandLineBean.getOutputFormat())
+			) {
+				if (parallelism == 1) {
+					for (PuzzleRunner puzzleRunner : puzzleRunners) {
+						List<PuzzleRunResults> puzzleRunResults = puzzleRunner.run(consoleOutWriter, restrictedCharacterSet, commandLineBean.isMemoryStatistics(), userFilter, runSettings);
+						timingHistory.process(consoleOutWriter, puzzleRunner, puzzleRunResults);
+						if (resultsOutput != null) {
+							resultsOutput.write(puzzleRunner, puzzleRunResults);
+						}
+					}
+				}
+				else {
+					runPuzzlesInParallel(puzzleRunners, consoleOutWriter, restrictedCharacterSet, commandLineBean.isMemoryStatistics(), userFilter, runSettings, parallelism, timingHistory, resultsOutput);
+				}
+				if (commandLineBean.isCompareBaseline()) {
+					consoleOutWriter.format("%d data set(s) regressed by more than %.1f%% against the baseline%n", timingHistory.getRegressionCount(), commandLineBean.getRegressionThresholdPercentage());
+					consoleOutWriter.flush();
+				}
+				return timingHistory.getRegressionCount() == 0;
+			} catch (IOException ex) {
+				throw new IllegalStateException("Unable to close history or output file", ex);
+			}
+		}
+	}
+
+	private static void runPuzzlesInParallel(List<PuzzleRunner> puzzleRunners, PrintWriter consoleOutWriter, boolean restrictedCharacterSet, boolean showMemoryUsage, Set<Integer> userFilter, RunSettings runSettings, int parallelism, TimingHistory timingHistory, ResultsOutput resultsOutput) {
+		ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+		try {
+			List<List<DataSet>> puzzleRunnerDataSets = new ArrayList<>();
 			for (PuzzleRunner puzzleRunner : puzzleRunners) {
-				puzzleRunner.run(consoleOutWriter, restrictedCharacterSet, userFilter, preRunForJIT);
+				puzzleRunnerDataSets.add(puzzleRunner.findDataSets(userFilter));
+			}
+			// Only a bounded window of (year, day, data set) jobs is submitted ahead of the one due to be printed next, which keeps the pool busy while each job's buffered output and results are printed, recorded and dropped in order rather than held until the whole run ends.
+			int maximumPendingJobCount = parallelism * 2;
+			Deque<Future<BufferedPuzzleRunResults>> pendingFutures = new ArrayDeque<>();
+			int submitPuzzleRunnerIndex = 0;
+			int submitDataSetIndex = 0;
+			consoleOutWriter.format("Running data sets on %d threads; CPU time is reported per thread as wall time is skewed by concurrent runs%n", parallelism);
+			consoleOutWriter.format("CPU time and allocations are left blank for runs that used the common fork-join pool, as that work cannot be attributed to one of the concurrent runs%n");
+			if (showMemoryUsage) {
+				consoleOutWriter.format("Garbage collections are counted across the whole JVM, so are left blank as they cannot be attributed to one of the concurrent runs%n");
+			}
+			int puzzleRunnerCount = puzzleRunners.size();
+			for (int puzzleRunnerIndex = 0; puzzleRunnerIndex < puzzleRunnerCount; puzzleRunnerIndex++) {
+				PuzzleRunner puzzleRunner = puzzleRunners.get(puzzleRunnerIndex);
+				puzzleRunner.printHeader(consoleOutWriter);
+				consoleOutWriter.flush();
+				List<PuzzleRunResults> puzzleRunResults = new ArrayList<>();
+				int dataSetCount = puzzleRunnerDataSets.get(puzzleRunnerIndex).size();
+				for (int dataSetIndex = 0; dataSetIndex < dataSetCount; dataSetIndex++) {
+					while (pendingFutures.size() < maximumPendingJobCount && submitPuzzleRunnerIndex < puzzleRunnerCount) {
+						List<DataSet> submitDataSets = puzzleRunnerDataSets.get(submitPuzzleRunnerIndex);
+						if (submitDataSetIndex < submitDataSets.size()) {
+							PuzzleRunner submitPuzzleRunner = puzzleRunners.get(submitPuzzleRunnerIndex);
+							DataSet submitDataSet = submitDataSets.get(submitDataSetIndex++);
+							pendingFutures.addLast(executorService.submit(() -> submitPuzzleRunner.runWithDataSetBuffered(submitDataSet, runSettings)));
+						}
+						else {
+							submitPuzzleRunnerIndex++;
+							submitDataSetIndex = 0;
+						}
+					}
+					BufferedPuzzleRunResults bufferedPuzzleRunResults;
+					try {
+						bufferedPuzzleRunResults = pendingFutures.removeFirst().get();
+					} catch (ExecutionException ex) {
+						throw new IllegalStateException("Unexpected failure running data set", ex.getCause());
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new IllegalStateException("Interrupted while waiting for data set", ex);
+					}
+					consoleOutWriter.write(bufferedPuzzleRunResults.getOutput());
+					puzzleRunResults.add(bufferedPuzzleRunResults.getPuzzleRunResults());
+				}
+				puzzleRunner.printResults(consoleOutWriter, restrictedCharacterSet, showMemoryUsage, puzzleRunResults);
+				timingHistory.process(consoleOutWriter, puzzleRunner, puzzleRunResults);
+				if (resultsOutput != null) {
+					resultsOutput.write(puzzleRunner, puzzleRunResults);
+				}
 			}
+		} finally {
+			executorService.shutdownNow();
 		}
 	}
 }